@@ -0,0 +1,423 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVBitmap
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.util.Arrays;
+
+/**
+ * <p>A compressed set of row positions, in the way of Roaring bitmaps.</p>
+ *
+ * <p>The positions are divided in chunks of 65536 by the high 16 bits. Each chunk keeps the low 16 bits of
+ * its positions in a sorted array while it has few positions, or in a bitmap of 8 KB when it has more than 4096,
+ * so sparse and dense sets use little memory and the operations between two sets work chunk by chunk.</p>
+ *
+ * <p>The operations and, or and andNot return new bitmaps and do not change the operands.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVBitmap {
+
+    /**
+     * Chunks with more positions than it are kept as bitmaps
+     */
+    private static final int MAX_ARRAY_SIZE = 4096;
+
+    private static final int BITMAP_WORDS = 1024;
+
+    /**
+     * High 16 bits of the positions of each chunk, in ascending order
+     */
+    private char[] keys = new char[4];
+
+    private Container[] containers = new Container[4];
+
+    /**
+     * Number of chunks
+     */
+    private int size;
+
+    /**
+     * The low 16 bits of the positions of a chunk, in a sorted array or in a bitmap
+     */
+    private static class Container {
+
+        /** Sorted positions, null if the container is a bitmap */
+        private char[] array;
+
+        /** Bits of the positions, null if the container is an array */
+        private long[] bits;
+
+        private int cardinality;
+
+        private static Container ofArray(char[] array, int cardinality) {
+            Container container = new Container();
+            container.array = array;
+            container.cardinality = cardinality;
+            return container;
+        }
+
+        private static Container ofBits(long[] bits) {
+            Container container = new Container();
+            container.bits = bits;
+            for (long word : bits)
+                container.cardinality += Long.bitCount(word);
+            return container.optimize();
+        }
+
+        private boolean contains(char value) {
+            if(bits != null)
+                return (bits[value >>> 6] & (1L << value)) != 0;
+            return Arrays.binarySearch(array, 0, cardinality, value) >= 0;
+        }
+
+        private Container add(char value) {
+            if(bits != null) {
+                if(! contains(value)) {
+                    bits[value >>> 6] |= 1L << value;
+                    cardinality++;
+                }
+                return this;
+            }
+
+            int index = Arrays.binarySearch(array, 0, cardinality, value);
+            if(index >= 0)
+                return this;
+            index = -index - 1;
+
+            if(cardinality == MAX_ARRAY_SIZE)
+                return toBits().add(value);
+
+            if(cardinality == array.length)
+                array = Arrays.copyOf(array, Math.min(cardinality * 2, MAX_ARRAY_SIZE));
+            System.arraycopy(array, index, array, index + 1, cardinality - index);
+            array[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        private Container toBits() {
+            long[] bits = new long[BITMAP_WORDS];
+            for (int index = 0; index < cardinality; index++)
+                bits[array[index] >>> 6] |= 1L << array[index];
+            Container container = new Container();
+            container.bits = bits;
+            container.cardinality = cardinality;
+            return container;
+        }
+
+        /**
+         * Keep as bitmap just the containers with many positions
+         */
+        private Container optimize() {
+            if(bits == null || cardinality > MAX_ARRAY_SIZE)
+                return this;
+            char[] array = new char[cardinality];
+            int count = 0;
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long bitsOfWord = bits[word];
+                while (bitsOfWord != 0) {
+                    array[count++] = (char) ((word << 6) + Long.numberOfTrailingZeros(bitsOfWord));
+                    bitsOfWord &= bitsOfWord - 1;
+                }
+            }
+            return ofArray(array, cardinality);
+        }
+
+        private Container and(Container other) {
+            if(bits != null && other.bits != null) {
+                long[] result = new long[BITMAP_WORDS];
+                for (int word = 0; word < BITMAP_WORDS; word++)
+                    result[word] = bits[word] & other.bits[word];
+                return ofBits(result);
+            }
+            if(bits != null)
+                return other.and(this);
+            if(other.bits != null)
+                return filter(other, true);
+
+            char[] result = new char[Math.min(cardinality, other.cardinality)];
+            int count = 0;
+            for (int i = 0, j = 0; i < cardinality && j < other.cardinality; ) {
+                if(array[i] < other.array[j])
+                    i++;
+                else if(array[i] > other.array[j])
+                    j++;
+                else {
+                    result[count++] = array[i];
+                    i++;
+                    j++;
+                }
+            }
+            return ofArray(result, count);
+        }
+
+        private Container or(Container other) {
+            if(bits != null || other.bits != null) {
+                long[] result = bits != null ? bits.clone() : other.bits.clone();
+                Container second = bits != null ? other : this;
+                if(second.bits != null) {
+                    for (int word = 0; word < BITMAP_WORDS; word++)
+                        result[word] |= second.bits[word];
+                } else {
+                    for (int index = 0; index < second.cardinality; index++)
+                        result[second.array[index] >>> 6] |= 1L << second.array[index];
+                }
+                return ofBits(result);
+            }
+
+            char[] result = new char[cardinality + other.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < other.cardinality) {
+                if(array[i] < other.array[j])
+                    result[count++] = array[i++];
+                else if(array[i] > other.array[j])
+                    result[count++] = other.array[j++];
+                else {
+                    result[count++] = array[i++];
+                    j++;
+                }
+            }
+            while (i < cardinality)
+                result[count++] = array[i++];
+            while (j < other.cardinality)
+                result[count++] = other.array[j++];
+
+            Container container = ofArray(result, count);
+            return count > MAX_ARRAY_SIZE ? container.toBits() : container;
+        }
+
+        private Container andNot(Container other) {
+            if(bits == null)
+                return filter(other, false);
+
+            long[] result = bits.clone();
+            if(other.bits != null) {
+                for (int word = 0; word < BITMAP_WORDS; word++)
+                    result[word] &= ~other.bits[word];
+            } else {
+                for (int index = 0; index < other.cardinality; index++)
+                    result[other.array[index] >>> 6] &= ~(1L << other.array[index]);
+            }
+            return ofBits(result);
+        }
+
+        /**
+         * The positions of this array container that are ( or are not ) in the other container
+         */
+        private Container filter(Container other, boolean contained) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int index = 0; index < cardinality; index++) {
+                if(other.contains(array[index]) == contained)
+                    result[count++] = array[index];
+            }
+            return ofArray(result, count);
+        }
+
+        private int fill(int[] positions, int offset, int high) {
+            if(bits == null) {
+                for (int index = 0; index < cardinality; index++)
+                    positions[offset++] = high | array[index];
+                return offset;
+            }
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long bitsOfWord = bits[word];
+                while (bitsOfWord != 0) {
+                    positions[offset++] = high | (word << 6) + Long.numberOfTrailingZeros(bitsOfWord);
+                    bitsOfWord &= bitsOfWord - 1;
+                }
+            }
+            return offset;
+        }
+    }
+
+    /**
+     * Create a bitmap with positions in ascending order
+     * @param positions
+     * @return
+     */
+    static CSVBitmap of(int[] positions) {
+        CSVBitmap bitmap = new CSVBitmap();
+        for (int position : positions)
+            bitmap.add(position);
+        return bitmap;
+    }
+
+    /**
+     * Create a bitmap with all positions from 0 until size ( exclusive )
+     * @param size
+     * @return
+     */
+    static CSVBitmap range(int size) {
+        CSVBitmap bitmap = new CSVBitmap();
+        for (int high = 0; high < size; high += 1 << 16) {
+            int count = Math.min(size - high, 1 << 16);
+            long[] bits = new long[BITMAP_WORDS];
+            Arrays.fill(bits, 0, count >>> 6, -1L);
+            if((count & 63) != 0)
+                bits[count >>> 6] = (1L << count) - 1;
+            bitmap.append((char) (high >>> 16), Container.ofBits(bits));
+        }
+        return bitmap;
+    }
+
+    /**
+     * Add a position. Adding positions in ascending order is the faster way.
+     * @param position
+     */
+    void add(int position) {
+        if(position < 0)
+            throw new IllegalArgumentException("Position can't be negative: "+position);
+
+        char key = (char) (position >>> 16);
+        char low = (char) position;
+
+        if(size > 0 && keys[size - 1] == key) {
+            containers[size - 1] = containers[size - 1].add(low);
+            return;
+        }
+
+        int index = size > 0 && keys[size - 1] < key ? -size - 1 : Arrays.binarySearch(keys, 0, size, key);
+        if(index >= 0) {
+            containers[index] = containers[index].add(low);
+            return;
+        }
+
+        index = -index - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = Container.ofArray(new char[]{ low }, 1);
+        size++;
+    }
+
+    /**
+     * Positions that are in both bitmaps
+     */
+    CSVBitmap and(CSVBitmap other) {
+        CSVBitmap result = new CSVBitmap();
+        for (int i = 0, j = 0; i < size && j < other.size; ) {
+            if(keys[i] < other.keys[j])
+                i++;
+            else if(keys[i] > other.keys[j])
+                j++;
+            else {
+                result.append(keys[i], containers[i].and(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Positions that are in one of the bitmaps
+     */
+    CSVBitmap or(CSVBitmap other) {
+        CSVBitmap result = new CSVBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if(keys[i] < other.keys[j]) {
+                result.append(keys[i], containers[i]);
+                i++;
+            } else if(keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.containers[j]);
+                j++;
+            } else {
+                result.append(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        for (; i < size; i++)
+            result.append(keys[i], containers[i]);
+        for (; j < other.size; j++)
+            result.append(other.keys[j], other.containers[j]);
+        return result;
+    }
+
+    /**
+     * Positions of this bitmap that are not in the other
+     */
+    CSVBitmap andNot(CSVBitmap other) {
+        CSVBitmap result = new CSVBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i])
+                j++;
+            if(j < other.size && other.keys[j] == keys[i])
+                result.append(keys[i], containers[i].andNot(other.containers[j]));
+            else
+                result.append(keys[i], containers[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Number of positions
+     */
+    int cardinality() {
+        int cardinality = 0;
+        for (int index = 0; index < size; index++)
+            cardinality += containers[index].cardinality;
+        return cardinality;
+    }
+
+    /**
+     * The positions in ascending order
+     */
+    int[] toArray() {
+        int[] positions = new int[cardinality()];
+        int offset = 0;
+        for (int index = 0; index < size; index++)
+            offset = containers[index].fill(positions, offset, keys[index] << 16);
+        return positions;
+    }
+
+    /**
+     * Add a chunk after the last one. The results of the operations share containers with the operands,
+     * so add is not used on them.
+     */
+    private void append(char key, Container container) {
+        if(container.cardinality == 0)
+            return;
+        ensureCapacity(size + 1);
+        keys[size] = key;
+        containers[size] = container;
+        size++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity > keys.length) {
+            keys = Arrays.copyOf(keys, capacity * 2);
+            containers = Arrays.copyOf(containers, capacity * 2);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVBooleanValues
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * <p>Boolean values of a column stored as bits.</p>
+ *
+ * <p>Just the values "true" and "false" are accepted, other forms like "TRUE" do not keep the same text.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVBooleanValues extends CSVColumnValues {
+
+    private static final String TRUE = "true";
+
+    private static final String FALSE = "false";
+
+    private final BitSet bits = new BitSet();
+
+    private int size;
+
+    /**
+     * Create the boolean storage to the values, or return null if some value is not boolean
+     * @param values
+     * @return
+     */
+    static CSVBooleanValues of(List<String> values) {
+        CSVBooleanValues booleanValues = new CSVBooleanValues();
+        for (String value : values) {
+            if(! isBoolean(value))
+                return null;
+            booleanValues.bits.set(booleanValues.size++, TRUE.equals(value));
+        }
+        return booleanValues;
+    }
+
+    static boolean isBoolean(String value) {
+        return TRUE.equals(value) || FALSE.equals(value);
+    }
+
+    @Override
+    boolean accepts(String value) {
+        return isBoolean(value);
+    }
+
+    @Override
+    public String get(int index) {
+        return getBoolean(index) ? TRUE : FALSE;
+    }
+
+    /**
+     * The value as a primitive boolean
+     * @param index
+     * @return
+     */
+    boolean getBoolean(int index) {
+        checkIndex(index, size);
+        return bits.get(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String set(int index, String value) {
+        String old = get(index);
+        bits.set(index, toBit(value));
+        return old;
+    }
+
+    @Override
+    public void add(int index, String value) {
+        if(index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+        boolean bit = toBit(value);
+        for (int i = size; i > index; i--)
+            bits.set(i, bits.get(i - 1));
+        bits.set(index, bit);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public String remove(int index) {
+        String old = get(index);
+        for (int i = index; i < size - 1; i++)
+            bits.set(i, bits.get(i + 1));
+        bits.clear(--size);
+        modCount++;
+        return old;
+    }
+
+    private boolean toBit(String value) {
+        if(! accepts(value))
+            throw new IllegalArgumentException("value: \""+value+"\" can not be stored in a boolean column");
+        return TRUE.equals(value);
+    }
+
+    @Override
+    int count(String matchingValue) {
+        if(! accepts(matchingValue))
+            return 0;
+        int trueValues = bits.cardinality();
+        return TRUE.equals(matchingValue) ? trueValues : size - trueValues;
+    }
+
+    @Override
+    int[] indexesOf(String matchingValue) {
+        int[] indexes = new int[count(matchingValue)];
+        if(indexes.length == 0)
+            return indexes;
+        boolean bit = TRUE.equals(matchingValue);
+        int count = 0;
+        for (int index = bit ? bits.nextSetBit(0) : bits.nextClearBit(0); index >= 0 && index < size;
+                index = bit ? bits.nextSetBit(index + 1) : bits.nextClearBit(index + 1))
+            indexes[count++] = index;
+        return indexes;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVColumnValues
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * <p>Values of a column stored in a compact way, not as a list of Strings.</p>
+ *
+ * <p>To the rest of the library it is a list of Strings, values are converted when accessed.
+ * Each implementation accepts just values that it can store without change the text of the value.
+ * Columns that are not numeric or boolean are stored in a dictionary when they have few distinct values.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+abstract class CSVColumnValues extends AbstractList<String> implements RandomAccess {
+
+    /**
+     * Number of values sampled to infer the type of a column
+     */
+    private static final int SAMPLE_SIZE = 100;
+
+    /**
+     * Return the values stored in the most compact way that keep the same text of the values.
+     * If there is no compact storage to the values, return the same list.
+     *
+     * @param values
+     * @return
+     */
+    static List<String> compact(List<String> values) {
+
+        if(values instanceof CSVColumnValues || values.size() == 0)
+            return values;
+
+        int sampleSize = Math.min(values.size(), SAMPLE_SIZE);
+
+        CSVNumericValues numericValues = toNumeric(values);
+        if(numericValues != null)
+            return numericValues;
+
+        if(allAccepted(values, sampleSize, CSVBooleanValues::isBoolean)) {
+            CSVBooleanValues booleanValues = CSVBooleanValues.of(values);
+            if(booleanValues != null)
+                return booleanValues;
+        }
+
+        CSVDictionaryValues dictionaryValues = CSVDictionaryValues.of(values);
+        if(dictionaryValues != null)
+            return dictionaryValues;
+
+        return values;
+    }
+
+    /**
+     * Return the values stored as numeric values, or null if some value is not numeric
+     * @param values
+     * @return
+     */
+    static CSVNumericValues toNumeric(List<String> values) {
+
+        if(values instanceof CSVNumericValues)
+            return (CSVNumericValues) values;
+
+        if(values instanceof CSVColumnValues || values.size() == 0
+                || ! allAccepted(values, Math.min(values.size(), SAMPLE_SIZE), CSVNumericValues::isNumeric))
+            return null;
+
+        return CSVNumericValues.of(values);
+    }
+
+    /**
+     * Return the values stored out of the heap: numeric values as in a numeric column, the others as text.
+     * @param values
+     * @return
+     */
+    static List<String> moveOffHeap(List<String> values) {
+
+        if(values instanceof CSVColumnValues)
+            return values;
+
+        int sampleSize = Math.min(values.size(), SAMPLE_SIZE);
+
+        if(values.size() > 0 && allAccepted(values, sampleSize, CSVNumericValues::isNumeric)) {
+            CSVNumericValues numericValues = CSVNumericValues.ofOffHeap(values);
+            if(numericValues != null)
+                return numericValues;
+        }
+
+        return CSVOffHeapTextValues.of(values);
+    }
+
+    private static boolean allAccepted(List<String> values, int size, Predicate<String> accepts) {
+        for (int index = 0; index < size; index++) {
+            if(! accepts.test(values.get(index)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * If the value can be stored without change its text
+     * @param value
+     * @return
+     */
+    abstract boolean accepts(String value);
+
+    /**
+     * Count the values equals to the matching value
+     * @param matchingValue
+     * @return
+     */
+    int count(String matchingValue) {
+        int total = 0;
+        for (int index = 0; index < size(); index++) {
+            if(get(index).equals(matchingValue))
+                total++;
+        }
+        return total;
+    }
+
+    /**
+     * The indexes of the values equals to the matching value, in the order of the values
+     * @param matchingValue
+     * @return
+     */
+    int[] indexesOf(String matchingValue) {
+        int[] indexes = new int[16];
+        int count = 0;
+        for (int index = 0; index < size(); index++) {
+            if(get(index).equals(matchingValue)) {
+                if(count == indexes.length)
+                    indexes = Arrays.copyOf(indexes, count * 2);
+                indexes[count++] = index;
+            }
+        }
+        return Arrays.copyOf(indexes, count);
+    }
+
+    /**
+     * The values in a storage that accepts any value, used when a value is not accepted by this storage
+     * @return
+     */
+    List<String> uncompact() {
+        return new ArrayList<>(this);
+    }
+
+    /**
+     * Release the memory of the values that is out of the heap
+     */
+    void close() {
+    }
+
+    /**
+     * The distinct values, in the order they first appear
+     * @return
+     */
+    List<String> distinctValues() {
+        return new ArrayList<>(new LinkedHashSet<>(this));
+    }
+
+    protected void checkIndex(int index, int size) {
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+    }
+}
@@ -28,7 +28,21 @@ package br.com.jadson.csvdataset;
 
 import java.io.*;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * <p> CSVDataSet is a library to manipulate a DataSet stored in CSV files for Java language. <p/>
@@ -45,9 +59,12 @@ import java.util.*;
  *      (2)  1, 2, 3, 4, 5  <br/>
  * </p>
  *
+ * <p>A data set with the storage mode OFF_HEAP keeps the values out of the heap, it needs to be closed to release
+ * that memory.</p>
+ *
  * Jadson Santos - jadsonjs@gmail.com
  */
-public class CSVDataSet {
+public class CSVDataSet implements Closeable {
 
     /**
      * Default separator of CSV file
@@ -61,6 +78,16 @@ public class CSVDataSet {
 
     private boolean append = false;
 
+    /**
+     * Number of rows read from file before add them to the data set
+     */
+    private static final int LOAD_BATCH_SIZE = 1024;
+
+    /**
+     * Number of rows encoded by each task when the data is stored in parallel
+     */
+    private static final int STORE_BATCH_SIZE = 16 * 1024;
+
     /**
      * Possition [0][0] when you have columnsHeader and rowsHeader
      * usually this value does make no sense and is ignored
@@ -79,20 +106,27 @@ public class CSVDataSet {
     /* If the CSV first column will be consider not a valid data, but header */
     boolean containsRowsHeaders = true;
 
+    /** How the values of columns are stored in memory after load the file */
+    private CSVStorageMode storageMode = CSVStorageMode.TEXT;
+
     /************************************************************
      * THis is the real values, exclude headers algorithms are executed only over this data. Headers are not computed.
      *
-     * Keep rows and columns of the CSV in separated list
-     *
-     * This turn it slow O(N+Nˆ2) for add and remove rows or columns
-     * but some operation over a row or column give us O(N) is the most of cases.
+     * The values are stored just in the columns. The rows are views created when used, that read the value
+     * at their position in each column, so each value is kept once and add or remove a row changes just the columns.
      *
      ************************************************************/
 
-    private List<CSVRecord> rows;
+    private int rowCount;
 
     private List<CSVRecord> columns;
 
+    /**
+     * Number of first rows that are already in the file, loaded from it or stored in it.
+     * In append mode, just the rows after them are stored.
+     */
+    private int storedRowCount;
+
     /************************************************************
      *
      ************************************************************/
@@ -203,6 +237,38 @@ public class CSVDataSet {
         this.containsRowsHeaders = containsRowsHeaders;
     }
 
+    /**
+     * Constructor with the way the values are stored in memory.
+     * With CSVStorageMode.TYPED numeric and boolean columns are stored in primitive arrays after load the file.
+     *
+     * @param fileName
+     * @param containsColumnsHeaders
+     * @param containsRowsHeaders
+     * @param storageMode
+     */
+    public CSVDataSet(String fileName, boolean containsColumnsHeaders, boolean containsRowsHeaders, CSVStorageMode storageMode){
+        this(fileName, containsColumnsHeaders, containsRowsHeaders);
+        if(storageMode == null)
+            throw new IllegalArgumentException("Storage mode can't be null");
+        this.storageMode = storageMode;
+    }
+
+    /**
+     * Full constructor with the way the values are stored in memory.
+     * @param fileName
+     * @param separator
+     * @param append
+     * @param containsColumnsHeaders
+     * @param containsRowsHeaders
+     * @param storageMode
+     */
+    public CSVDataSet(String fileName, String separator, boolean append, boolean containsColumnsHeaders, boolean containsRowsHeaders, CSVStorageMode storageMode){
+        this(fileName, separator, append, containsColumnsHeaders, containsRowsHeaders);
+        if(storageMode == null)
+            throw new IllegalArgumentException("Storage mode can't be null");
+        this.storageMode = storageMode;
+    }
+
 
 
     //////////////////////// Load from a file /////////////////////////////
@@ -211,573 +277,1284 @@ public class CSVDataSet {
      * Load the file data to memory
      */
     public void loadData() {
+        loadData((CSVProjection) null, null);
+    }
 
-        initializeRowAndColumns();
+    /**
+     * <p>Load to memory just the rows of the file that satisfy the filter.</p>
+     *
+     * <p>The filter is checked just after each record is read, the rows that does not satisfy it
+     * are never added to the data set.</p>
+     *
+     * @param filter
+     */
+    public void loadData(CSVRowFilter filter) {
+        if(filter == null)
+            throw new IllegalArgumentException("Filter can't be null");
+        loadData((CSVProjection) null, filter);
+    }
+
+    /**
+     * <p>Load to memory just some columns of the file.</p>
+     *
+     * <p>The values of the other columns are skipped while the file is read. The data set will contains just the
+     * selected columns, in the order of the file, with theirs header labels.</p>
+     *
+     * @param columnLabels header labels of the columns to be loaded
+     */
+    public void loadData(List<String> columnLabels) {
+        loadData(CSVProjection.ofLabels(columnLabels, containsRowsHeaders), null);
+    }
+
+    /**
+     * Load to memory just some columns of the rows of the file that satisfy the filter.
+     * The filter can use columns that are not loaded.
+     *
+     * @param columnLabels header labels of the columns to be loaded
+     * @param filter
+     */
+    public void loadData(List<String> columnLabels, CSVRowFilter filter) {
+        loadData(CSVProjection.ofLabels(columnLabels, containsRowsHeaders), filter);
+    }
+
+    /**
+     * <p>Load to memory just some columns of the file.</p>
+     *
+     * <p>The values of the other columns are skipped while the file is read. The data set will contains just the
+     * selected columns, in the order of the file, with theirs header labels.</p>
+     *
+     * @param columnPositions positions of the columns to be loaded, the rows headers are not a column.
+     */
+    public void loadData(int[] columnPositions) {
+        loadData(CSVProjection.ofPositions(columnPositions, containsRowsHeaders), null);
+    }
+
+    /**
+     * Load to memory just some columns of the rows of the file that satisfy the filter.
+     * The filter can use columns that are not loaded.
+     *
+     * @param columnPositions positions of the columns to be loaded, the rows headers are not a column.
+     * @param filter
+     */
+    public void loadData(int[] columnPositions, CSVRowFilter filter) {
+        loadData(CSVProjection.ofPositions(columnPositions, containsRowsHeaders), filter);
+    }
 
-        try{
+    /**
+     * Reader of the file in UTF-8, the same encoding used to store it and by the memory mapped loads
+     */
+    private Reader openFileReader() throws IOException {
+        return new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8);
+    }
 
-            FileReader reader = new FileReader(fileName);
+    private void loadData(CSVProjection projection, CSVRowFilter filter) {
 
-            try ( BufferedReader br = new BufferedReader(reader) ) {
+        try ( CSVTokenizer tokenizer = new CSVReaderTokenizer(openFileReader(), separator.charAt(0)) ) {
+            loadData(tokenizer, projection, filter);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-                String line = "";
+    /**
+     * <p>Load the file data to memory reading the file mapped in memory.</p>
+     *
+     * <p>The bytes of the file are not decoded to characters, just the values are converted to Strings,
+     * what is faster for big files. The file have to be encoded in UTF-8 (or ASCII) and the separator needs to
+     * be a ASCII character. Files bigger than 2GB are mapped in parts.</p>
+     */
+    public void loadDataMapped() {
+        loadDataMapped(null);
+    }
 
-                boolean firstLine = true;
+    /**
+     * Load to memory just the rows of the file that satisfy the filter, reading the file mapped in memory.
+     *
+     * @param filter
+     */
+    public void loadDataMapped(CSVRowFilter filter) {
 
-                List<String> rowsHeaders = new ArrayList<>();
+        try ( CSVTokenizer tokenizer = new CSVMappedTokenizer(Paths.get(fileName), separator.charAt(0)) ) {
+            loadData(tokenizer, null, filter);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-                while ((line = br.readLine()) != null) {
+    /**
+     * <p>Load the file data to memory reading parts of the file in parallel, using the common ForkJoinPool.</p>
+     *
+     * <p>Have the same restrictions of {@link #loadDataMapped()}.</p>
+     */
+    public void loadDataParallel() {
+        loadDataParallel(ForkJoinPool.commonPool());
+    }
 
-                    // https://stackoverflow.com/questions/18893390/splitting-on-comma-outside-quotes
-                    // that is followed by an even number of double quotes. In other words, it splits on comma outside the double quotes.
-                    // This will work provided you have balanced quotes in your string.
-                    String[] rowValues = line.split(separator+"(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)");
+    /**
+     * <p>Load the file data to memory reading parts of the file in parallel.</p>
+     *
+     * <p>The file is split in chunks that contains complete records and each chunk is read by a task of the pool.
+     * The rows keep the same order of the file. Have the same restrictions of {@link #loadDataMapped()}.</p>
+     *
+     * @param pool
+     */
+    public void loadDataParallel(ForkJoinPool pool) {
 
-                    if(firstLine && containsColumnsHeaders){ // fist line is column header
+        try {
+            CSVParallelLoader loader = new CSVParallelLoader(Paths.get(fileName), separator.charAt(0), containsColumnsHeaders, containsRowsHeaders, pool);
 
-                        List<String> columnsHeaders = new ArrayList<>();
-                        boolean firstElementOfColumn = true;
+            List<CSVParallelLoader.Chunk> chunks = loader.load();
 
-                        for (String value : rowValues) {
+            initializeRowAndColumns();
 
-                            if (value.startsWith("\"") && value.endsWith("\"")) {
-                                value = value.substring(1, value.length() - 1);
-                            }
+            if(containsColumnsHeaders && loader.getHeader() != null){
+                List<String> columnsHeaders = loader.getHeader();
+                if(containsRowsHeaders ) {
+                    crossHeader = columnsHeaders.get(0);
+                    columnsHeaders = columnsHeaders.subList(1, columnsHeaders.size());
+                }
+                setColumnsHeaders(columnsHeaders);
+            }
 
-                            if(firstElementOfColumn && containsRowsHeaders ) {
-                                firstElementOfColumn = false;
-                                crossHeader = value;
-                            }else{
-                                columnsHeaders.add(value);
-                            }
+            addChunks(chunks, pool);
 
-                        }
+            storedRowCount = rowCount;
 
-                        if(containsColumnsHeaders)
-                            setColumnsHeaders(columnsHeaders);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-                        firstLine = false;
-                        continue;
+    /**
+     * Add the rows of the chunks read in parallel. The values of each column are added in parallel
+     *
+     * @param chunks
+     * @param pool
+     */
+    private void addChunks(List<CSVParallelLoader.Chunk> chunks, ForkJoinPool pool) throws IOException {
 
-                    }else{
+        initializeData();
 
-                        firstLine = false;
+        List<String> rowsHeaders = new ArrayList<>();
+
+        int newRowCount = rowCount;
+        int rowSize = -1;
+
+        if(columns.size() > 0)
+            rowSize = columns.size();
+        else if(containsColumnsHeaders)
+            rowSize = columnsHeader.getValues().size();
+
+        // validate all rows before change something, the rows of each chunk have the same size
+        for (CSVParallelLoader.Chunk chunk : chunks){
+            if(chunk.rowCount == 0)
+                continue;
+            if(rowSize < 0)
+                rowSize = chunk.columns.size();
+            if(chunk.columns.size() != rowSize)
+                throw new IllegalArgumentException("Invalid number of row elements: "+chunk.columns.size()+". Rows should have: "  + rowSize+" elements. ");
+            newRowCount += chunk.rowCount;
+        }
 
-                        boolean firstElementOfRow = true;
+        if(rowSize <= 0)
+            return;
 
-                        List<String> row = new ArrayList<>();
-                        for (String value : rowValues){
-                            if(value.startsWith("\"") && value.endsWith("\"")) {
-                                value = value.substring(1, value.length()-1);
-                            }
+        for (CSVParallelLoader.Chunk chunk : chunks){
+            rowCount += chunk.rowCount;
+            rowsHeaders.addAll(chunk.rowsHeaders);
+        }
 
-                            if(firstElementOfRow && containsRowsHeaders ) {
-                                rowsHeaders.add(value);
-                                firstElementOfRow = false;
-                            }
+        List<Callable<Void>> tasks = new ArrayList<>();
 
-                            row.add(value);
+        for (int columnPosition = 0; columnPosition < rowSize ; columnPosition++){
+            if( ! containsColumn(columnPosition) )
+                columns.add(new CSVRecord(CSVRecord.CSVRecordType.COLUMN, columnPosition));
 
-                        }
+            CSVRecord column = columns.get(columnPosition);
+            int position = columnPosition;
+            int capacity = newRowCount;
 
-                        addRow( row );
+            tasks.add( () -> {
+                column.ensureCapacity(capacity);
+                for (CSVParallelLoader.Chunk chunk : chunks){
+                    if(chunk.rowCount == 0)
+                        continue;
+                    for (String value : chunk.columns.get(position)) {
+                        column.addValue(value);
                     }
-
+                    // the values of the chunk are in the column now, the memory is released while the next ones are added
+                    chunk.columns.set(position, null);
                 }
+                applyStorageMode(column);
+                return null;
+            });
+        }
 
-                if(containsRowsHeaders)
-                    setRowsHeaders(rowsHeaders);
-
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("Error adding the values of the columns", e);
         }
+
+        if(containsRowsHeaders)
+            setRowsHeaders(rowsHeaders);
     }
 
+    /**
+     * <p>Read the rows of the file one by one, without load them to memory.</p>
+     *
+     * <p>Just one row is kept in memory at time, so files bigger than the memory can be processed.
+     * The stream keeps the file open, so close it after use:</p>
+     *
+     * <pre>
+     * try( Stream&lt;CSVRow&gt; rows = dataSet.stream() ){
+     *     rows.filter( row -&gt; row.getValue("region").equals("EU") ).count();
+     * }
+     * </pre>
+     *
+     * @return
+     */
+    public Stream<CSVRow> stream() {
+        // validated before open the file, so a invalid separator does not leave it open
+        CSVTokenizer.validateSeparator(separator.charAt(0));
 
-    //////////////////////// Store to a file /////////////////////////////
+        CSVTokenizer tokenizer;
+        try {
+            tokenizer = new CSVReaderTokenizer(openFileReader(), separator.charAt(0));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
 
+        CSVRowIterator iterator;
+        try {
+            iterator = new CSVRowIterator(tokenizer, containsColumnsHeaders, containsRowsHeaders);
+        } catch (IOException | RuntimeException e) {
+            // the stream is not returned, so nobody else can close the file
+            try {
+                tokenizer.close();
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            if(e instanceof IOException)
+                throw new UncheckedIOException((IOException) e);
+            throw (RuntimeException) e;
+        }
 
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose( () -> {
+                    try {
+                        iterator.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
 
     /**
-     * Save a CSV data in memory to file
+     * Execute a action for each row of the file, reading one row at time without load them to memory.
+     *
+     * @param action
      */
-    public void storeData(){
+    public void forEachRow(Consumer<CSVRow> action) {
+        try ( Stream<CSVRow> rows = stream() ) {
+            rows.forEach(action);
+        }
+    }
 
-        if( rows == null || columns == null)
-            throw new IllegalArgumentException("DataSet not initialized properly. Call addHeaders and addRow before");
+    /**
+     * Load to memory all records read by the tokenizer
+     * @param tokenizer
+     * @param projection columns that are loaded, null to load all columns
+     * @param filter rows that are loaded, null to load all rows
+     * @throws IOException
+     */
+    private void loadData(CSVTokenizer tokenizer, CSVProjection projection, CSVRowFilter filter) throws IOException {
 
+        initializeRowAndColumns();
 
-        try( FileWriter csvWriter = new FileWriter( new File(fileName), append ) ) {
+        if(! containsColumnsHeaders)
+            bindLoadConditions(tokenizer, null, projection, filter);
 
-            if(containsColumnsHeaders) {
-                // the first element is the crossHeader that is just a label and is disregarded
-                if(containsRowsHeaders)
-                    columnsHeader.getValues().add(0, crossHeader);
+        boolean firstLine = true;
 
-                csvWriter.append(String.join(separator, columnsHeader.getValues()));
-                csvWriter.append("\n");
-            }
+        List<String> rowsHeaders = new ArrayList<>();
 
-            // store data to a CSV file.
-            int rowCount = 0;
-            for(CSVRecord record : rows ){
+        // rows are added to data set in batches
+        List<List<String>> batch = new ArrayList<>();
 
-                if(containsRowsHeaders)
-                    csvWriter.append( rowsHeader.getValues().get(rowCount)+separator );
+        // the tokenizer already split the values outside double quotes and remove the quotes
+        while ( tokenizer.nextRecord() ) {
 
-                int size = record.getValues().size();
-                for (int i = 0 ; i < record.getValues().size() ; i++ ){
-                    String value = record.getValues().get(i);
-                    writerValuereplacingSeparator(csvWriter, size, i, value);
+            if(firstLine && containsColumnsHeaders){ // fist line is column header
+
+                List<String> columnsHeaders = new ArrayList<>();
+
+                for (int index = 0 ; index < tokenizer.getFieldCount() ; index++) {
+
+                    if(index == 0 && containsRowsHeaders ) {
+                        crossHeader = tokenizer.getField(index);
+                    }else{
+                        columnsHeaders.add(tokenizer.getField(index));
+                    }
                 }
-                csvWriter.append("\n");
 
-                rowCount++;
-            }
+                bindLoadConditions(tokenizer, columnsHeaders, projection, filter);
 
+                // the next records just contains the values of the selected columns
+                if(projection != null)
+                    columnsHeaders = projection.selectHeaders(columnsHeaders);
+
+                setColumnsHeaders(columnsHeaders);
+
+                firstLine = false;
+
+            }else{
+
+                firstLine = false;
+
+                if(filter != null && ! filter.accept(tokenizer))
+                    continue;
+
+                List<String> row = projection == null ? tokenizer.getFields() : projection.selectValues(tokenizer);
+
+                if(containsRowsHeaders )
+                    rowsHeaders.add(row.get(0));
+
+                batch.add( row );
+
+                if(batch.size() == LOAD_BATCH_SIZE) {
+                    addRows(batch);
+                    batch.clear();
+                    if(storageMode == CSVStorageMode.OFF_HEAP)
+                        moveColumnsOffHeap();
+                }
+            }
 
-        } catch (IOException e) {
-            e.printStackTrace();
         }
-    }
 
-    // if some data has contains separator character, skip this put the value between double quotes "12,00"
-    private void writerValuereplacingSeparator(FileWriter csvWriter, int size, int i, String value) throws IOException {
-        if(value.contains(separator))
-            csvWriter.append( "\""+value+"\""+  ( i < size-1 ? separator : "" ) );
-        else
-            csvWriter.append( value+( i < size-1 ? separator : "" ) );
-    }
+        if(batch.size() > 0)
+            addRows(batch);
 
+        if(containsRowsHeaders)
+            setRowsHeaders(rowsHeaders);
 
-    //////////////////////// Clear the memory data  /////////////////////////////
+        if(storageMode == CSVStorageMode.TYPED)
+            compactColumns();
+        if(storageMode == CSVStorageMode.OFF_HEAP)
+            moveColumnsOffHeap();
+
+        // the rows loaded are already in the file
+        storedRowCount = rowCount;
+    }
 
     /**
-     * Clear all CSV data
+     * Move the values of the columns out of the heap. After the first batch of rows, the values are already
+     * added out of the heap, so the heap never keeps all values of the file.
      */
-    public void clearData() {
-        this.columnsHeader = null;
-        this.rows = null;
-        this.columns = null;
+    private void moveColumnsOffHeap() {
+        for (CSVRecord column : columns) {
+            column.moveValuesOffHeap();
+        }
     }
 
     /**
-     * Delete the csv file
+     * Store the values of a column as the storage mode of the data set. Used to the columns loaded and to the columns
+     * added by the API, so both are stored in the same way.
      */
-    public void deleteFile() {
-        try {
-            File f= new File(fileName);           //file to be delete
-            if(f.delete()){                      //returns Boolean value
-                System.out.println(f.getName() + " deleted");   //getting and printing the file name
-            } else {
-                System.out.println("failed");
-            }
-        } catch(Exception e) { e.printStackTrace(); }
+    private void applyStorageMode(CSVRecord column) {
+        if(storageMode == CSVStorageMode.TYPED)
+            column.compactValues();
+        if(storageMode == CSVStorageMode.OFF_HEAP)
+            column.moveValuesOffHeap();
     }
 
-
-    //////////////////////// Create or Delete Data  /////////////////////////////
-
-
     /**
-     * Set CSV headers values
-     * @param headers
+     * Store the values of each column in primitive arrays, when all values of the column have the same type
      */
-    private void setColumnsHeaders(List<String> headers) {
-        columnsHeader = new CSVRecord(CSVRecord.CSVRecordType.COLUMN, 0, new ArrayList<>( headers) );
+    private void compactColumns() {
+        for (CSVRecord column : columns) {
+            column.compactValues();
+        }
     }
 
-    private void setRowsHeaders(List<String> headers) {
-        rowsHeader = new CSVRecord(CSVRecord.CSVRecordType.ROW, 0, new ArrayList<>( headers) );
-    }
 
     /**
-     * Add a new row in the end of CSV
-     *
-     * <p>
-     * 1,2,3,4,5<br/>
-     * 6,7,8,9,0<br/>
-     * 1,2,3,4,5<br/>
-     * </p>
-     *
-     * <p>
-     * addRow({1,2,3,4,5}])
-     * </p>
-     *
-     * <p>returns:</p>
-     *
-     * <p>
-     * 1,2,3,4,5<br/>
-     * 6,7,8,9,0<br/>
-     * 1,2,3,4,5<br/>
-     * 1,2,3,4,5<br/>
-     * </p>
+     * Find the fields used by the projection and filter, and tell to tokenizer to skip the other fields
      *
-     * @param rowValues
+     * @param columnsHeaders header labels of the file, null if the file has no columns headers.
      */
-    public void addRow(List<String> rowValues) {
+    private void bindLoadConditions(CSVTokenizer tokenizer, List<String> columnsHeaders, CSVProjection projection, CSVRowFilter filter) {
 
-        if(rowValues == null || rowValues.size() == 0 ){
-            throw new IllegalArgumentException("Row does not have values");
-        }
-
-        initializeData();
-
-        boolean isFirstRow = rows.size() == 0 && ! columnsHeader.containsValues();
+        if(filter != null)
+            filter.bind(columnsHeaders, containsRowsHeaders);
 
-        // element [0][0] is eliminated
-        if(isFirstRow && containsRowsHeaders && containsColumnsHeaders) {
-            crossHeader = rowValues.get(0);
-            rowValues = rowValues.subList(1, rowValues.size());
-            setColumnsHeaders(rowValues);
+        if(projection == null)
             return;
-        }
 
-        List<String> rowsRealValues = new ArrayList<>();
-
-        // the fist values of rows is a row headers, the other values are the row values
-        if(containsRowsHeaders) {
-            rowsHeader.addValue(rowValues.get(0));
-            rowsRealValues = rowValues.subList(1, rowValues.size());
-        }else{
-            rowsRealValues = rowValues;
-        }
+        projection.bind(columnsHeaders);
 
-        if(isFirstRow && containsColumnsHeaders){
-            setColumnsHeaders(rowValues); // all values are column heards
-        }else{
-            // all values are rows values
-            rows.add( new CSVRecord(CSVRecord.CSVRecordType.ROW, rows.size(), new ArrayList<String>( rowsRealValues) ) );
+        boolean[] selectedFields = projection.getSelectedFields();
 
-            // for all columns , add a row value
-            int columnPosition = 0;
-            for (String columnValue : rowsRealValues) {
-                if( ! containsColumn(columnPosition) )
-                    columns.add(new CSVRecord(CSVRecord.CSVRecordType.COLUMN, columnPosition));
-                columns.get(columnPosition).addValue(columnValue);
-                columnPosition++;
+        // the fields used by the filter need to be read, even if the column is not loaded
+        if(filter != null) {
+            Set<Integer> filterFields = new HashSet<>();
+            filter.collectFields(filterFields);
+            selectedFields = Arrays.copyOf(selectedFields, Math.max(selectedFields.length, Collections.max(filterFields) + 1));
+            for (Integer field : filterFields) {
+                selectedFields[field] = true;
             }
-
-            validatedRowSize(rowsRealValues);
         }
+
+        tokenizer.setSelectedFields(selectedFields);
     }
 
 
+    //////////////////////// Store to a file /////////////////////////////
+
+
+
     /**
-     * Add a new row in specific
-     *
-     * <p>
-     * 1,2,3,4,5<br/>
-     * 6,7,8,9,0<br/>
-     * 1,2,3,4,5<br/>
-     * </p>
-     *
-     * <p>
-     * addRow({1,2,3,4,5}], 1)
-     * </p>
+     * <p>Save a CSV data in memory to file.</p>
      *
-     * <p>returns:</p>
+     * <p>The values are encoded in UTF-8 in a buffer that is written to the file when full. A value is written between
+     * double quotes if it contains the separator or a line break, or if it starts with double quotes.</p>
      *
-     * <p>
-     * 1,2,3,4,5<br/>
-     * 1,2,3,4,5<br/>
-     * 6,7,8,9,0<br/>
-     * 1,2,3,4,5<br/>
-     * </p>
-     *
-     * @param rowValues
-     * @param position
+     * <p>In append mode, just the rows added after the last rows loaded from the file or stored in it are written,
+     * and the headers are written just if the file is new or empty. Rows inserted before the rows already in the
+     * file or changes of them are not written.</p>
      */
-    public void addRow(List<String> rowValues, int position) {
+    public void storeData(){
 
-        if(rowValues == null || rowValues.size() == 0 ){
-            throw new IllegalArgumentException("Row does not have values");
-        }
+        if( columns == null)
+            throw new IllegalArgumentException("DataSet not initialized properly. Call addHeaders and addRow before");
 
-        initializeData();
+        try( FileChannel channel = openFileChannel();
+             CSVEncoder encoder = new CSVEncoder(channel, separator.charAt(0)) ) {
 
-        for (int index = position; index < rows.size() ; index++){
-            CSVRecord record = rows.get(index);
-            record.incrementPosition();
-        }
+            long fileSize = channel.size();
 
-        List<String> rowsRealValues = new ArrayList<>();
+            if(containsColumnsHeaders && ( ! append || fileSize == 0 ))
+                encodeHeaders(encoder);
 
-        // the first element is the header
-        if(containsRowsHeaders){
-            rowsHeader.addValue(rowValues.get(0), position);
-            rowsRealValues = rowValues.subList(1, rowValues.size());
-        }else{
-            rowsRealValues = rowValues;
-        }
+            encodeRows(encoder, firstRowToStore(fileSize), rowCount);
 
-        // in row "position" of CSV file I have all this values
-        rows.add(position, new CSVRecord(CSVRecord.CSVRecordType.ROW, position, new ArrayList<String>( rowsRealValues ) ) );
+            encoder.flush();
+            storedRowCount = rowCount;
 
-        // add each value for all columns in the "position"
-        int columnNumber = 0;
-        for (String colunmValue : rowsRealValues) {
-            if( ! containsColumn(columnNumber) )
-                columns.add(new CSVRecord(CSVRecord.CSVRecordType.COLUMN, columnNumber));
-            columns.get(columnNumber).addValue(colunmValue, position);
-            columnNumber++;
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-
-        validatedRowSize(rowsRealValues);
-
     }
 
     /**
-     * remove a specific row of CSV
-     *
-     * <p>
-     * 1,2,3,4,5<br/>
-     * 6,7,8,9,0<br/>
-     * 1,2,3,4,5<br/>
-     * </p>
-     *
-     * <p>
-     * removeRow(1)
-     * </p>
+     * <p>Save a CSV data in memory to file, encoding parts of the rows in parallel, using the common ForkJoinPool.</p>
      *
-     * <p>returns:</p>
+     * <p>The file is the same saved by {@link #storeData()}.</p>
+     */
+    public void storeDataParallel(){
+        storeDataParallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * <p>Save a CSV data in memory to file, encoding parts of the rows in parallel.</p>
      *
-     * <p>
-     * 1,2,3,4,5<br/>
-     * 1,2,3,4,5<br/>
-     * </p>
+     * <p>Each task of the pool encodes a range of STORE_BATCH_SIZE rows in memory. The ranges are written in order,
+     * each one at the position of the file where the last one ended, while the next ranges are encoded. Just some
+     * ranges per thread of the pool are kept in memory at the same time. The file is the same saved by {@link #storeData()}.</p>
      *
-     * @param position
+     * @param pool
      */
-    public void removeRow(int position) {
+    public void storeDataParallel(ForkJoinPool pool){
 
-        if(rows == null || rows.size() < position){
-            throw new IllegalArgumentException("There is no row at position: "+position);
-        }
+        if( columns == null)
+            throw new IllegalArgumentException("DataSet not initialized properly. Call addHeaders and addRow before");
 
-        for (int index = position+1; index < rows.size() ; index++){
-            CSVRecord record = rows.get(index);
-            record.decrementPosition();
-        }
+        char separatorChar = separator.charAt(0);
 
-        // remove a entire row at "position" of CSV
-        rows.remove(position);
+        try( FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE) ) {
 
-        // and for each column, remove one value in the "position"
-        int indexColumn = 0;
-        for (CSVRecord column : columns) {
-            columns.get(indexColumn).getValues().remove(position);
-            indexColumn++;
-        }
+            long position = 0;
+            if(append)
+                position = channel.size();
+            else
+                channel.truncate(0);
 
-        if(containsRowsHeaders)
-            rowsHeader.getValues().remove(position);
+            int nextRow = firstRowToStore(position);
 
-    }
+            if(containsColumnsHeaders && position == 0) {
+                CSVEncoder encoder = new CSVEncoder(separatorChar, 1024);
+                encodeHeaders(encoder);
+                position = writeAt(channel, encoder.toByteBuffer(), position);
+            }
 
+            // ranges being encoded, in the order they are written
+            Deque<Future<CSVEncoder>> ranges = new ArrayDeque<>();
+            int maxRanges = pool.getParallelism() * 2;
+
+            while (nextRow < rowCount || ! ranges.isEmpty()) {
+
+                while (nextRow < rowCount && ranges.size() < maxRanges) {
+                    int fromRow = nextRow;
+                    int toRow = Math.min(rowCount, fromRow + STORE_BATCH_SIZE);
+                    ranges.add( pool.submit( () -> {
+                        CSVEncoder encoder = new CSVEncoder(separatorChar, CSVEncoder.BUFFER_SIZE);
+                        encodeRows(encoder, fromRow, toRow);
+                        return encoder;
+                    }));
+                    nextRow = toRow;
+                }
+
+                position = writeAt(channel, ranges.poll().get().toByteBuffer(), position);
+            }
+
+            storedRowCount = rowCount;
+
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            e.printStackTrace();
+        }
+    }
 
     /**
-     * Add a new column in the end of CSV
-     *
-     * <p>
-     * 1,2,3,4,5<br/>
-     * 6,7,8,9,0<br/>
-     * 1,2,3,4,5<br/>
-     * </p>
-     *
-     * <p>
-     * addColumn({1,2,3})
-     * </p>
-     *
-     * <p>returns:</p>
-     *
-     * <p>
-     * 1,2,3,4,5,1<br/>
-     * 6,7,8,9,0,2<br/>
-     * 1,2,3,4,5,3<br/>
-     * </p>
-     *
-     * @param columnValues
+     * In append mode, the rows already in the file are not stored again. A missing or empty file receives all rows.
      */
-    public void addColumn(List<String> columnValues) {
+    private int firstRowToStore(long fileSize) {
+        return append && fileSize > 0 ? Math.min(storedRowCount, rowCount) : 0;
+    }
 
-        if(columnValues == null || columnValues.size() == 0 ){
-            throw new IllegalArgumentException("Column does not have values");
+    /**
+     * Write all bytes at the position of the file, return the position after them
+     */
+    private long writeAt(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+        while (bytes.hasRemaining()) {
+            position += channel.write(bytes, position);
         }
+        return position;
+    }
 
-        initializeData();
+    private FileChannel openFileChannel() throws IOException {
+        if(append)
+            return FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        else
+            return FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
 
-        boolean isFirstColumn = columns.size() == 0 && ! rowsHeader.containsValues();
+    private void encodeHeaders(CSVEncoder encoder) throws IOException {
+        // the first element is the crossHeader that is just a label and is disregarded
+        if(containsRowsHeaders)
+            encoder.writeValue(crossHeader);
 
-        // element [0][0] is eliminated
-        if(isFirstColumn && containsRowsHeaders && containsColumnsHeaders) {
-            crossHeader = columnValues.get(0);
-            columnValues = columnValues.subList(1, columnValues.size());
-            setRowsHeaders(columnValues);
-            return;
-        }
+        encoder.writeValues(columnsHeader.getValues());
+        encoder.endRecord();
+    }
 
-        List<String> columnsRealValues = new ArrayList<>();
+    /**
+     * Encode the rows from "fromRow" (inclusive) to "toRow" (exclusive), reading the values directly from the columns
+     */
+    private void encodeRows(CSVEncoder encoder, int fromRow, int toRow) throws IOException {
 
-        // the fist values of column is a column headers, the other values are the row values
-        if(containsColumnsHeaders) {
-            columnsHeader.addValue(columnValues.get(0));
-            columnsRealValues = columnValues.subList(1, columnValues.size());
-        }else{
-            columnsRealValues = columnValues;
+        List<List<String>> columnsValues = new ArrayList<>(columns.size());
+        for (CSVRecord column : columns) {
+            columnsValues.add(column.getValues());
         }
 
-        if(isFirstColumn && containsRowsHeaders){
-            setRowsHeaders(columnValues); // all values are column heards
-        }else{
-            // all values are rows values
-            columns.add( new CSVRecord(CSVRecord.CSVRecordType.COLUMN, columns.size(), new ArrayList<String>( columnsRealValues) ) );
+        for(int rowPosition = fromRow; rowPosition < toRow; rowPosition++ ){
 
-            // for all columns , add a row value
-            int rowNumber = 0;
-            for (String colunmValue : columnsRealValues) {
-                if( ! containsRow(rowNumber) )
-                    rows.add(new CSVRecord(CSVRecord.CSVRecordType.ROW, rowNumber));
-                rows.get(rowNumber).addValue(colunmValue);
-                rowNumber++;
-            }
+            if(containsRowsHeaders)
+                encoder.writeValue( rowsHeader.getValues().get(rowPosition) );
 
-            validatedColumnSize(columnsRealValues);
+            for (List<String> columnValues : columnsValues) {
+                encoder.writeValue( columnValues.get(rowPosition) );
+            }
+            encoder.endRecord();
         }
     }
 
 
+    //////////////////////// Snapshot of the data /////////////////////////////
 
+    /**
+     * Name of the binary snapshot of the CSV file: the name of the file followed by ".snapshot"
+     * @return
+     */
+    public String getSnapshotFileName() {
+        return fileName + CSVSnapshot.EXTENSION;
+    }
 
     /**
-     * Add a new column in specific position
-     *
-     * <p>
-     * 1,2,3,4,5<br/>
-     * 6,7,8,9,0<br/>
-     * 1,2,3,4,5<br/>
-     * </p>
-     *
-     * <p>
-     * addColumn({1,2,3}, 2)
-     * </p>
-     *
-     * <p>returns:</p>
-     *
-     * <p>
-     * 1,2,1,3,4,5<br/>
-     * 6,7,2,8,9,0<br/>
-     * 1,2,3,3,4,5<br/>
-     * </p>
+     * <p>Save the data in memory to a binary snapshot, stored by columns, that is loaded without parse the text.</p>
      *
-     * @param columnValues
-     * @param position
+     * <p>The snapshot keeps the headers, the separator and headers settings and the values of the columns. Numeric
+     * columns are stored as numbers, the others as UTF-8 text. Indexes are not stored.</p>
      */
-    public void addColumn(List<String> columnValues, int position) {
-
-        if(columnValues == null || columnValues.size() == 0 ){
-            throw new IllegalArgumentException("Column does not have values");
+    public void storeSnapshot(){
+        try {
+            storeSnapshot(CSVSnapshot.sourceOf(Paths.get(fileName)));
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+    }
 
-        initializeData();
-
-        for (int index = position; index < columns.size() ; index++){
-            CSVRecord record = columns.get(index);
-            record.incrementPosition();
-        }
+    /**
+     * @param source size and time of last modification of the CSV file when the data was read
+     */
+    private void storeSnapshot(long[] source){
 
-        List<String> columnsRealValues = new ArrayList<>();
+        if( columns == null)
+            throw new IllegalArgumentException("DataSet not initialized properly. Call addHeaders and addRow before");
 
-        // the first element is the header
-        if(containsColumnsHeaders){
-            columnsHeader.addValue(columnValues.get(0), position);
-            columnsRealValues = columnValues.subList(1, columnValues.size());
-        }else{
-            columnsRealValues = columnValues;
+        List<List<String>> columnsValues = new ArrayList<>(columns.size());
+        for (CSVRecord column : columns) {
+            columnsValues.add(column.getValues());
         }
 
+        List<String> columnsHeaders = columnsHeader != null ? columnsHeader.getValues() : Collections.emptyList();
+        List<String> rowsHeaders = containsRowsHeaders && rowsHeader != null ? rowsHeader.getValues() : Collections.emptyList();
 
-        // in column "position" of CSV file I have all this values
-        columns.add(position, new CSVRecord(CSVRecord.CSVRecordType.COLUMN, position, new ArrayList(columnsRealValues) ) );
+        CSVSnapshot snapshot = new CSVSnapshot(separator, containsColumnsHeaders, containsRowsHeaders, source, crossHeader,
+                columnsHeaders, rowsHeaders, rowCount, columnsValues);
 
-        // add each value for all row in the "position"
-        int rowNumber = 0;
-        for (String colunmValue : columnsRealValues) {
-            if( ! containsRow(rowNumber) )
-                rows.add(new CSVRecord(CSVRecord.CSVRecordType.ROW, rowNumber));
-            rows.get(rowNumber).addValue(colunmValue, position);
-            rowNumber++;
+        try {
+            snapshot.store(Paths.get(getSnapshotFileName()));
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+    }
 
-        validatedColumnSize(columnsRealValues);
+    /**
+     * <p>Replace the data in memory by the data of the binary snapshot, saved before by {@link #storeSnapshot()}.</p>
+     *
+     * <p>The file is mapped in memory and the values are read from it just when used, so the load takes almost
+     * no time. The columns are kept like in the storage mode OFF_HEAP: the data set needs to be closed to release
+     * the mapped memory. Changes of the data are not written to the snapshot.</p>
+     */
+    public void loadSnapshot() {
+
+        clearData();
 
+        try {
+            CSVSnapshot snapshot = CSVSnapshot.load(Paths.get(getSnapshotFileName()));
+            if(snapshot == null || ! applySnapshot(snapshot))
+                throw new IllegalArgumentException("Invalid snapshot file to this data set: "+getSnapshotFileName());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
-     * <p>remove a specific column of CSV</p>
-     *
-     * <p>
-     * 1,2,3,4,5<br/>
-     * 6,7,8,9,0<br/>
-     * 1,2,3,4,5<br/>
-     * </p>
-     *
-     * <p>
-     * removeColumn(4)
-     * </p>
-     *
-     * <p>returns:</p>
-     *
-     * <p>
-     * 1,2,3,4<br/>
-     * 6,7,8,9<br/>
-     * 1,2,3,4<br/>
-     * </p>
+     * <p>Replace the data in memory by the data of the CSV file, loaded from the binary snapshot of the file if the
+     * file was not changed after the snapshot was saved ( see {@link #loadSnapshot()} ).</p>
      *
-     * @param position
+     * <p>The snapshot keeps the size and the time of last modification of the CSV file when its data was read. If they
+     * are not the same of the file now, or the snapshot was saved with other settings, the CSV file is loaded and a
+     * new snapshot is saved.</p>
      */
-    public void removeColumn(int position) {
+    public void loadDataWithSnapshot() {
 
-        if(columns == null || columns.size() < position){
-            throw new IllegalArgumentException("There is no column at position: "+position);
+        clearData();
+
+        long[] source = null;
+
+        try {
+            Path snapshotFile = Paths.get(getSnapshotFileName());
+
+            // read before the data, so a change of the file while it is loaded makes the snapshot outdated
+            source = CSVSnapshot.sourceOf(Paths.get(fileName));
+
+            if(Files.exists(snapshotFile)) {
+                CSVSnapshot snapshot = CSVSnapshot.load(snapshotFile);
+                // without the CSV file, the snapshot is the only data
+                if(snapshot != null && ( source[0] < 0 || snapshot.isSnapshotOf(source) )) {
+                    if(applySnapshot(snapshot))
+                        return;
+                } else if(snapshot != null) {
+                    snapshot.close();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
 
-        for (int index = position+1; index < columns.size() ; index++){
-            CSVRecord record = columns.get(index);
-            record.decrementPosition();
+        clearData();
+        loadData();
+        if(columns != null) {
+            if(source != null)
+                storeSnapshot(source);
+            else
+                storeSnapshot();
         }
+    }
 
-        // remove entire column at "position" of CSV
-        columns.remove(position);
+    /**
+     * Use the headers and columns of the snapshot as the data of the data set, if it has the same settings.
+     * Otherwise, the columns of the snapshot are closed.
+     */
+    private boolean applySnapshot(CSVSnapshot snapshot) {
 
-        // and for  each row, remove a specific value at "position"
-        int indexRow = 0;
-        for (CSVRecord row : rows) {
-            rows.get(indexRow).getValues().remove(position);
-            indexRow++;
+        if( ! snapshot.separator.equals(separator) || snapshot.containsColumnsHeaders != containsColumnsHeaders
+                || snapshot.containsRowsHeaders != containsRowsHeaders ) {
+            snapshot.close();
+            return false;
         }
 
-        if(containsColumnsHeaders)
-            columnsHeader.getValues().remove(position);
+        initializeRowAndColumns();
+
+        crossHeader = snapshot.crossHeader;
+        setColumnsHeaders(snapshot.columnsHeaders);
+        setRowsHeaders(snapshot.rowsHeaders);
+
+        for (int columnPosition = 0; columnPosition < snapshot.columns.size(); columnPosition++) {
+            columns.add(new CSVRecord(CSVRecord.CSVRecordType.COLUMN, columnPosition, snapshot.columns.get(columnPosition)));
+        }
+        rowCount = snapshot.rowCount;
+        storedRowCount = rowCount;
+        return true;
     }
 
+
+    //////////////////////// Clear the memory data  /////////////////////////////
+
     /**
-     * Remove a column by label
-     * @param columnLabel
+     * <p>Release the memory of the data set. To the storage mode OFF_HEAP, the memory out of the heap is released
+     * at this moment, without wait the garbage collector.</p>
+     *
+     * <p>The data is cleared, lists of values returned before by the data set must not be used after it.</p>
      */
-    public void removeColumn(String columnLabel) {
-        removeColumn(getColumnPositionByHeaderLabel(columnLabel));
+    @Override
+    public void close() {
+        clearData();
     }
 
-    public List<String> getRowHeadersValues( )                { return rowsHeader.getValues();                         }
-    public List<String> getRowHeadersUniqueValues( )          { return getUniqueValues(rowsHeader.getValues() );       }
-    public List<String> getColumnHeadersValues( )             { return columnsHeader.getValues();                      }
-    public List<String> getColumnHeadersUniqueValues( )       { return getUniqueValues(columnsHeader.getValues() );    }
-
-    public int getRowCount(){ return rows != null ? rows.size() : 0 ; }
+    /**
+     * Clear all CSV data
+     */
+    public void clearData() {
+        if(columns != null) {
+            for (CSVRecord column : columns)
+                column.close();
+        }
+        this.columnsHeader = null;
+        this.rowCount = 0;
+        this.storedRowCount = 0;
+        this.columns = null;
+    }
+
+    /**
+     * Delete the csv file
+     */
+    public void deleteFile() {
+        try {
+            File f= new File(fileName);           //file to be delete
+            if(f.delete()){                      //returns Boolean value
+                System.out.println(f.getName() + " deleted");   //getting and printing the file name
+            } else {
+                System.out.println("failed");
+            }
+        } catch(Exception e) { e.printStackTrace(); }
+    }
+
+
+    //////////////////////// Create or Delete Data  /////////////////////////////
+
+
+    /**
+     * Set CSV headers values. The headers are indexed, so a label is found without look all labels.
+     * @param headers
+     */
+    private void setColumnsHeaders(List<String> headers) {
+        columnsHeader = new CSVRecord(CSVRecord.CSVRecordType.COLUMN, 0, new ArrayList<>( headers) );
+        columnsHeader.createIndex();
+    }
+
+    private void setRowsHeaders(List<String> headers) {
+        rowsHeader = new CSVRecord(CSVRecord.CSVRecordType.ROW, 0, new ArrayList<>( headers) );
+        rowsHeader.createIndex();
+    }
+
+    /**
+     * Add a new row in the end of CSV
+     *
+     * <p>
+     * 1,2,3,4,5<br/>
+     * 6,7,8,9,0<br/>
+     * 1,2,3,4,5<br/>
+     * </p>
+     *
+     * <p>
+     * addRow({1,2,3,4,5}])
+     * </p>
+     *
+     * <p>returns:</p>
+     *
+     * <p>
+     * 1,2,3,4,5<br/>
+     * 6,7,8,9,0<br/>
+     * 1,2,3,4,5<br/>
+     * 1,2,3,4,5<br/>
+     * </p>
+     *
+     * @param rowValues
+     */
+    public void addRow(List<String> rowValues) {
+
+        if(rowValues == null || rowValues.size() == 0 ){
+            throw new IllegalArgumentException("Row does not have values");
+        }
+
+        initializeData();
+
+        boolean isFirstRow = rowCount == 0 && ! columnsHeader.containsValues();
+
+        // element [0][0] is eliminated
+        if(isFirstRow && containsRowsHeaders && containsColumnsHeaders) {
+            crossHeader = rowValues.get(0);
+            rowValues = rowValues.subList(1, rowValues.size());
+            setColumnsHeaders(rowValues);
+            return;
+        }
+
+        List<String> rowsRealValues = new ArrayList<>();
+
+        // the fist values of rows is a row headers, the other values are the row values
+        if(containsRowsHeaders) {
+            rowsRealValues = rowValues.subList(1, rowValues.size());
+        }else{
+            rowsRealValues = rowValues;
+        }
+
+        if(isFirstRow && containsColumnsHeaders){
+            if(containsRowsHeaders)
+                rowsHeader.addValue(rowValues.get(0));
+            setColumnsHeaders(rowValues); // all values are column heards
+        }else{
+            // check the row before change the data set, so a invalid row does not let the columns with different sizes
+            validatedRowValues(rowsRealValues);
+
+            if(containsRowsHeaders)
+                rowsHeader.addValue(rowValues.get(0));
+
+            // all values are rows values
+            rowCount++;
+
+            // for all columns , add a row value
+            int columnPosition = 0;
+            for (String columnValue : rowsRealValues) {
+                boolean newColumn = ! containsColumn(columnPosition);
+                if( newColumn )
+                    columns.add(new CSVRecord(CSVRecord.CSVRecordType.COLUMN, columnPosition));
+                columns.get(columnPosition).addValue(columnValue);
+                if( newColumn )
+                    applyStorageMode(columns.get(columnPosition));
+                columnPosition++;
+            }
+        }
+    }
+
+
+    /**
+     * <p>Add a set of new rows in the end of CSV.</p>
+     *
+     * <p>Same of call addRow for each row, but the size of the rows is validated once before change the data set and
+     * the storage of each column grows just one time for all rows.</p>
+     *
+     * <p>
+     * addRows({ {1,2,3,4,5}, {6,7,8,9,0} })
+     * </p>
+     *
+     * @param rowsValues
+     */
+    public void addRows(List<List<String>> rowsValues) {
+
+        if(rowsValues == null || rowsValues.size() == 0 ){
+            throw new IllegalArgumentException("Rows does not have values");
+        }
+
+        initializeData();
+
+        int firstRow = 0;
+
+        // the first row of an empty data set with column headers are the headers
+        if(rowCount == 0 && ! columnsHeader.containsValues() && containsColumnsHeaders){
+            addRow(rowsValues.get(0));
+            firstRow = 1;
+        }
+
+        if(firstRow == rowsValues.size())
+            return;
+
+        int headerSize = containsRowsHeaders ? 1 : 0;
+
+        int rowSize;
+        if(columns.size() > 0)
+            rowSize = columns.size();
+        else if(containsColumnsHeaders)
+            rowSize = columnsHeader.getValues().size();
+        else
+            rowSize = rowsValues.get(firstRow) == null ? 0 : rowsValues.get(firstRow).size() - headerSize;
+
+        // validate all rows before change something
+        for (int index = firstRow; index < rowsValues.size() ; index++){
+            List<String> rowValues = rowsValues.get(index);
+            if(rowValues == null || rowValues.size() == 0 )
+                throw new IllegalArgumentException("Row does not have values");
+            if(rowValues.size() - headerSize != rowSize)
+                throw new IllegalArgumentException("Invalid number of row elements: "+(rowValues.size() - headerSize)+". Rows should have: "  + rowSize+" elements. ");
+            validatedColumnsValues(rowValues.subList(headerSize, rowValues.size()));
+        }
+
+        int newRowCount = rowCount + rowsValues.size() - firstRow;
+        int existingColumns = columns.size();
+
+        for (int columnPosition = 0; columnPosition < rowSize ; columnPosition++){
+            if( ! containsColumn(columnPosition) )
+                columns.add(new CSVRecord(CSVRecord.CSVRecordType.COLUMN, columnPosition));
+            columns.get(columnPosition).ensureCapacity(newRowCount);
+        }
+
+        if(containsRowsHeaders)
+            rowsHeader.ensureCapacity(newRowCount);
+
+        for (int index = firstRow; index < rowsValues.size() ; index++){
+
+            List<String> rowsRealValues = rowsValues.get(index);
+
+            if(containsRowsHeaders) {
+                rowsHeader.addValue(rowsRealValues.get(0));
+                rowsRealValues = rowsRealValues.subList(1, rowsRealValues.size());
+            }
+
+            rowCount++;
+
+            int columnPosition = 0;
+            for (String columnValue : rowsRealValues) {
+                columns.get(columnPosition).addValue(columnValue);
+                columnPosition++;
+            }
+        }
+
+        for (int columnPosition = existingColumns; columnPosition < rowSize ; columnPosition++){
+            applyStorageMode(columns.get(columnPosition));
+        }
+    }
+
+
+    /**
+     * Add a new row in specific
+     *
+     * <p>
+     * 1,2,3,4,5<br/>
+     * 6,7,8,9,0<br/>
+     * 1,2,3,4,5<br/>
+     * </p>
+     *
+     * <p>
+     * addRow({1,2,3,4,5}], 1)
+     * </p>
+     *
+     * <p>returns:</p>
+     *
+     * <p>
+     * 1,2,3,4,5<br/>
+     * 1,2,3,4,5<br/>
+     * 6,7,8,9,0<br/>
+     * 1,2,3,4,5<br/>
+     * </p>
+     *
+     * @param rowValues
+     * @param position
+     */
+    public void addRow(List<String> rowValues, int position) {
+
+        if(rowValues == null || rowValues.size() == 0 ){
+            throw new IllegalArgumentException("Row does not have values");
+        }
+
+        initializeData();
+
+        if(position < 0 || position > rowCount)
+            throw new IllegalArgumentException("There is not "+CSVRecord.CSVRecordType.ROW+" with position: "+position);
+
+        List<String> rowsRealValues = new ArrayList<>();
+
+        // the first element is the header
+        if(containsRowsHeaders){
+            rowsRealValues = rowValues.subList(1, rowValues.size());
+        }else{
+            rowsRealValues = rowValues;
+        }
+
+        // check the row before change the data set, so a invalid row does not let the columns with different sizes
+        validatedRowValues(rowsRealValues);
+
+        if(containsRowsHeaders)
+            rowsHeader.addValue(rowValues.get(0), position);
+
+        // in row "position" of CSV file I have all this values, the rows after it are shifted
+        rowCount++;
+        if(position < storedRowCount)
+            storedRowCount++;
+
+        // add each value for all columns in the "position"
+        int columnNumber = 0;
+        for (String colunmValue : rowsRealValues) {
+            boolean newColumn = ! containsColumn(columnNumber);
+            if( newColumn )
+                columns.add(new CSVRecord(CSVRecord.CSVRecordType.COLUMN, columnNumber));
+            columns.get(columnNumber).addValue(colunmValue, position);
+            if( newColumn )
+                applyStorageMode(columns.get(columnNumber));
+            columnNumber++;
+        }
+
+    }
+
+    /**
+     * remove a specific row of CSV
+     *
+     * <p>
+     * 1,2,3,4,5<br/>
+     * 6,7,8,9,0<br/>
+     * 1,2,3,4,5<br/>
+     * </p>
+     *
+     * <p>
+     * removeRow(1)
+     * </p>
+     *
+     * <p>returns:</p>
+     *
+     * <p>
+     * 1,2,3,4,5<br/>
+     * 1,2,3,4,5<br/>
+     * </p>
+     *
+     * @param position
+     */
+    public void removeRow(int position) {
+
+        if(columns == null || rowCount <= position){
+            throw new IllegalArgumentException("There is no row at position: "+position);
+        }
+
+        // remove a entire row at "position" of CSV
+        rowCount--;
+        if(position < storedRowCount)
+            storedRowCount--;
+
+        // and for each column, remove one value in the "position"
+        int indexColumn = 0;
+        for (CSVRecord column : columns) {
+            columns.get(indexColumn).removeValue(position);
+            indexColumn++;
+        }
+
+        if(containsRowsHeaders)
+            rowsHeader.removeValue(position);
+
+    }
+
+
+    /**
+     * Add a new column in the end of CSV
+     *
+     * <p>
+     * 1,2,3,4,5<br/>
+     * 6,7,8,9,0<br/>
+     * 1,2,3,4,5<br/>
+     * </p>
+     *
+     * <p>
+     * addColumn({1,2,3})
+     * </p>
+     *
+     * <p>returns:</p>
+     *
+     * <p>
+     * 1,2,3,4,5,1<br/>
+     * 6,7,8,9,0,2<br/>
+     * 1,2,3,4,5,3<br/>
+     * </p>
+     *
+     * @param columnValues
+     */
+    public void addColumn(List<String> columnValues) {
+
+        if(columnValues == null || columnValues.size() == 0 ){
+            throw new IllegalArgumentException("Column does not have values");
+        }
+
+        initializeData();
+
+        boolean isFirstColumn = columns.size() == 0 && ! rowsHeader.containsValues();
+
+        // element [0][0] is eliminated
+        if(isFirstColumn && containsRowsHeaders && containsColumnsHeaders) {
+            crossHeader = columnValues.get(0);
+            columnValues = columnValues.subList(1, columnValues.size());
+            setRowsHeaders(columnValues);
+            return;
+        }
+
+        List<String> columnsRealValues = new ArrayList<>();
+
+        // the fist values of column is a column headers, the other values are the row values
+        if(containsColumnsHeaders) {
+            columnsHeader.addValue(columnValues.get(0));
+            columnsRealValues = columnValues.subList(1, columnValues.size());
+        }else{
+            columnsRealValues = columnValues;
+        }
+
+        if(isFirstColumn && containsRowsHeaders){
+            setRowsHeaders(columnValues); // all values are column heards
+        }else{
+            // all values are rows values
+            CSVRecord column = new CSVRecord(CSVRecord.CSVRecordType.COLUMN, columns.size(), new ArrayList<String>( columnsRealValues) );
+            applyStorageMode(column);
+            columns.add( column );
+
+            // the rows read the values from the columns, just the rows that does not exist yet are created
+            addRowViews(columnsRealValues.size());
+
+            validatedColumnSize(columnsRealValues);
+        }
+    }
+
+
+
+
+    /**
+     * Add a new column in specific position
+     *
+     * <p>
+     * 1,2,3,4,5<br/>
+     * 6,7,8,9,0<br/>
+     * 1,2,3,4,5<br/>
+     * </p>
+     *
+     * <p>
+     * addColumn({1,2,3}, 2)
+     * </p>
+     *
+     * <p>returns:</p>
+     *
+     * <p>
+     * 1,2,1,3,4,5<br/>
+     * 6,7,2,8,9,0<br/>
+     * 1,2,3,3,4,5<br/>
+     * </p>
+     *
+     * @param columnValues
+     * @param position
+     */
+    public void addColumn(List<String> columnValues, int position) {
+
+        if(columnValues == null || columnValues.size() == 0 ){
+            throw new IllegalArgumentException("Column does not have values");
+        }
+
+        initializeData();
+
+        for (int index = position; index < columns.size() ; index++){
+            CSVRecord record = columns.get(index);
+            record.incrementPosition();
+        }
+
+        List<String> columnsRealValues = new ArrayList<>();
+
+        // the first element is the header
+        if(containsColumnsHeaders){
+            columnsHeader.addValue(columnValues.get(0), position);
+            columnsRealValues = columnValues.subList(1, columnValues.size());
+        }else{
+            columnsRealValues = columnValues;
+        }
+
+
+        // in column "position" of CSV file I have all this values
+        CSVRecord column = new CSVRecord(CSVRecord.CSVRecordType.COLUMN, position, new ArrayList<String>(columnsRealValues) );
+        applyStorageMode(column);
+        columns.add(position, column);
+
+        // the rows read the values from the columns, just the rows that does not exist yet are created
+        addRowViews(columnsRealValues.size());
+
+        validatedColumnSize(columnsRealValues);
+
+    }
+
+    /**
+     * <p>remove a specific column of CSV</p>
+     *
+     * <p>
+     * 1,2,3,4,5<br/>
+     * 6,7,8,9,0<br/>
+     * 1,2,3,4,5<br/>
+     * </p>
+     *
+     * <p>
+     * removeColumn(4)
+     * </p>
+     *
+     * <p>returns:</p>
+     *
+     * <p>
+     * 1,2,3,4<br/>
+     * 6,7,8,9<br/>
+     * 1,2,3,4<br/>
+     * </p>
+     *
+     * @param position
+     */
+    public void removeColumn(int position) {
+
+        if(columns == null || columns.size() < position){
+            throw new IllegalArgumentException("There is no column at position: "+position);
+        }
+
+        for (int index = position+1; index < columns.size() ; index++){
+            CSVRecord record = columns.get(index);
+            record.decrementPosition();
+        }
+
+        // remove entire column at "position" of CSV, the rows do not see it anymore
+        columns.remove(position).close();
+
+        if(containsColumnsHeaders)
+            columnsHeader.removeValue(position);
+    }
+
+    /**
+     * The rows are the values of the columns at each position, a longer column creates the rows that does not exist yet
+     * @param columnSize
+     */
+    private void addRowViews(int columnSize) {
+        rowCount = Math.max(rowCount, columnSize);
+    }
+
+    /**
+     * Remove a column by label
+     * @param columnLabel
+     */
+    public void removeColumn(String columnLabel) {
+        removeColumn(getColumnPositionByHeaderLabel(columnLabel));
+    }
+
+    public List<String> getRowHeadersValues( )                { return rowsHeader.getValuesView();                     }
+    public List<String> getRowHeadersUniqueValues( )          { return getUniqueValues(rowsHeader.getValues() );       }
+    public List<String> getColumnHeadersValues( )             { return columnsHeader.getValuesView();                  }
+    public List<String> getColumnHeadersUniqueValues( )       { return getUniqueValues(columnsHeader.getValues() );    }
+
+    public int getRowCount(){ return rowCount; }
     public int getColumnsCount(){ return columns != null ? columns.size() : 0 ; }
 
+    public CSVStorageMode getStorageMode(){ return storageMode; }
+
     public List<String> getRowValues(int rowPosition)                { return getRow(rowPosition).getValues(); }
     public List<String> getRowUniqueValues(int rowPosition)          { return getUniqueValues(getRowValues(rowPosition)); }
 
@@ -786,344 +1563,834 @@ public class CSVDataSet {
     public List<Integer> getRowValuesAsInteger(int rowPosition)      { return getRow(rowPosition).getValuesAsInteger(); }
     public List<Boolean> getRowValuesAsBoolean(int rowPosition)      { return getRow(rowPosition).getValuesAsBoolean(); }
 
-    public List<String> getRowValues(String rowLabel)                { return getRowByHeaderLabel(rowLabel).getValues(); }
-    public List<String> getRowUniqueValues(String rowLabel)          { return getUniqueValues( getRowValues(rowLabel)) ; }
+    public List<String> getRowValues(String rowLabel)                { return getRowByHeaderLabel(rowLabel).getValues(); }
+    public List<String> getRowUniqueValues(String rowLabel)          { return getUniqueValues( getRowValues(rowLabel)) ; }
+
+    public List<BigDecimal> getRowValuesAsBigDecimal(String rowLabel){ return getRowByHeaderLabel(rowLabel).getValuesAsBigDecimal(); }
+    public List<Double> getRowValuesAsDouble(String rowLabel)        { return getRowByHeaderLabel(rowLabel).getValuesAsDouble(); }
+    public List<Integer> getRowValuesAsInteger(String rowLabel)      { return getRowByHeaderLabel(rowLabel).getValuesAsInteger(); }
+    public List<Boolean> getRowValuesAsBoolean(String rowLabel)      { return getRowByHeaderLabel(rowLabel).getValuesAsBoolean(); }
+
+    public List<String> getColumnValues(int columnPosition)                { return getColumn(columnPosition).getValuesView(); }
+    public List<String> getColumnUniqueValues(int columnPosition)         {   return getColumn(columnPosition).getUniqueValues(); }
+
+    public List<BigDecimal> getColumnValuesAsBigDecimal(int columnPosition){ return getColumn(columnPosition).getValuesAsBigDecimal(); }
+    public List<Double> getColumnValuesAsDouble(int columnPosition)        { return getColumn(columnPosition).getValuesAsDouble(); }
+    public List<Integer> getColumnValuesAsInteger(int columnPosition)      { return getColumn(columnPosition).getValuesAsInteger(); }
+    public List<Boolean> getColumnValuesAsBoolean(int columnPosition)      { return getColumn(columnPosition).getValuesAsBoolean(); }
+    public double[] getColumnValuesAsDoubleArray(int columnPosition)       { return getColumn(columnPosition).getValuesAsDoubleArray(); }
+
+
+    public List<String> getColumnValues(String columnLabel)                { return getColumnByHeaderLabel(columnLabel).getValuesView(); }
+    public List<String> getColumnUniqueValues(String columnLabel)                { return getColumnByHeaderLabel(columnLabel).getUniqueValues(); }
+
+    public List<BigDecimal> getColumnValuesAsBigDecimal(String columnLabel){ return getColumnByHeaderLabel(columnLabel).getValuesAsBigDecimal(); }
+    public List<Double> getColumnValuesAsDouble(String columnLabel)        { return getColumnByHeaderLabel(columnLabel).getValuesAsDouble(); }
+    public List<Integer> getColumnValuesAsInteger(String columnLabel)      { return getColumnByHeaderLabel(columnLabel).getValuesAsInteger(); }
+    public List<Boolean> getColumnValuesAsBoolean(String columnLabel)      { return getColumnByHeaderLabel(columnLabel).getValuesAsBoolean(); }
+    public double[] getColumnValuesAsDoubleArray(String columnLabel)       { return getColumnByHeaderLabel(columnLabel).getValuesAsDoubleArray(); }
+
+
+    private List<String> getUniqueValues( List<String> aList) {
+        Set<String> hSet = new HashSet<String>();
+        for (String x : aList)
+            hSet.add(x);
+        return  new ArrayList<>(hSet);
+    }
+
+    /**
+     * Return the values of a row that match with values of other row
+     *
+     * Example:
+     *    dataSet.getRowValuesByMatching(0, 3, "Q4")
+     *
+     * return all row(0) values where row(3) row has the value "Q4"
+     *
+     * @param rowNumber
+     * @param referenceRowNumber
+     * @param referenceRowValue
+     * @return
+     */
+    public List<String> getRowValuesByMatching(int rowNumber, int referenceRowNumber, String referenceRowValue) {
+        CSVRecord referenceRow = getRow(referenceRowNumber);
+        int[] indexes = referenceRow.getIndexesOfValue(referenceRowValue);
+        CSVRecord record = getRow(rowNumber);
+        return record.getValues(indexes);
+    }
+
+
+    /**
+     * Return the values of a row that match with values of other row
+     *
+     * Example:
+     *    dataSet.getRowValuesByMatching("project", "Quarter", "Q4")
+     *
+     * return all row "project" values where "Quarter" row has the value "Q4"
+     *
+     * @param rowLabel
+     * @param referenceRowLabel
+     * @param referenceRowValue
+     * @return
+     */
+    public List<String> getRowValuesByMatching(String rowLabel, String referenceRowLabel, String referenceRowValue) {
+        CSVRecord referenceColumn = getRowByHeaderLabel(referenceRowLabel);
+        int[] indexes = referenceColumn.getIndexesOfValue(referenceRowValue);
+        CSVRecord record = getRowByHeaderLabel(rowLabel);
+        return record.getValues(indexes);
+    }
+
+
+    /**
+     * Return the values of a column that match with values of other column
+     *
+     * Example:
+     *    dataSet.getColumnValuesByMatching(0, 3, "Q4")
+     *
+     * return all column(0) values where column(0) column has the value "Q4"
+     *
+     * @param columnNumber
+     * @param referenceColumnNumber
+     * @param referenceColumnValue
+     * @return
+     */
+    public List<String> getColumnValuesByMatching(int columnNumber, int referenceColumnNumber, String referenceColumnValue) {
+        CSVRecord referenceColumn = getColumn(referenceColumnNumber);
+        int[] indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        CSVRecord record = getColumn(columnNumber);
+        return record.getValues(indexes);
+    }
+
+    /**
+     * Return the values of a column that match with values of other column
+     *
+     * Example:
+     *    dataSet.getColumnValuesByMatching("project", "Quarter", "Q4")
+     *
+     * return all "project" column values where "Quarter" column has the value "Q4"
+     *
+     * @param columnLabel
+     * @param referenceColumnLabel
+     * @param referenceColumnValue
+     * @return
+     */
+    public List<String> getColumnValuesByMatching(String columnLabel, String referenceColumnLabel, String referenceColumnValue) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.getValues(indexes);
+    }
+
+
+
+    ////////////////////   Algorithm over numeric data   ///////////////////////
+
+
+
+
+    //////////////////////////  operation over column  //////////////////////////////////////
+
+
+    public BigDecimal countColumnValues(int columnNumber, String matchingValue){
+        CSVRecord record = getColumn(columnNumber);
+        return record.countValues(matchingValue);
+    }
+
+    public BigDecimal countColumnValues(String columnLabel, String matchingValue) {
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.countValues(matchingValue);
+    }
+
+    public BigDecimal sumColumn(int columnNumber){
+        CSVRecord record = getColumn(columnNumber);
+        return record.sumValues();
+    }
+
+    public BigDecimal sumColumn(String columnLabel){
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.sumValues();
+    }
+
+    /**
+     * Operation sum column elements values in the position that match with values of a reference column.
+     *
+     * @param columnNumber
+     * @param referenceColumnLabel
+     * @param referenceColumnValue
+     * @return
+     */
+    public BigDecimal sumColumnByMatching(int columnNumber, String referenceColumnLabel, String referenceColumnValue) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        CSVRecord record = getColumn(columnNumber);
+        return record.sumValues(indexes);
+    }
+
+    public BigDecimal sumColumnByMatching(String columnLabel, String referenceColumnLabel, String referenceColumnValue) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.sumValues(indexes);
+    }
+
+
+
 
-    public List<BigDecimal> getRowValuesAsBigDecimal(String rowLabel){ return getRowByHeaderLabel(rowLabel).getValuesAsBigDecimal(); }
-    public List<Double> getRowValuesAsDouble(String rowLabel)        { return getRowByHeaderLabel(rowLabel).getValuesAsDouble(); }
-    public List<Integer> getRowValuesAsInteger(String rowLabel)      { return getRowByHeaderLabel(rowLabel).getValuesAsInteger(); }
-    public List<Boolean> getRowValuesAsBoolean(String rowLabel)      { return getRowByHeaderLabel(rowLabel).getValuesAsBoolean(); }
+    public BigDecimal meanColumn(int columnNumber){
+        CSVRecord record = getColumn(columnNumber);
+        return record.meanValues();
+    }
 
-    public List<String> getColumnValues(int columnPosition)                { return getColumn(columnPosition).getValues(); }
-    public List<String> getColumnUniqueValues(int columnPosition)         {   return getUniqueValues(getColumnValues(columnPosition)); }
+    public BigDecimal meanColumn(String columnLabel){
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.meanValues();
+    }
 
-    public List<BigDecimal> getColumnValuesAsBigDecimal(int columnPosition){ return getColumn(columnPosition).getValuesAsBigDecimal(); }
-    public List<Double> getColumnValuesAsDouble(int columnPosition)        { return getColumn(columnPosition).getValuesAsDouble(); }
-    public List<Integer> getColumnValuesAsInteger(int columnPosition)      { return getColumn(columnPosition).getValuesAsInteger(); }
-    public List<Boolean> getColumnValuesAsBoolean(int columnPosition)      { return getColumn(columnPosition).getValuesAsBoolean(); }
+    public BigDecimal meanColumnByMatching(int columnNumber, String referenceColumnLabel, String referenceColumnValue) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        CSVRecord record = getColumn(columnNumber);
+        return record.meanValues(indexes);
+    }
 
+    public BigDecimal meanColumnByMatching(String columnLabel, String referenceColumnLabel, String referenceColumnValue) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.meanValues(indexes);
+    }
 
-    public List<String> getColumnValues(String columnLabel)                { return getColumnByHeaderLabel(columnLabel).getValues(); }
-    public List<String> getColumnUniqueValues(String columnLabel)                { return getUniqueValues(getColumnValues(columnLabel)); }
 
-    public List<BigDecimal> getColumnValuesAsBigDecimal(String columnLabel){ return getColumnByHeaderLabel(columnLabel).getValuesAsBigDecimal(); }
-    public List<Double> getColumnValuesAsDouble(String columnLabel)        { return getColumnByHeaderLabel(columnLabel).getValuesAsDouble(); }
-    public List<Integer> getColumnValuesAsInteger(String columnLabel)      { return getColumnByHeaderLabel(columnLabel).getValuesAsInteger(); }
-    public List<Boolean> getColumnValuesAsBoolean(String columnLabel)      { return getColumnByHeaderLabel(columnLabel).getValuesAsBoolean(); }
 
 
-    private List<String> getUniqueValues( List<String> aList) {
-        Set<String> hSet = new HashSet<String>();
-        for (String x : aList)
-            hSet.add(x);
-        return  new ArrayList<>(hSet);
+    public BigDecimal medianColumn(int columnNumber){
+        CSVRecord record = getColumn(columnNumber);
+        return record.medianValues();
     }
 
+    public BigDecimal medianColumn(String columnLabel){
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.medianValues();
+    }
+
+
     /**
-     * Return the values of a row that match with values of other row
-     *
-     * Example:
-     *    dataSet.getRowValuesByMatching(0, 3, "Q4")
+     * <p>Calculate a percentile of the column values, like the p90 or p99 of a latency column.</p>
      *
-     * return all row(0) values where row(3) row has the value "Q4"
+     * <p>The values are not sorted, the position is found in linear time.
+     * Between two values, the result is interpolated with 5 decimal places.</p>
      *
-     * @param rowNumber
-     * @param referenceRowNumber
-     * @param referenceRowValue
+     * @param columnNumber
+     * @param percentile between 0 and 100
      * @return
      */
-    public List<String> getRowValuesByMatching(int rowNumber, int referenceRowNumber, String referenceRowValue) {
-        CSVRecord referenceRow = getRow(referenceRowNumber);
-        List<Integer> indexes = referenceRow.getIndexesOfValue(referenceRowValue);
-        CSVRecord record = getRow(rowNumber);
-        return record.getValues(indexes);
+    public BigDecimal percentileColumn(int columnNumber, double percentile){
+        CSVRecord record = getColumn(columnNumber);
+        return record.percentileValues(percentile);
+    }
+
+    public BigDecimal percentileColumn(String columnLabel, double percentile){
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.percentileValues(percentile);
     }
 
 
     /**
-     * Return the values of a row that match with values of other row
+     * <p>Build a sketch of the column values, it gives approximate percentiles and can be merged with
+     * sketches of other columns, files or values read by {@link #forEachRow(Consumer)}.</p>
      *
-     * Example:
-     *    dataSet.getRowValuesByMatching("project", "Quarter", "Q4")
-     *
-     * return all row "project" values where "Quarter" row has the value "Q4"
-     *
-     * @param rowLabel
-     * @param referenceRowLabel
-     * @param referenceRowValue
+     * @param columnNumber
      * @return
      */
-    public List<String> getRowValuesByMatching(String rowLabel, String referenceRowLabel, String referenceRowValue) {
-        CSVRecord referenceColumn = getRowByHeaderLabel(referenceRowLabel);
-        List<Integer> indexes = referenceColumn.getIndexesOfValue(referenceRowValue);
-        CSVRecord record = getRowByHeaderLabel(rowLabel);
-        return record.getValues(indexes);
+    public CSVQuantileSketch sketchColumn(int columnNumber){
+        CSVRecord record = getColumn(columnNumber);
+        return record.sketchValues();
     }
 
+    public CSVQuantileSketch sketchColumn(String columnLabel){
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.sketchValues();
+    }
 
     /**
-     * Return the values of a column that match with values of other column
-     *
-     * Example:
-     *    dataSet.getColumnValuesByMatching(0, 3, "Q4")
+     * Approximate percentile of the column values, the error of the rank is around 1% of the number of values
      *
-     * return all column(0) values where column(0) column has the value "Q4"
+     * @param columnNumber
+     * @param percentile between 0 and 100
+     * @return
+     */
+    public BigDecimal approxPercentileColumn(int columnNumber, double percentile){
+        return BigDecimal.valueOf(sketchColumn(columnNumber).getPercentile(percentile));
+    }
+
+    public BigDecimal approxPercentileColumn(String columnLabel, double percentile){
+        return BigDecimal.valueOf(sketchColumn(columnLabel).getPercentile(percentile));
+    }
+
+    public BigDecimal approxMedianColumn(int columnNumber){
+        return approxPercentileColumn(columnNumber, 50);
+    }
+
+    public BigDecimal approxMedianColumn(String columnLabel){
+        return approxPercentileColumn(columnLabel, 50);
+    }
+
+
+    public BigDecimal medianColumnByMatching(int columnNumber, String referenceColumnLabel, String referenceColumnValue) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        CSVRecord record = getColumn(columnNumber);
+        return record.medianValues(indexes);
+    }
+
+    public BigDecimal medianColumnByMatching(String columnLabel, String referenceColumnLabel, String referenceColumnValue) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.medianValues(indexes);
+    }
+
+
+
+
+
+    public BigDecimal varianceColumn(int columnNumber){
+        CSVRecord record = getColumn(columnNumber);
+        return record.varianceValues();
+    }
+
+
+    public BigDecimal varianceColumn(String columnLabel){
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.varianceValues();
+    }
+
+
+    public BigDecimal varianceColumnByMatching(int columnNumber, String referenceColumnLabel, String referenceColumnValue) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        CSVRecord record = getColumn(columnNumber);
+        return record.varianceValues(indexes);
+    }
+
+
+    public BigDecimal varianceColumnByMatching(String columnLabel, String referenceColumnLabel, String referenceColumnValue) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.varianceValues(indexes);
+    }
+
+
+
+
+    public BigDecimal stdDevColumn(int columnNumber){
+        CSVRecord record = getColumn(columnNumber);
+        return record.stdDevValues();
+    }
+
+
+    public BigDecimal stdDevColumn(String columnLabel){
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.stdDevValues();
+    }
+
+
+    public BigDecimal stdDevColumnByMatching(int columnNumber, String referenceColumnLabel, String referenceColumnValue) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        CSVRecord record = getColumn(columnNumber);
+        return record.stdDevValues(indexes);
+    }
+
+
+    public BigDecimal stdDevColumnByMatching(String columnLabel, String referenceColumnLabel, String referenceColumnValue) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.stdDevValues(indexes);
+    }
+
+
+
+
+    public BigDecimal minColumn(int columnNumber){
+        CSVRecord record = getColumn(columnNumber);
+        return record.minValues();
+    }
+
+
+    public BigDecimal minColumn(String columnLabel){
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.minValues();
+    }
+
+
+    public BigDecimal maxColumn(int columnNumber){
+        CSVRecord record = getColumn(columnNumber);
+        return record.maxValues();
+    }
+
+
+    public BigDecimal maxColumn(String columnLabel){
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.maxValues();
+    }
+
+
+    /**
+     * Accumulate the values of a column in a single pass. The accumulator gives the mean, variance and
+     * standard deviation, and can be merged with accumulators of other columns or data sets.
      *
      * @param columnNumber
-     * @param referenceColumnNumber
-     * @param referenceColumnValue
      * @return
      */
-    public List<String> getColumnValuesByMatching(int columnNumber, int referenceColumnNumber, String referenceColumnValue) {
-        CSVRecord referenceColumn = getColumn(referenceColumnNumber);
-        List<Integer> indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+    public CSVStatisticsAccumulator accumulateColumn(int columnNumber){
         CSVRecord record = getColumn(columnNumber);
-        return record.getValues(indexes);
+        return record.accumulateValues();
+    }
+
+
+    public CSVStatisticsAccumulator accumulateColumn(String columnLabel){
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.accumulateValues();
     }
 
+
     /**
-     * Return the values of a column that match with values of other column
+     * Accumulate the values of a column splitting them in parts accumulated in parallel
      *
-     * Example:
-     *    dataSet.getColumnValuesByMatching("project", "Quarter", "Q4")
+     * @param columnNumber
+     * @param pool
+     * @return
+     */
+    public CSVStatisticsAccumulator accumulateColumnParallel(int columnNumber, ForkJoinPool pool){
+        CSVRecord record = getColumn(columnNumber);
+        return record.accumulateValuesParallel(pool);
+    }
+
+
+    public CSVStatisticsAccumulator accumulateColumnParallel(String columnLabel, ForkJoinPool pool){
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.accumulateValuesParallel(pool);
+    }
+
+
+
+    /**
+     * Normalize the CSV column values
      *
-     * return all "project" column values where "Quarter" column has the value "Q4"
+     * @param columnPosition
+     * @param replace IF the old values of the column will be replaced by  normalized Values
+     * @return
+     */
+    public List<String> normalizeColumn(int columnPosition, boolean replace){
+        CSVRecord record = getColumn(columnPosition);
+        List<String> normalizedValues = record.normalizeValues();
+        if(replace) {
+            if(containsColumnsHeaders) // add header at first position
+                normalizedValues.add(0, columnsHeader.getValues().get(columnPosition));
+            replaceColumn(columnPosition, normalizedValues);
+        }
+        return normalizedValues;
+    }
+
+
+    /**
+     * Normalize the CSV column values
      *
      * @param columnLabel
-     * @param referenceColumnLabel
-     * @param referenceColumnValue
+     * @param replace IF the old values of the column will be replaced by  normalized Values
      * @return
      */
-    public List<String> getColumnValuesByMatching(String columnLabel, String referenceColumnLabel, String referenceColumnValue) {
-        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
-        List<Integer> indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
-        CSVRecord record = getColumnByHeaderLabel(columnLabel);
-        return record.getValues(indexes);
+    public List<String> normalizeColumn(String columnLabel, boolean replace){
+        int columnPosition = getColumnPositionByHeaderLabel(columnLabel);
+        return normalizeColumn(columnPosition, replace);
+    }
+
+
+    /**
+     * Replace a column of CSV file
+     * @param columnPosition
+     * @param values
+     */
+    public void replaceColumn(int columnPosition, List<String> values){
+        // the values can be read from the column that is removed
+        values = new ArrayList<>(values);
+        boolean indexed = getColumn(columnPosition).isIndexed();
+        boolean sortedIndexed = getColumn(columnPosition).hasSortedIndex();
+        boolean bitmapIndexed = getColumn(columnPosition).hasBitmapIndex();
+        removeColumn(columnPosition);
+        addColumn(values, columnPosition);
+        if(indexed)
+            getColumn(columnPosition).createIndex();
+        if(sortedIndexed)
+            getColumn(columnPosition).createSortedIndex();
+        if(bitmapIndexed)
+            getColumn(columnPosition).createBitmapIndex();
+    }
+
+    /**
+     * Replace a column of CSV file
+     * @param columnLabel
+     * @param values
+     */
+    public void replaceColumn(String columnLabel, List<String> values){
+        int columnPosition =  getColumnPositionByHeaderLabel(columnLabel);
+        replaceColumn(columnPosition, values);
     }
 
 
 
-    ////////////////////   Algorithm over numeric data   ///////////////////////
 
 
 
 
-    //////////////////////////  operation over column  //////////////////////////////////////
+    /**
+     * <p>Create a hash index on the column, from each value to the positions of the rows that contain it.</p>
+     *
+     * <p>The operations by matching, countColumnValues and getColumnValuesByMatching use the index
+     * to find the rows instead of look all values of the column. The index is kept updated when rows are added or removed,
+     * and it is recreated when the column is replaced. Loading or clearing the data set discards it.</p>
+     *
+     * @param columnPosition
+     */
+    public void createIndex(int columnPosition){
+        getColumn(columnPosition).createIndex();
+    }
 
+    public void createIndex(String columnLabel){
+        getColumnByHeaderLabel(columnLabel).createIndex();
+    }
 
-    public BigDecimal countColumnValues(int columnNumber, String matchingValue){
-        CSVRecord record = getColumn(columnNumber);
-        return record.countValues(matchingValue);
+    public void dropIndex(int columnPosition){
+        getColumn(columnPosition).dropIndex();
     }
 
-    public BigDecimal countColumnValues(String columnLabel, String matchingValue) {
-        CSVRecord record = getColumnByHeaderLabel(columnLabel);
-        return record.countValues(matchingValue);
+    public void dropIndex(String columnLabel){
+        getColumnByHeaderLabel(columnLabel).dropIndex();
     }
 
-    public BigDecimal sumColumn(int columnNumber){
-        CSVRecord record = getColumn(columnNumber);
-        return record.sumValues();
+
+    /**
+     * <p>Create a sorted index on a numeric column, used by the operations by range to find the rows with values
+     * in a range in O(log n + k), instead of compare all values of the column.</p>
+     *
+     * <p>The index is kept updated when rows are added or removed, and it is recreated when the column is replaced.
+     * Rows with values that are not numeric can not be added to a column with a sorted index.</p>
+     *
+     * @param columnPosition
+     */
+    public void createSortedIndex(int columnPosition){
+        getColumn(columnPosition).createSortedIndex();
     }
 
-    public BigDecimal sumColumn(String columnLabel){
-        CSVRecord record = getColumnByHeaderLabel(columnLabel);
-        return record.sumValues();
+    public void createSortedIndex(String columnLabel){
+        getColumnByHeaderLabel(columnLabel).createSortedIndex();
+    }
+
+    public void dropSortedIndex(int columnPosition){
+        getColumn(columnPosition).dropSortedIndex();
     }
 
+    public void dropSortedIndex(String columnLabel){
+        getColumnByHeaderLabel(columnLabel).dropSortedIndex();
+    }
+
+
     /**
-     * Operation sum column elements values in the position that match with values of a reference column.
+     * <p>Return the values of a column in the rows where the reference column has values between low and high
+     * ( inclusive ), in the order of the rows.</p>
      *
-     * @param columnNumber
-     * @param referenceColumnLabel
-     * @param referenceColumnValue
+     * <pre>
+     * dataSet.getColumnValuesByRange("url", "latency", new BigDecimal("200"), new BigDecimal("500"));
+     * </pre>
+     *
+     * @param columnLabel
+     * @param referenceColumnLabel numeric column
+     * @param low null to no lower limit
+     * @param high null to no upper limit
      * @return
      */
-    public BigDecimal sumColumnByMatching(int columnNumber, String referenceColumnLabel, String referenceColumnValue) {
+    public List<String> getColumnValuesByRange(String columnLabel, String referenceColumnLabel, BigDecimal low, BigDecimal high) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfRange(low, high);
+        Arrays.sort(indexes);
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.getValues(indexes);
+    }
+
+    /**
+     * Count the rows where the reference column has values between low and high ( inclusive )
+     */
+    public BigDecimal countColumnByRange(String referenceColumnLabel, BigDecimal low, BigDecimal high) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        return new BigDecimal(referenceColumn.getIndexesOfRange(low, high).length);
+    }
+
+    public BigDecimal sumColumnByRange(int columnNumber, String referenceColumnLabel, BigDecimal low, BigDecimal high) {
         CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
-        List<Integer> indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        int[] indexes = referenceColumn.getIndexesOfRange(low, high);
         CSVRecord record = getColumn(columnNumber);
         return record.sumValues(indexes);
     }
 
-    public BigDecimal sumColumnByMatching(String columnLabel, String referenceColumnLabel, String referenceColumnValue) {
+    public BigDecimal sumColumnByRange(String columnLabel, String referenceColumnLabel, BigDecimal low, BigDecimal high) {
         CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
-        List<Integer> indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        int[] indexes = referenceColumn.getIndexesOfRange(low, high);
         CSVRecord record = getColumnByHeaderLabel(columnLabel);
         return record.sumValues(indexes);
     }
 
 
-
-
-    public BigDecimal meanColumn(int columnNumber){
+    public BigDecimal meanColumnByRange(int columnNumber, String referenceColumnLabel, BigDecimal low, BigDecimal high) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfRange(low, high);
         CSVRecord record = getColumn(columnNumber);
-        return record.meanValues();
+        return record.meanValues(indexes);
     }
 
-    public BigDecimal meanColumn(String columnLabel){
+    public BigDecimal meanColumnByRange(String columnLabel, String referenceColumnLabel, BigDecimal low, BigDecimal high) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfRange(low, high);
         CSVRecord record = getColumnByHeaderLabel(columnLabel);
-        return record.meanValues();
+        return record.meanValues(indexes);
     }
 
-    public BigDecimal meanColumnByMatching(int columnNumber, String referenceColumnLabel, String referenceColumnValue) {
+
+    public BigDecimal medianColumnByRange(int columnNumber, String referenceColumnLabel, BigDecimal low, BigDecimal high) {
         CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
-        List<Integer> indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        int[] indexes = referenceColumn.getIndexesOfRange(low, high);
         CSVRecord record = getColumn(columnNumber);
-        return record.meanValues(indexes);
+        return record.medianValues(indexes);
     }
 
-    public BigDecimal meanColumnByMatching(String columnLabel, String referenceColumnLabel, String referenceColumnValue) {
+    public BigDecimal medianColumnByRange(String columnLabel, String referenceColumnLabel, BigDecimal low, BigDecimal high) {
         CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
-        List<Integer> indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        int[] indexes = referenceColumn.getIndexesOfRange(low, high);
         CSVRecord record = getColumnByHeaderLabel(columnLabel);
-        return record.meanValues(indexes);
+        return record.medianValues(indexes);
     }
 
 
-
-
-    public BigDecimal medianColumn(int columnNumber){
+    public BigDecimal varianceColumnByRange(int columnNumber, String referenceColumnLabel, BigDecimal low, BigDecimal high) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfRange(low, high);
         CSVRecord record = getColumn(columnNumber);
-        return record.medianValues();
+        return record.varianceValues(indexes);
     }
 
-    public BigDecimal medianColumn(String columnLabel){
+    public BigDecimal varianceColumnByRange(String columnLabel, String referenceColumnLabel, BigDecimal low, BigDecimal high) {
+        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
+        int[] indexes = referenceColumn.getIndexesOfRange(low, high);
         CSVRecord record = getColumnByHeaderLabel(columnLabel);
-        return record.medianValues();
+        return record.varianceValues(indexes);
     }
 
 
-    public BigDecimal medianColumnByMatching(int columnNumber, String referenceColumnLabel, String referenceColumnValue) {
+    public BigDecimal stdDevColumnByRange(int columnNumber, String referenceColumnLabel, BigDecimal low, BigDecimal high) {
         CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
-        List<Integer> indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        int[] indexes = referenceColumn.getIndexesOfRange(low, high);
         CSVRecord record = getColumn(columnNumber);
-        return record.medianValues(indexes);
+        return record.stdDevValues(indexes);
     }
 
-    public BigDecimal medianColumnByMatching(String columnLabel, String referenceColumnLabel, String referenceColumnValue) {
+    public BigDecimal stdDevColumnByRange(String columnLabel, String referenceColumnLabel, BigDecimal low, BigDecimal high) {
         CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
-        List<Integer> indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+        int[] indexes = referenceColumn.getIndexesOfRange(low, high);
         CSVRecord record = getColumnByHeaderLabel(columnLabel);
-        return record.medianValues(indexes);
+        return record.stdDevValues(indexes);
     }
 
 
 
+    /**
+     * <p>Create a bitmap index on a column, with the rows of each value as a compressed bitmap. Indicated to columns
+     * with few distinct values, like categories, used in filters that combine conditions.</p>
+     *
+     * <p>Filters over columns without the bitmap index create the bitmaps of the rows from the hash index or from
+     * the groups of values of the column.</p>
+     *
+     * @param columnPosition
+     */
+    public void createBitmapIndex(int columnPosition){
+        getColumn(columnPosition).createBitmapIndex();
+    }
+
+    public void createBitmapIndex(String columnLabel){
+        getColumnByHeaderLabel(columnLabel).createBitmapIndex();
+    }
 
+    public void dropBitmapIndex(int columnPosition){
+        getColumn(columnPosition).dropBitmapIndex();
+    }
 
-    public BigDecimal varianceColumn(int columnNumber){
-        CSVRecord record = getColumn(columnNumber);
-        return record.varianceValues();
+    public void dropBitmapIndex(String columnLabel){
+        getColumnByHeaderLabel(columnLabel).dropBitmapIndex();
     }
 
 
-    public BigDecimal varianceColumn(String columnLabel){
+    /**
+     * <p>Return the values of a column in the rows that satisfy the filter, in the order of the rows.</p>
+     *
+     * <p>The filter is evaluated over the data already loaded: the rows of each condition are bitmaps,
+     * combined by bitwise operations.</p>
+     *
+     * <pre>
+     * dataSet.getColumnValuesWhere("sales", CSVRowFilter.equalTo("Quarter", "Q4").and( CSVRowFilter.equalTo("region", "EU") ) );
+     * </pre>
+     *
+     * @param columnLabel
+     * @param filter
+     * @return
+     */
+    public List<String> getColumnValuesWhere(String columnLabel, CSVRowFilter filter) {
+        int[] indexes = selectRows(filter);
         CSVRecord record = getColumnByHeaderLabel(columnLabel);
-        return record.varianceValues();
+        return record.getValues(indexes);
     }
 
+    /**
+     * Count the rows that satisfy the filter
+     */
+    public BigDecimal countRowsWhere(CSVRowFilter filter) {
+        return new BigDecimal(selectRows(filter).length);
+    }
 
-    public BigDecimal varianceColumnByMatching(int columnNumber, String referenceColumnLabel, String referenceColumnValue) {
-        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
-        List<Integer> indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+    public BigDecimal sumColumnWhere(int columnNumber, CSVRowFilter filter) {
+        int[] indexes = selectRows(filter);
         CSVRecord record = getColumn(columnNumber);
-        return record.varianceValues(indexes);
+        return record.sumValues(indexes);
     }
 
-
-    public BigDecimal varianceColumnByMatching(String columnLabel, String referenceColumnLabel, String referenceColumnValue) {
-        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
-        List<Integer> indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+    public BigDecimal sumColumnWhere(String columnLabel, CSVRowFilter filter) {
+        int[] indexes = selectRows(filter);
         CSVRecord record = getColumnByHeaderLabel(columnLabel);
-        return record.varianceValues(indexes);
+        return record.sumValues(indexes);
     }
 
 
+    public BigDecimal meanColumnWhere(int columnNumber, CSVRowFilter filter) {
+        int[] indexes = selectRows(filter);
+        CSVRecord record = getColumn(columnNumber);
+        return record.meanValues(indexes);
+    }
+
+    public BigDecimal meanColumnWhere(String columnLabel, CSVRowFilter filter) {
+        int[] indexes = selectRows(filter);
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.meanValues(indexes);
+    }
 
 
-    public BigDecimal stdDevColumn(int columnNumber){
+    public BigDecimal medianColumnWhere(int columnNumber, CSVRowFilter filter) {
+        int[] indexes = selectRows(filter);
         CSVRecord record = getColumn(columnNumber);
-        return record.stdDevValues();
+        return record.medianValues(indexes);
+    }
+
+    public BigDecimal medianColumnWhere(String columnLabel, CSVRowFilter filter) {
+        int[] indexes = selectRows(filter);
+        CSVRecord record = getColumnByHeaderLabel(columnLabel);
+        return record.medianValues(indexes);
     }
 
 
-    public BigDecimal stdDevColumn(String columnLabel){
+    public BigDecimal varianceColumnWhere(int columnNumber, CSVRowFilter filter) {
+        int[] indexes = selectRows(filter);
+        CSVRecord record = getColumn(columnNumber);
+        return record.varianceValues(indexes);
+    }
+
+    public BigDecimal varianceColumnWhere(String columnLabel, CSVRowFilter filter) {
+        int[] indexes = selectRows(filter);
         CSVRecord record = getColumnByHeaderLabel(columnLabel);
-        return record.stdDevValues();
+        return record.varianceValues(indexes);
     }
 
 
-    public BigDecimal stdDevColumnByMatching(int columnNumber, String referenceColumnLabel, String referenceColumnValue) {
-        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
-        List<Integer> indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+    public BigDecimal stdDevColumnWhere(int columnNumber, CSVRowFilter filter) {
+        int[] indexes = selectRows(filter);
         CSVRecord record = getColumn(columnNumber);
         return record.stdDevValues(indexes);
     }
 
-
-    public BigDecimal stdDevColumnByMatching(String columnLabel, String referenceColumnLabel, String referenceColumnValue) {
-        CSVRecord referenceColumn = getColumnByHeaderLabel(referenceColumnLabel);
-        List<Integer> indexes = referenceColumn.getIndexesOfValue(referenceColumnValue);
+    public BigDecimal stdDevColumnWhere(String columnLabel, CSVRowFilter filter) {
+        int[] indexes = selectRows(filter);
         CSVRecord record = getColumnByHeaderLabel(columnLabel);
         return record.stdDevValues(indexes);
     }
 
 
-
     /**
-     * Normalize the CSV column values
-     *
-     * @param columnPosition
-     * @param replace IF the old values of the column will be replaced by  normalized Values
-     * @return
+     * Positions of the rows of data that satisfy the filter, in ascending order
      */
-    public List<String> normalizeColumn(int columnPosition, boolean replace){
-        CSVRecord record = getColumn(columnPosition);
-        List<String> normalizedValues = record.normalizeValues();
-        if(replace) {
-            if(containsColumnsHeaders) // add header at first position
-                normalizedValues.add(0, columnsHeader.getValues().get(columnPosition));
-            replaceColumn(columnPosition, normalizedValues);
-        }
-        return normalizedValues;
+    private int[] selectRows(CSVRowFilter filter) {
+        if(filter == null)
+            throw new IllegalArgumentException("Filter can't be null");
+        if(isNotInitializeRowAndColumns())
+            throw new IllegalArgumentException("Data set has no data or data was not loaded ");
+        int size = columns.size() > 0 ? columns.get(0).getValues().size() : 0;
+        return filter.select(this, size).toArray();
     }
 
 
     /**
-     * Normalize the CSV column values
+     * <p>Group the rows by the values of a reference column and aggregate the columns for each group,
+     * in a single pass over each column:</p>
      *
-     * @param columnLabel
-     * @param replace IF the old values of the column will be replaced by  normalized Values
+     * <pre>
+     * CSVDataSet byQuarter = dataSet.groupBy("Quarter", Arrays.asList("revenue", "cost"));
+     * byQuarter.getRowValues("Q1");
+     * byQuarter.getColumnValues("sum(revenue)");
+     * </pre>
+     *
+     * <p>The result has a row for each distinct value of the reference column, in the order they appear,
+     * with the columns: count, sum(column), mean(column), median(column), variance(column), stdDev(column)
+     * for each column. The values are the same of the *ByMatching operations for that value.</p>
+     *
+     * <p>The file of the result is this file name ended with "_groupBy.csv", it is just created if the result is stored.</p>
+     *
+     * @param referenceColumnLabel
+     * @param columnLabels columns aggregated
      * @return
      */
-    public List<String> normalizeColumn(String columnLabel, boolean replace){
-        int columnPosition = getColumnPositionByHeaderLabel(columnLabel);
-        return normalizeColumn(columnPosition, replace);
-    }
+    public CSVDataSet groupBy(String referenceColumnLabel, List<String> columnLabels){
 
+        if(columnLabels == null)
+            throw new IllegalArgumentException("Columns labels can't be null");
 
-    /**
-     * Replace a column of CSV file
-     * @param columnPosition
-     * @param values
-     */
-    public void replaceColumn(int columnPosition, List<String> values){
-        removeColumn(columnPosition);
-        addColumn(values, columnPosition);
-    }
+        CSVGroups groups = getColumnByHeaderLabel(referenceColumnLabel).groupValues();
 
-    /**
-     * Replace a column of CSV file
-     * @param columnLabel
-     * @param values
-     */
-    public void replaceColumn(String columnLabel, List<String> values){
-        int columnPosition =  getColumnPositionByHeaderLabel(columnLabel);
-        replaceColumn(columnPosition, values);
-    }
+        List<String> headers = new ArrayList<>();
+        headers.add(referenceColumnLabel);
+        headers.add("count");
 
+        List<BigDecimal[][]> aggregations = new ArrayList<>();
+        for (String columnLabel : columnLabels) {
+            aggregations.add(getColumnByHeaderLabel(columnLabel).aggregateGroups(groups));
+            for (String operation : new String[]{"sum", "mean", "median", "variance", "stdDev"})
+                headers.add(operation+"("+columnLabel+")");
+        }
+
+        List<List<String>> resultRows = new ArrayList<>();
+        resultRows.add(headers);
+
+        for (int group = 0; group < groups.size(); group++) {
+            List<String> row = new ArrayList<>(headers.size());
+            row.add(groups.getKey(group));
+            row.add(String.valueOf(groups.getPositions(group).length));
+            for (BigDecimal[][] columnAggregations : aggregations) {
+                // the first aggregation is the count
+                for (int operation = 1; operation < columnAggregations[group].length; operation++)
+                    row.add(columnAggregations[group][operation].toString());
+            }
+            resultRows.add(row);
+        }
 
+        CSVDataSet result = new CSVDataSet(fileName.substring(0, fileName.length() - ".csv".length())+"_groupBy.csv", separator, true, true);
+        result.addRows(resultRows);
+        return result;
+    }
 
 
 
@@ -1144,14 +2411,14 @@ public class CSVDataSet {
 
     public BigDecimal sumRowByMatching(int rowNumber, int referenceRowNumber, String referenceRowValue) {
         CSVRecord referenceRow = getRow(referenceRowNumber);
-        List<Integer> indexes = referenceRow.getIndexesOfValue(referenceRowValue);
+        int[] indexes = referenceRow.getIndexesOfValue(referenceRowValue);
         CSVRecord record = getRow(rowNumber);
         return record.sumValues(indexes);
     }
 
     public BigDecimal sumRowByMatching(String rowLabel, String referenceRowLabel, String referenceRowValue) {
         CSVRecord referenceRow = getRowByHeaderLabel(referenceRowLabel);
-        List<Integer> indexes = referenceRow.getIndexesOfValue(referenceRowValue);
+        int[] indexes = referenceRow.getIndexesOfValue(referenceRowValue);
         CSVRecord record = getRowByHeaderLabel(rowLabel);
         return record.sumValues(indexes);
     }
@@ -1164,7 +2431,7 @@ public class CSVDataSet {
 
     public BigDecimal meanRowByMatching(int rowNumber, int referenceRowNumber, String referenceRowValue) {
         CSVRecord referenceRow = getRow(referenceRowNumber);
-        List<Integer> indexes = referenceRow.getIndexesOfValue(referenceRowValue);
+        int[] indexes = referenceRow.getIndexesOfValue(referenceRowValue);
         CSVRecord record = getRow(rowNumber);
         return record.meanValues(indexes);
     }
@@ -1174,9 +2441,14 @@ public class CSVDataSet {
         return record.medianValues();
     }
 
+    public BigDecimal percentileRow(int rowNumber, double percentile){
+        CSVRecord record = getRow(rowNumber);
+        return record.percentileValues(percentile);
+    }
+
     public BigDecimal medianRowByMatching(int rowNumber, int referenceRowNumber, String referenceRowValue) {
         CSVRecord referenceRow = getRow(referenceRowNumber);
-        List<Integer> indexes = referenceRow.getIndexesOfValue(referenceRowValue);
+        int[] indexes = referenceRow.getIndexesOfValue(referenceRowValue);
         CSVRecord record = getRow(rowNumber);
         return record.medianValues(indexes);
     }
@@ -1188,7 +2460,7 @@ public class CSVDataSet {
 
     public BigDecimal varianceRowByMatching(int rowNumber, int referenceRowNumber, String referenceRowValue) {
         CSVRecord referenceRow = getRow(referenceRowNumber);
-        List<Integer> indexes = referenceRow.getIndexesOfValue(referenceRowValue);
+        int[] indexes = referenceRow.getIndexesOfValue(referenceRowValue);
         CSVRecord record = getRow(rowNumber);
         return record.varianceValues(indexes);
     }
@@ -1200,11 +2472,26 @@ public class CSVDataSet {
 
     public BigDecimal stdDevRowByMatching(int rowNumber, int referenceRowNumber, String referenceRowValue) {
         CSVRecord referenceRow = getRow(referenceRowNumber);
-        List<Integer> indexes = referenceRow.getIndexesOfValue(referenceRowValue);
+        int[] indexes = referenceRow.getIndexesOfValue(referenceRowValue);
         CSVRecord record = getRow(rowNumber);
         return record.stdDevValues(indexes);
     }
 
+    public BigDecimal minRow(int rowNumber){
+        CSVRecord record = getRow(rowNumber);
+        return record.minValues();
+    }
+
+    public BigDecimal maxRow(int rowNumber){
+        CSVRecord record = getRow(rowNumber);
+        return record.maxValues();
+    }
+
+    public CSVStatisticsAccumulator accumulateRow(int rowNumber){
+        CSVRecord record = getRow(rowNumber);
+        return record.accumulateValues();
+    }
+
     /**
      * Normalize the CSV row values
      *
@@ -1274,7 +2561,8 @@ public class CSVDataSet {
         System.out.println(rowsHeader.getValues());
 
         System.out.println("Rows Values");
-        for (CSVRecord row : rows){
+        for (int rowPosition = 0; rowPosition < rowCount; rowPosition++){
+            CSVRecord row = rowView(rowPosition);
             System.out.println("["+row.getType()+"]"+"("+row.getPosition()+")"+row.getValues());
         }
 
@@ -1296,19 +2584,8 @@ public class CSVDataSet {
      * @param columnLabel
      * @return
      */
-    private CSVRecord getColumnByHeaderLabel(String columnLabel){
-        int columnPosition = 0;
-        boolean find = false;
-        for(String headerLabel : columnsHeader.getValues()){
-            if(headerLabel.equals(columnLabel)) {
-                find = true;
-                break;
-            }
-
-            columnPosition++;
-        }
-
-        if(! find) columnPosition = -1;
+    CSVRecord getColumnByHeaderLabel(String columnLabel){
+        int columnPosition = findHeaderLabel(columnsHeader, columnLabel);
 
         if(columnPosition < 0 || columnPosition >= columns.size())
             throw new IllegalArgumentException("Column \""+columnLabel+"\" does not exits");
@@ -1323,38 +2600,20 @@ public class CSVDataSet {
      * @return
      */
     private CSVRecord getRowByHeaderLabel(String rowLabel){
-        int rowPosition = 0;
-        boolean find = false;
-        for(String headerLabel : rowsHeader.getValues()){
-            if(headerLabel.equals(rowLabel)) {
-                find = true;
-                break;
-            }
-
-            rowPosition++;
-        }
+        int rowPosition = findHeaderLabel(rowsHeader, rowLabel);
 
-        if(! find)
+        if(rowPosition < 0)
             throw new IllegalArgumentException("There is not row: "+rowLabel);
 
-        if(rowPosition < 0 || rowPosition >= rows.size())
+        if(rowPosition >= rowCount)
             throw new IllegalArgumentException("Row \""+rowLabel+"\" does not exits");
 
-        return rows.get(rowPosition);
+        return rowView(rowPosition);
     }
 
     private int getColumnPositionByHeaderLabel(String columnLabel) {
-        int columnPosition = 0;
-        boolean find = false;
-        for (String headerLabel : columnsHeader.getValues()) {
-            if (headerLabel.equals(columnLabel)) {
-                find = true;
-                break;
-            }
-
-            columnPosition++;
-        }
-        if(! find)
+        int columnPosition = findHeaderLabel(columnsHeader, columnLabel);
+        if(columnPosition < 0)
             throw new IllegalArgumentException("There is not column: "+columnLabel);
 
         return columnPosition;
@@ -1362,24 +2621,30 @@ public class CSVDataSet {
 
 
     private int getRowPositionByHeaderLabel(String rowLabel) {
-        int rowPosition = 0;
-        boolean find = false;
-        for (String headerLabel : rowsHeader.getValues()) {
-            if (headerLabel.equals(rowLabel)) {
-                find = true;
-                break;
-            }
-
-            rowPosition++;
-        }
-        if(! find)
+        int rowPosition = findHeaderLabel(rowsHeader, rowLabel);
+        if(rowPosition < 0)
             throw new IllegalArgumentException("There is not row: "+rowLabel);
 
         return rowPosition;
     }
 
+    /**
+     * <p>Position of the label in the headers, or -1 if there is no header with the label.</p>
+     *
+     * <p>The labels are found by the index of the headers, kept updated when rows and columns are added or removed.
+     * If more than one header has the same label, the first one is returned.</p>
+     *
+     * @param header
+     * @param label
+     * @return
+     */
+    private int findHeaderLabel(CSVRecord header, String label) {
+        int[] positions = header.getIndexesOfValue(label);
+        return positions.length > 0 ? positions[0] : -1;
+    }
+
 
-    private CSVRecord getColumn(int columnPosition){
+    CSVRecord getColumn(int columnPosition){
         if(isNotInitializeRowAndColumns())
             throw new IllegalArgumentException("Data set has no data or data was not loaded ");
 
@@ -1393,27 +2658,25 @@ public class CSVDataSet {
         if(isNotInitializeRowAndColumns())
             throw new IllegalArgumentException("Data set has no data or data was not loaded ");
 
-        if(rowPosition< 0 || rowPosition >= rows.size())
+        if(rowPosition< 0 || rowPosition >= rowCount)
             throw new IllegalArgumentException("Row with Position \""+rowPosition+"\" does not exits");
 
-        return rows.get(rowPosition);
+        return rowView(rowPosition);
     }
 
-    private boolean containsColumn(int position) {
-        for (CSVRecord record : columns){
-            if( record.getPosition() == position )
-                return true;
-        }
-        return false;
+    /**
+     * The row is not stored, it is a view that reads the values of the columns at the row position
+     */
+    private CSVRecord rowView(int rowPosition){
+        return CSVRecord.viewOf(CSVRecord.CSVRecordType.ROW, rowPosition, columns);
     }
 
-
-    private boolean containsRow(int position) {
-        for (CSVRecord record : rows){
-            if( record.getPosition() == position )
-                return true;
-        }
-        return false;
+    /*
+     * The records are always kept in the list ordered by position, without gaps ( record at index i has position i ),
+     * so is not necessary look for the record.
+     */
+    private boolean containsColumn(int position) {
+        return position >= 0 && position < columns.size();
     }
 
     private void initializeColumnHeader() {
@@ -1427,8 +2690,8 @@ public class CSVDataSet {
     }
 
     private void initializeRowAndColumns() {
-        if (rows == null || columns == null) {
-            rows = new ArrayList<>();
+        if (columns == null) {
+            rowCount = 0;
             columns = new ArrayList<>();
         }
     }
@@ -1439,14 +2702,14 @@ public class CSVDataSet {
             setColumnsHeaders(Arrays.asList(new String[]{}) );
         if(rowsHeader == null)
             setRowsHeaders(Arrays.asList( new String[]{}) );
-        if (rows == null || columns == null) {
-            rows = new ArrayList<>();
+        if (columns == null) {
+            rowCount = 0;
             columns = new ArrayList<>();
         }
     }
 
     private boolean isNotInitializeRowAndColumns() {
-        if (rows == null || columns == null) {
+        if (columns == null) {
             return true;
         }
         return false;
@@ -1465,6 +2728,30 @@ public class CSVDataSet {
             throw new IllegalArgumentException("Invalid number of row elements: "+rowValues.size()+". Not same size of column headers elements: "  + columnsHeader.getValues().size());
         }
 
+        // without headers, the rows need be the same size of the existing columns
+        if ( ! containsColumnsHeaders && columns.size() > 0 && rowValues.size() != columns.size() ) {
+            throw new IllegalArgumentException("Invalid number of row elements: "+rowValues.size()+". Rows should have: "  + columns.size()+" elements. ");
+        }
+
+    }
+
+    /**
+     * Check the size of the row and if each value can be added to its column
+     * @param rowValues
+     */
+    private void validatedRowValues(List<String> rowValues) {
+        validatedRowSize(rowValues);
+        validatedColumnsValues(rowValues);
+    }
+
+    /**
+     * Columns with a sorted index accept just numeric values
+     * @param rowValues
+     */
+    private void validatedColumnsValues(List<String> rowValues) {
+        for (int columnPosition = 0; columnPosition < rowValues.size() && columnPosition < columns.size(); columnPosition++) {
+            columns.get(columnPosition).validateValue(rowValues.get(columnPosition));
+        }
     }
 
     private void validatedColumnSize(List<String> columnValues) {
@@ -0,0 +1,251 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVDataSetWriter
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * <p>Write rows to a CSV file as they are added, without keep them in memory. To produce files that are just
+ * written, with the same format of the CSVDataSet.storeData().</p>
+ *
+ * <p>The rows are added like in the CSVDataSet: if the file contains columns headers, the first row added are the
+ * headers, and if the file contains rows headers, the first value of each row is its header.</p>
+ *
+ * <p>The rows are encoded in a buffer that is written to the file when it is full or when flush() is called,
+ * so the memory used does not depend of the number of rows. The writer needs to be closed to write the last rows.</p>
+ *
+ * <pre>
+ * try( CSVDataSetWriter writer = new CSVDataSetWriter("file.csv", true, false) ){
+ *     writer.addRow( Arrays.asList("name", "value") );
+ *     writer.addRow( Arrays.asList("a", "1") );
+ * }
+ * </pre>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+public class CSVDataSetWriter implements Flushable, Closeable {
+
+    private final CSVEncoder encoder;
+
+    /* If the first row added are the headers of the columns */
+    private final boolean containsColumnsHeaders;
+
+    /* If the first value of each row is the header of the row */
+    private final boolean containsRowsHeaders;
+
+    /**
+     * If the headers are not written because the file already has them
+     */
+    private final boolean skipHeaders;
+
+    /**
+     * Number of values of the rows, defined by the headers or by the first row without headers. -1 before them
+     */
+    private int rowSize = -1;
+
+    private long rowCount;
+
+    /**
+     * Writer to a new file, with columns and rows headers, separated by ","
+     * @param fileName
+     */
+    public CSVDataSetWriter(String fileName){
+        this(fileName, ",", false, true, true);
+    }
+
+    /**
+     * Writer with columns and rows headers
+     * @param fileName
+     * @param separator
+     * @param append if the rows are added to the end of the file
+     */
+    public CSVDataSetWriter(String fileName, String separator, boolean append){
+        this(fileName, separator, append, true, true);
+    }
+
+    /**
+     * Writer to a new file separated by ","
+     * @param fileName
+     * @param containsColumnsHeaders
+     * @param containsRowsHeaders
+     */
+    public CSVDataSetWriter(String fileName, boolean containsColumnsHeaders, boolean containsRowsHeaders){
+        this(fileName, ",", false, containsColumnsHeaders, containsRowsHeaders);
+    }
+
+    /**
+     * Writer with the same settings of a data set
+     * @param fileName
+     * @param separator
+     * @param append if the rows are added to the end of the file. The headers are written just if the file is empty
+     * @param containsColumnsHeaders
+     * @param containsRowsHeaders
+     */
+    public CSVDataSetWriter(String fileName, String separator, boolean append, boolean containsColumnsHeaders, boolean containsRowsHeaders){
+        this(fileName, separator, append, containsColumnsHeaders, containsRowsHeaders, CSVEncoder.BUFFER_SIZE);
+    }
+
+    /**
+     * Writer with the same settings of a data set, that writes the rows to the file each "bufferSize" bytes
+     * @param fileName
+     * @param separator
+     * @param append if the rows are added to the end of the file. The headers are written just if the file is empty
+     * @param containsColumnsHeaders
+     * @param containsRowsHeaders
+     * @param bufferSize
+     */
+    public CSVDataSetWriter(String fileName, String separator, boolean append, boolean containsColumnsHeaders, boolean containsRowsHeaders, int bufferSize){
+
+        if(fileName == null || fileName.trim().isEmpty())
+            throw new IllegalArgumentException("Invalid file name: "+fileName);
+
+        if(separator == null || separator.trim().isEmpty() || separator.length() != 1)
+            throw new IllegalArgumentException("Invalid separator: "+separator);
+        // validated before open the file, that is truncated when opened
+        CSVTokenizer.validateSeparator(separator.charAt(0));
+
+        if(bufferSize <= 0)
+            throw new IllegalArgumentException("Invalid buffer size: "+bufferSize);
+
+        this.containsColumnsHeaders = containsColumnsHeaders;
+        this.containsRowsHeaders = containsRowsHeaders;
+
+        FileChannel channel = openChannel(fileName, append);
+        try {
+            this.skipHeaders = append && channel.size() > 0;
+            this.encoder = new CSVEncoder(channel, separator.charAt(0), bufferSize);
+        } catch (IOException | RuntimeException e) {
+            // the writer is not created, so nobody else can close the file
+            try {
+                channel.close();
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            if(e instanceof IOException)
+                throw new UncheckedIOException((IOException) e);
+            throw (RuntimeException) e;
+        }
+    }
+
+    private static FileChannel openChannel(String fileName, boolean append) {
+        try {
+            return append
+                    ? FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                    : FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Add a row to the end of the file. The first row are the headers if the file contains columns headers.
+     * @param rowValues
+     */
+    public void addRow(List<String> rowValues) {
+
+        if(rowValues == null || rowValues.size() == 0 )
+            throw new IllegalArgumentException("Row does not have values");
+
+        // the row header is not a value of the row
+        int size = containsRowsHeaders ? rowValues.size() - 1 : rowValues.size();
+
+        boolean isHeader = containsColumnsHeaders && rowSize < 0;
+
+        if(isHeader) {
+            rowSize = size;
+            if(skipHeaders)
+                return;
+        } else {
+            // without headers, the first row defines the size of the rows, as in the data set
+            if ( rowSize < 0 )
+                rowSize = size;
+            if ( size != rowSize )
+                throw new IllegalArgumentException("Invalid number of row elements: "+size+". "
+                        + (containsColumnsHeaders ? "Not same size of column headers elements: " : "Not same size of the first row elements: ") + rowSize);
+            rowCount++;
+        }
+
+        try {
+            encoder.writeValues(rowValues);
+            encoder.endRecord();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Add a set of rows to the end of the file
+     * @param rowsValues
+     */
+    public void addRows(List<List<String>> rowsValues) {
+
+        if(rowsValues == null || rowsValues.size() == 0 )
+            throw new IllegalArgumentException("Rows does not have values");
+
+        for (List<String> rowValues : rowsValues) {
+            addRow(rowValues);
+        }
+    }
+
+    /**
+     * Number of rows added, not counting the headers
+     * @return
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Write to the file the rows added since the last time the buffer was written
+     */
+    @Override
+    public void flush() {
+        try {
+            encoder.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the last rows and close the file
+     */
+    @Override
+    public void close() {
+        try {
+            encoder.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVDictionaryValues
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Text values of a column with few distinct values, stored as codes of a dictionary of the distinct values.</p>
+ *
+ * <p>Each distinct value is kept once, and each position of the column keeps just a code of 16 bits. Codes are
+ * given in the order the values first appear. Comparing a value with the column is comparing its code.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVDictionaryValues extends CSVColumnValues {
+
+    /**
+     * Maximum number of distinct values, the codes are stored as char
+     */
+    static final int MAX_DISTINCT_VALUES = 1 << 16;
+
+    /**
+     * A column is encoded just if it has at most one distinct value for each MIN_REPETITIONS values
+     */
+    static final int MIN_REPETITIONS = 4;
+
+    /**
+     * Distinct value of each code
+     */
+    private final List<String> dictionary = new ArrayList<>();
+
+    private final Map<String, Integer> codesByValue = new HashMap<>();
+
+    /**
+     * Number of positions with each code
+     */
+    private int[] counts = new int[16];
+
+    private char[] codes;
+
+    private int size;
+
+    private CSVDictionaryValues(int capacity) {
+        codes = new char[Math.max(capacity, 16)];
+    }
+
+    /**
+     * Create the dictionary storage to the values, or return null if the values have many distinct values
+     * @param values
+     * @return
+     */
+    static CSVDictionaryValues of(List<String> values) {
+        int maxDistinctValues = Math.min(MAX_DISTINCT_VALUES, values.size() / MIN_REPETITIONS);
+
+        CSVDictionaryValues dictionaryValues = new CSVDictionaryValues(values.size());
+        for (String value : values) {
+            if(! dictionaryValues.codesByValue.containsKey(value) && dictionaryValues.dictionary.size() == maxDistinctValues)
+                return null;
+            dictionaryValues.codes[dictionaryValues.size++] = dictionaryValues.codeOf(value);
+        }
+        return dictionaryValues;
+    }
+
+    /**
+     * Any value already in the dictionary, or a new one while there are codes
+     */
+    @Override
+    boolean accepts(String value) {
+        return codesByValue.containsKey(value) || dictionary.size() < MAX_DISTINCT_VALUES;
+    }
+
+    @Override
+    public String get(int index) {
+        checkIndex(index, size);
+        return dictionary.get(codes[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String set(int index, String value) {
+        checkIndex(index, size);
+        String old = get(index);
+        char code = codeOf(value);
+        counts[codes[index]]--;
+        codes[index] = code;
+        return old;
+    }
+
+    @Override
+    public void add(int index, String value) {
+        if(index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+        char code = codeOf(value);
+        if(size == codes.length)
+            codes = Arrays.copyOf(codes, codes.length + (codes.length >> 1));
+        System.arraycopy(codes, index, codes, index + 1, size - index);
+        codes[index] = code;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public String remove(int index) {
+        checkIndex(index, size);
+        String old = get(index);
+        counts[codes[index]]--;
+        System.arraycopy(codes, index + 1, codes, index, size - index - 1);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    /**
+     * The code of the value, adding it to the dictionary if it is new. Count one more position with the code.
+     */
+    private char codeOf(String value) {
+        Integer code = codesByValue.get(value);
+        if(code == null) {
+            if(dictionary.size() == MAX_DISTINCT_VALUES)
+                throw new IllegalArgumentException("value: \""+value+"\" can not be stored, the dictionary of the column is full");
+            code = dictionary.size();
+            codesByValue.put(value, code);
+            dictionary.add(value);
+            if(code == counts.length)
+                counts = Arrays.copyOf(counts, code * 2);
+        }
+        counts[code]++;
+        return (char) code.intValue();
+    }
+
+    /**
+     * The code of the value, -1 if it is not in the dictionary
+     */
+    int getCode(String value) {
+        Integer code = codesByValue.get(value);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * The code of the value at the index
+     */
+    int getCodeAt(int index) {
+        checkIndex(index, size);
+        return codes[index];
+    }
+
+    /**
+     * Number of codes, including values of the dictionary that are not in the column anymore
+     */
+    int getDictionarySize() {
+        return dictionary.size();
+    }
+
+    @Override
+    int count(String matchingValue) {
+        int code = getCode(matchingValue);
+        return code < 0 ? 0 : counts[code];
+    }
+
+    /**
+     * The value is converted to its code once, and the codes are compared
+     */
+    @Override
+    int[] indexesOf(String matchingValue) {
+        int code = getCode(matchingValue);
+        if(code < 0)
+            return new int[0];
+        int[] indexes = new int[counts[code]];
+        int count = 0;
+        for (int index = 0; index < size; index++) {
+            if(codes[index] == code)
+                indexes[count++] = index;
+        }
+        return indexes;
+    }
+
+    /**
+     * The distinct values that are in the column, read from the dictionary
+     */
+    @Override
+    List<String> distinctValues() {
+        List<String> distinctValues = new ArrayList<>();
+        for (int code = 0; code < dictionary.size(); code++) {
+            if(counts[code] > 0)
+                distinctValues.add(dictionary.get(code));
+        }
+        return distinctValues;
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVEncoder
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Write records of CSV, encoding the values in UTF-8 directly in a buffer of bytes, without create Strings to
+ * the values with separators and quotes.</p>
+ *
+ * <p>Follow the same rules of the CSVTokenizer: a value is written between double quotes just if it contains the
+ * separator or a line break, or if it starts with double quotes. Double quotes inside a quoted value are escaped ("").</p>
+ *
+ * <p>The bytes are written to the channel when the buffer is full. Without a channel, the buffer grows and keeps
+ * all the bytes written, to be written later.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVEncoder implements Flushable, Closeable {
+
+    /**
+     * Size of the buffer written to the channel at once
+     */
+    static final int BUFFER_SIZE = 256 * 1024;
+
+    private static final byte QUOTE = '"';
+
+    private static final byte NEW_LINE = '\n';
+
+    /**
+     * Where the bytes are written, null to keep them in the buffer
+     */
+    private final WritableByteChannel channel;
+
+    private final char separator;
+
+    /**
+     * The separator encoded in UTF-8
+     */
+    private final byte[] separatorBytes;
+
+    private byte[] buffer;
+
+    private int count;
+
+    /**
+     * If the next value is the first of a record, that is not preceded by the separator
+     */
+    private boolean firstValue = true;
+
+    /**
+     * Encoder that writes to the channel
+     * @param channel
+     * @param separator
+     */
+    CSVEncoder(WritableByteChannel channel, char separator) {
+        this(channel, separator, BUFFER_SIZE);
+    }
+
+    /**
+     * Encoder that keeps the bytes in memory, in a buffer that starts with the capacity
+     * @param separator
+     * @param capacity
+     */
+    CSVEncoder(char separator, int capacity) {
+        this(null, separator, capacity);
+    }
+
+    /**
+     * Encoder that writes to the channel each time "capacity" bytes are encoded
+     * @param channel
+     * @param separator
+     * @param capacity
+     */
+    CSVEncoder(WritableByteChannel channel, char separator, int capacity) {
+        CSVTokenizer.validateSeparator(separator);
+        this.channel = channel;
+        this.separator = separator;
+        this.separatorBytes = String.valueOf(separator).getBytes(StandardCharsets.UTF_8);
+        this.buffer = new byte[Math.max(capacity, 16)];
+    }
+
+    /**
+     * Write a value of the current record, quoted if needed
+     * @param value
+     * @throws IOException
+     */
+    void writeValue(String value) throws IOException {
+        int length = value.length();
+        // the worst case: 3 bytes to each char, 2 quotes to each char if all of them are quotes, the separator and 2 quotes
+        ensureCapacity(length * 3 + separatorBytes.length + 2);
+
+        if(! firstValue) {
+            for (byte b : separatorBytes) {
+                buffer[count++] = b;
+            }
+        }
+        firstValue = false;
+
+        if(needsQuotes(value)) {
+            buffer[count++] = QUOTE;
+            encode(value, true);
+            buffer[count++] = QUOTE;
+        } else {
+            encode(value, false);
+        }
+    }
+
+    /**
+     * Write all values of the current record
+     * @param values
+     * @throws IOException
+     */
+    void writeValues(List<String> values) throws IOException {
+        for (int index = 0; index < values.size(); index++) {
+            writeValue(values.get(index));
+        }
+    }
+
+    /**
+     * Finish the current record, next value is the first of a new record
+     * @throws IOException
+     */
+    void endRecord() throws IOException {
+        ensureCapacity(1);
+        buffer[count++] = NEW_LINE;
+        firstValue = true;
+    }
+
+    private boolean needsQuotes(String value) {
+        if(value.isEmpty())
+            return false;
+        if(value.charAt(0) == QUOTE)
+            return true;
+        for (int index = 0; index < value.length(); index++) {
+            char c = value.charAt(index);
+            if(c == separator || c == '\n' || c == '\r')
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Encode the chars in UTF-8. Invalid surrogate chars are written as '?', like String.getBytes() does.
+     */
+    private void encode(String value, boolean quoted) {
+        byte[] buffer = this.buffer;
+        int count = this.count;
+        int length = value.length();
+
+        for (int index = 0; index < length; index++) {
+            char c = value.charAt(index);
+            if(c < 0x80) {
+                if(quoted && c == QUOTE)
+                    buffer[count++] = QUOTE;
+                buffer[count++] = (byte) c;
+            } else if(c < 0x800) {
+                buffer[count++] = (byte) (0xC0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if(Character.isSurrogate(c)) {
+                if(Character.isHighSurrogate(c) && index + 1 < length && Character.isLowSurrogate(value.charAt(index + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++index));
+                    buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    buffer[count++] = '?';
+                }
+            } else {
+                buffer[count++] = (byte) (0xE0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        this.count = count;
+    }
+
+    /**
+     * Make room to more "length" bytes in the buffer, writing it to the channel or growing it
+     */
+    private void ensureCapacity(int length) throws IOException {
+        if(count + length <= buffer.length)
+            return;
+        if(channel != null)
+            flush();
+        if(count + length > buffer.length)
+            buffer = Arrays.copyOf(buffer, Math.max(count + length, buffer.length * 2));
+    }
+
+    /**
+     * Number of bytes in the buffer, not written yet
+     * @return
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * The bytes in the buffer, not written yet
+     * @return
+     */
+    ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buffer, 0, count);
+    }
+
+    /**
+     * Write the bytes in the buffer to the channel
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+        if(channel == null)
+            return;
+        ByteBuffer bytes = toByteBuffer();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        count = 0;
+    }
+
+    /**
+     * Write the bytes in the buffer and close the channel
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if(channel == null)
+            return;
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVGroups
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>The positions of each distinct value of a record ( row or column ), built in a single pass over the values.</p>
+ *
+ * <p>Groups are numbered in the order their values first appear, the positions of each group are in ascending order.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVGroups {
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    /**
+     * Group number of each distinct value
+     */
+    private final Map<String, Integer> groupsByValue;
+
+    /**
+     * Distinct value of each group
+     */
+    private final List<String> keys;
+
+    /**
+     * Group number of each position
+     */
+    private final int[] groupOfPositions;
+
+    /**
+     * Positions of each group
+     */
+    private final int[][] positions;
+
+    private CSVGroups(Map<String, Integer> groupsByValue, List<String> keys, int[] groupOfPositions, int[][] positions) {
+        this.groupsByValue = groupsByValue;
+        this.keys = keys;
+        this.groupOfPositions = groupOfPositions;
+        this.positions = positions;
+    }
+
+    /**
+     * Group the positions of the values by value
+     * @param values
+     * @return
+     */
+    static CSVGroups of(List<String> values) {
+
+        if(values instanceof CSVDictionaryValues)
+            return of((CSVDictionaryValues) values);
+
+        Map<String, Integer> groupsByValue = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        int[] groupOfPositions = new int[values.size()];
+        int[] groupSizes = new int[16];
+
+        for (int position = 0; position < values.size(); position++) {
+            String value = values.get(position);
+            Integer group = groupsByValue.get(value);
+            if(group == null) {
+                group = keys.size();
+                groupsByValue.put(value, group);
+                keys.add(value);
+                if(group == groupSizes.length)
+                    groupSizes = Arrays.copyOf(groupSizes, group * 2);
+            }
+            groupOfPositions[position] = group;
+            groupSizes[group]++;
+        }
+
+        return positionsOfGroups(groupsByValue, keys, groupOfPositions, groupSizes);
+    }
+
+    /**
+     * Group the positions by the codes of the dictionary, without compare the values
+     */
+    private static CSVGroups of(CSVDictionaryValues values) {
+
+        Map<String, Integer> groupsByValue = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        int[] groupOfPositions = new int[values.size()];
+        int[] groupSizes = new int[values.getDictionarySize()];
+
+        int[] groupOfCodes = new int[values.getDictionarySize()];
+        Arrays.fill(groupOfCodes, -1);
+
+        for (int position = 0; position < values.size(); position++) {
+            int code = values.getCodeAt(position);
+            int group = groupOfCodes[code];
+            if(group < 0) {
+                group = keys.size();
+                groupOfCodes[code] = group;
+                groupsByValue.put(values.get(position), group);
+                keys.add(values.get(position));
+            }
+            groupOfPositions[position] = group;
+            groupSizes[group]++;
+        }
+
+        return positionsOfGroups(groupsByValue, keys, groupOfPositions, groupSizes);
+    }
+
+    private static CSVGroups positionsOfGroups(Map<String, Integer> groupsByValue, List<String> keys, int[] groupOfPositions, int[] groupSizes) {
+        int[][] positions = new int[keys.size()][];
+        for (int group = 0; group < positions.length; group++) {
+            positions[group] = new int[groupSizes[group]];
+            groupSizes[group] = 0;
+        }
+        for (int position = 0; position < groupOfPositions.length; position++) {
+            int group = groupOfPositions[position];
+            positions[group][groupSizes[group]++] = position;
+        }
+
+        return new CSVGroups(groupsByValue, keys, groupOfPositions, positions);
+    }
+
+    /**
+     * Positions of the values equal to the value, a empty array if there is no value equal
+     * @param value
+     * @return
+     */
+    int[] getPositions(String value) {
+        Integer group = groupsByValue.get(value);
+        return group == null ? NO_POSITIONS : positions[group];
+    }
+
+    int[] getPositions(int group) {
+        return positions[group];
+    }
+
+    /**
+     * The number of distinct values
+     * @return
+     */
+    int size() {
+        return keys.size();
+    }
+
+    String getKey(int group) {
+        return keys.get(group);
+    }
+
+    int getGroupOfPosition(int position) {
+        return groupOfPositions[position];
+    }
+}
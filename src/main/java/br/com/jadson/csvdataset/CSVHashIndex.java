@@ -0,0 +1,126 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVHashIndex
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Index of the values of a column: for each value, the positions of rows that contain it.</p>
+ *
+ * <p>The index is updated when values are added or removed at the end, in O(1). Adding or removing a value in the
+ * middle would renumber the positions of all rows after it, so the record creates the index again instead.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVHashIndex {
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    /**
+     * Positions of each value, in ascending order
+     */
+    private final Map<String, Positions> positionsByValue = new HashMap<>();
+
+    /**
+     * Number of values indexed
+     */
+    private int size;
+
+    /**
+     * A growable array of positions
+     */
+    private static class Positions {
+
+        private int[] items = new int[2];
+
+        private int size;
+
+        private void add(int position) {
+            if(size == items.length)
+                items = Arrays.copyOf(items, size * 2);
+            items[size++] = position;
+        }
+    }
+
+    /**
+     * Build the index of all values
+     * @param values
+     * @return
+     */
+    static CSVHashIndex of(List<String> values) {
+        CSVHashIndex index = new CSVHashIndex();
+        for (String value : values)
+            index.add(value);
+        return index;
+    }
+
+    /**
+     * A value was added at the end
+     * @param value
+     */
+    void add(String value) {
+        positionsByValue.computeIfAbsent(value, v -> new Positions()).add(size);
+        size++;
+    }
+
+    /**
+     * The value at the end was removed
+     * @param value
+     */
+    void removeLast(String value) {
+        Positions positions = positionsByValue.get(value);
+        if(positions == null || positions.items[positions.size - 1] != size - 1)
+            throw new IllegalStateException("Value \""+value+"\" is not indexed at position "+(size - 1));
+
+        positions.size--;
+        if(positions.size == 0)
+            positionsByValue.remove(value);
+        size--;
+    }
+
+    /**
+     * Positions of the rows that contains the value, in ascending order
+     * @param value
+     * @return
+     */
+    int[] getPositions(String value) {
+        Positions positions = positionsByValue.get(value);
+        return positions == null ? NO_POSITIONS : Arrays.copyOf(positions.items, positions.size);
+    }
+
+    /**
+     * Number of rows that contains the value
+     * @param value
+     * @return
+     */
+    int count(String value) {
+        Positions positions = positionsByValue.get(value);
+        return positions == null ? 0 : positions.size;
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVMappedTokenizer
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * <p>Tokenizer that reads the bytes of a CSV file mapped in memory.</p>
+ *
+ * <p>The bytes are not decoded to characters while tokenizing, just the fields requested by getField()
+ * are converted to Strings (UTF-8). Because of this, the separator needs to be a ASCII character.</p>
+ *
+ * <p>The file is mapped in windows, so files bigger than 2GB can be read. When a record does not fit in the rest
+ * of the current window, a new window is mapped starting at the beginning of this record.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVMappedTokenizer extends CSVTokenizer {
+
+    /**
+     * Default size of the part of the file mapped in memory at same time
+     */
+    static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+
+    /* results of read a record */
+    private static final int RECORD = 0;
+    private static final int END_OF_DATA = 1;
+    private static final int END_OF_WINDOW = 2;
+
+    private final FileChannel channel;
+
+    private final CSVStateMachine machine;
+
+    /**
+     * Offset in the file after the last byte to be read
+     */
+    private final long end;
+
+    private int windowSize;
+
+    private MappedByteBuffer window;
+
+    /**
+     * Offset in the file of the first byte of current window
+     */
+    private long windowStart;
+
+    private int windowLimit = 0;
+
+    /**
+     * Offset in the file of next byte to be read
+     */
+    private long position;
+
+    /**
+     * Content of the fields of current record, without quotes
+     */
+    private byte[] record = new byte[256];
+
+    private int recordLength = 0;
+
+    /**
+     * Where each field of current record ends inside "record" buffer. The field i starts where the field i-1 ends
+     */
+    private int[] fieldEnds = new int[16];
+
+    private int fieldCount = 0;
+
+    /**
+     * If the content of current field is kept
+     */
+    private boolean copyField = true;
+
+
+    public CSVMappedTokenizer(Path file, char separator) throws IOException {
+        this(file, separator, 0, -1, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Tokenizer for a part of a file
+     *
+     * @param file
+     * @param separator
+     * @param start offset of the first byte to be read
+     * @param end offset after the last byte to be read, -1 to read until the end of the file
+     * @param windowSize size of the part of file mapped at same time
+     */
+    CSVMappedTokenizer(Path file, char separator, long start, long end, int windowSize) throws IOException {
+        validateSeparator(separator);
+        if(separator > 127)
+            throw new IllegalArgumentException("Separator of a memory mapped file have to be a ASCII character: "+separator);
+        if(windowSize <= 0)
+            throw new IllegalArgumentException("Invalid window size: "+windowSize);
+
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.machine = new CSVStateMachine(separator);
+        this.end = end < 0 ? channel.size() : Math.min(end, channel.size());
+        this.windowSize = windowSize;
+        this.position = start;
+        this.windowStart = start;
+
+        if(start == 0)
+            skipByteOrderMark();
+    }
+
+    @Override
+    public boolean nextRecord() throws IOException {
+
+        while (true) {
+
+            if (position >= end)
+                return false;
+
+            if (window == null || position >= windowStart + windowLimit)
+                map(position);
+
+            long recordStart = position;
+            boolean lineFeed = machine.isSkipLineFeed();
+
+            int result = readRecord();
+
+            if (result != END_OF_WINDOW)
+                return result == RECORD;
+
+            // the record does not fit in the rest of the window, read it again from a new window
+            if (recordStart == windowStart) {
+                if (windowSize == Integer.MAX_VALUE)
+                    throw new IOException("Record starting at byte "+recordStart+" is bigger than "+Integer.MAX_VALUE+" bytes");
+                windowSize = (int) Math.min(2L * windowSize, Integer.MAX_VALUE);
+            }
+
+            position = recordStart;
+            machine.setSkipLineFeed(lineFeed);
+            map(recordStart);
+        }
+    }
+
+    @Override
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    @Override
+    public String getField(int index) {
+        if(index < 0 || index >= fieldCount)
+            throw new IllegalArgumentException("There is not field with position: "+index);
+        int start = index == 0 ? 0 : fieldEnds[index-1];
+        return new String(record, start, fieldEnds[index] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compare the bytes of field with the characters of the value while they are ASCII, avoiding decode the field.
+     */
+    @Override
+    public boolean fieldEquals(int index, String value) {
+        if(index < 0 || index >= fieldCount)
+            throw new IllegalArgumentException("There is not field with position: "+index);
+        int start = index == 0 ? 0 : fieldEnds[index-1];
+        int length = fieldEnds[index] - start;
+        for (int i = 0; i < length; i++) {
+            byte b = record[start + i];
+            if(b < 0)  // not ASCII
+                return getField(index).equals(value);
+            if(i >= value.length() || b != value.charAt(i))
+                return false;
+        }
+        return length == value.length();
+    }
+
+    @Override
+    public int fieldHashCode(int index) {
+        if(index < 0 || index >= fieldCount)
+            throw new IllegalArgumentException("There is not field with position: "+index);
+        int start = index == 0 ? 0 : fieldEnds[index-1];
+        int hash = 0;
+        for (int i = start; i < fieldEnds[index]; i++) {
+            if(record[i] < 0)  // not ASCII
+                return getField(index).hashCode();
+            hash = 31 * hash + record[i];
+        }
+        return hash;
+    }
+
+    /**
+     * Offset in the file after the last record read
+     * @return
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+
+    private int readRecord() {
+
+        recordLength = 0;
+        fieldCount = 0;
+        copyField = isSelected(0);
+
+        machine.startRecord();
+        boolean lastWindow = windowStart + windowLimit >= end;
+
+        int index = (int) (position - windowStart);
+
+        while (true) {
+
+            if (index == windowLimit) {
+                if (! lastWindow)
+                    return END_OF_WINDOW;
+                // end of data, the last line has no line break
+                position = windowStart + index;
+                if (! machine.isRecordStarted())
+                    return END_OF_DATA;
+                endField();
+                return RECORD;
+            }
+
+            byte b = window.get(index++);
+
+            switch (machine.next(b)) {
+                case CSVStateMachine.APPEND:
+                    append(b);
+                    break;
+                case CSVStateMachine.END_FIELD:
+                    endField();
+                    break;
+                case CSVStateMachine.END_RECORD:
+                    position = windowStart + index;
+                    endField();
+                    return RECORD;
+            }
+        }
+    }
+
+    private void endField() {
+        if (fieldCount == fieldEnds.length)
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldEnds.length * 2);
+        fieldEnds[fieldCount++] = recordLength;
+        copyField = isSelected(fieldCount);
+    }
+
+    private void append(byte b) {
+        if (! copyField)
+            return;
+        if (recordLength == record.length)
+            record = Arrays.copyOf(record, record.length * 2);
+        record[recordLength++] = b;
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        windowLimit = (int) Math.min(windowSize, end - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLimit);
+    }
+
+    // files saved by some editors start with the UTF-8 BOM bytes EF BB BF
+    private void skipByteOrderMark() throws IOException {
+        if(end < 3)
+            return;
+        ByteBuffer bom = ByteBuffer.allocate(3);
+        channel.read(bom, 0);
+        if(CSVStateMachine.isByteOrderMark(bom.get(0), bom.get(1), bom.get(2))) {
+            position = 3;
+            windowStart = 3;
+        }
+    }
+}
@@ -0,0 +1,624 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVNumericValues
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Numeric values of a column stored as long values with a fixed number of decimal places ( the column scale ).</p>
+ *
+ * <p>Each value keeps its own scale, so "1.50" is returned as "1.50" and not as "1.5".
+ * Just plain decimal values with until 18 digits are accepted: "-12.340", not "+1", "01", "-0" or "1E3".</p>
+ *
+ * <p>The values are kept in arrays of the heap, or in direct buffers out of the heap to the storage mode OFF_HEAP.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVNumericValues extends CSVColumnValues {
+
+    /**
+     * Maximum digits of a value, any value with 18 digits fits in a long
+     */
+    private static final int MAX_DIGITS = 18;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    /**
+     * Values multiplied by 10 ^ scale and the scale of each value as it was in the text
+     */
+    private final Storage storage;
+
+    /**
+     * Scale of the column, the biggest scale of the values
+     */
+    private int scale;
+
+    /**
+     * Biggest absolute unscaled value, used to know if the column can change its scale
+     */
+    private long maxAbsoluteValue;
+
+    private int size;
+
+    /**
+     * Where the unscaled values and the scales are kept
+     */
+    private abstract static class Storage {
+
+        abstract long unscaled(int index);
+
+        abstract void unscaled(int index, long value);
+
+        abstract byte scale(int index);
+
+        abstract void scale(int index, byte scale);
+
+        abstract int capacity();
+
+        /**
+         * Grows to the capacity keeping the first "size" values
+         */
+        abstract void grow(int capacity, int size);
+
+        /**
+         * Move "length" values from a position to other, the regions can overlap
+         */
+        abstract void move(int from, int to, int length);
+
+        void close() { }
+    }
+
+    /**
+     * Values in arrays of the heap
+     */
+    private static class HeapStorage extends Storage {
+
+        private long[] unscaledValues;
+
+        private byte[] scales;
+
+        HeapStorage(int capacity) {
+            unscaledValues = new long[capacity];
+            scales = new byte[capacity];
+        }
+
+        @Override long unscaled(int index)              { return unscaledValues[index]; }
+        @Override void unscaled(int index, long value)  { unscaledValues[index] = value; }
+        @Override byte scale(int index)                 { return scales[index]; }
+        @Override void scale(int index, byte scale)     { scales[index] = scale; }
+        @Override int capacity()                        { return unscaledValues.length; }
+
+        @Override
+        void grow(int capacity, int size) {
+            unscaledValues = Arrays.copyOf(unscaledValues, capacity);
+            scales = Arrays.copyOf(scales, capacity);
+        }
+
+        @Override
+        void move(int from, int to, int length) {
+            System.arraycopy(unscaledValues, from, unscaledValues, to, length);
+            System.arraycopy(scales, from, scales, to, length);
+        }
+    }
+
+    /**
+     * Values in direct buffers, out of the heap. The memory is released when the storage is closed.
+     */
+    private static class OffHeapStorage extends Storage {
+
+        /**
+         * Maximum values of a buffer of longs, the position of a byte of a buffer is an int
+         */
+        private static final int MAX_CAPACITY = Integer.MAX_VALUE / Long.BYTES;
+
+        private ByteBuffer unscaledValues;
+
+        private ByteBuffer scales;
+
+        OffHeapStorage(int capacity) {
+            unscaledValues = CSVOffHeapMemory.allocate(checkCapacity(capacity) * Long.BYTES);
+            scales = CSVOffHeapMemory.allocate(capacity);
+        }
+
+        /**
+         * Storage over buffers that already have the values, with the same capacity
+         */
+        OffHeapStorage(ByteBuffer unscaledValues, ByteBuffer scales) {
+            this.unscaledValues = unscaledValues;
+            this.scales = scales;
+        }
+
+        @Override long unscaled(int index)              { return unscaledValues.getLong(index << 3); }
+        @Override void unscaled(int index, long value)  { unscaledValues.putLong(index << 3, value); }
+        @Override byte scale(int index)                 { return scales.get(index); }
+        @Override void scale(int index, byte scale)     { scales.put(index, scale); }
+        @Override int capacity()                        { return scales.capacity(); }
+
+        @Override
+        void grow(int capacity, int size) {
+            ByteBuffer newUnscaledValues = CSVOffHeapMemory.allocate(checkCapacity(capacity) * Long.BYTES);
+            ByteBuffer newScales = CSVOffHeapMemory.allocate(capacity);
+            CSVOffHeapMemory.copy(unscaledValues, 0, newUnscaledValues, 0, size * Long.BYTES);
+            CSVOffHeapMemory.copy(scales, 0, newScales, 0, size);
+            close();
+            unscaledValues = newUnscaledValues;
+            scales = newScales;
+        }
+
+        @Override
+        void move(int from, int to, int length) {
+            CSVOffHeapMemory.copy(unscaledValues, from * Long.BYTES, unscaledValues, to * Long.BYTES, length * Long.BYTES);
+            CSVOffHeapMemory.copy(scales, from, scales, to, length);
+        }
+
+        @Override
+        void close() {
+            CSVOffHeapMemory.free(unscaledValues);
+            CSVOffHeapMemory.free(scales);
+            unscaledValues = null;
+            scales = null;
+        }
+
+        private static int checkCapacity(int capacity) {
+            if(capacity > MAX_CAPACITY)
+                throw new IllegalArgumentException("A numeric column out of the heap can not have more than "+MAX_CAPACITY+" values");
+            return capacity;
+        }
+    }
+
+    private CSVNumericValues(Storage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Create the numeric storage to the values, or return null if some value is not numeric
+     * @param values
+     * @return
+     */
+    static CSVNumericValues of(List<String> values) {
+        return of(values, false);
+    }
+
+    /**
+     * Create the numeric storage to the values out of the heap, or return null if some value is not numeric
+     * @param values
+     * @return
+     */
+    static CSVNumericValues ofOffHeap(List<String> values) {
+        return of(values, true);
+    }
+
+    private static CSVNumericValues of(List<String> values, boolean offHeap) {
+        int scale = 0;
+        for (String value : values) {
+            int valueScale = scaleOf(value);
+            if(valueScale < 0)
+                return null;
+            scale = Math.max(scale, valueScale);
+        }
+
+        int capacity = Math.max(values.size(), 10);
+        CSVNumericValues numericValues = new CSVNumericValues(offHeap ? new OffHeapStorage(capacity) : new HeapStorage(capacity));
+        numericValues.scale = scale;
+        for (String value : values) {
+            if(! numericValues.accepts(value)) {
+                numericValues.close();
+                return null;
+            }
+            numericValues.add(value);
+        }
+        return numericValues;
+    }
+
+    /**
+     * <p>Create the numeric storage over direct buffers that already have the values, like the buffers of a snapshot
+     * mapped in memory. The buffers need to be in the native byte order, the storage releases them when closed.</p>
+     *
+     * @param unscaledValues the values multiplied by 10 ^ scale, 8 bytes to each value
+     * @param scales the scale of each value as it was in the text, 1 byte to each value
+     * @param size
+     * @param scale the scale of the column
+     * @param maxAbsoluteValue the biggest absolute unscaled value
+     * @return
+     */
+    static CSVNumericValues ofBuffers(ByteBuffer unscaledValues, ByteBuffer scales, int size, int scale, long maxAbsoluteValue) {
+        if(unscaledValues.capacity() < size * Long.BYTES || scales.capacity() < size)
+            throw new IllegalArgumentException("The buffers do not have "+size+" values");
+        CSVNumericValues numericValues = new CSVNumericValues(new OffHeapStorage(unscaledValues, scales));
+        numericValues.size = size;
+        numericValues.scale = scale;
+        numericValues.maxAbsoluteValue = maxAbsoluteValue;
+        return numericValues;
+    }
+
+    /**
+     * If the value is a plain decimal value that keeps the same text when formatted
+     * @param value
+     * @return
+     */
+    static boolean isNumeric(String value) {
+        return scaleOf(value) >= 0;
+    }
+
+    /**
+     * Return the number of decimal places of value or -1 if the value can not be stored
+     */
+    private static int scaleOf(String value) {
+        int length = value.length();
+        int index = 0;
+        boolean negative = length > 0 && value.charAt(0) == '-';
+        if(negative)
+            index++;
+
+        int integerStart = index;
+        boolean zero = true;
+        while (index < length && isDigit(value.charAt(index))) {
+            zero &= value.charAt(index) == '0';
+            index++;
+        }
+        int integerDigits = index - integerStart;
+        if(integerDigits == 0 || (integerDigits > 1 && value.charAt(integerStart) == '0'))
+            return -1;
+
+        int valueScale = 0;
+        if(index < length) {
+            if(value.charAt(index) != '.')
+                return -1;
+            int fractionStart = ++index;
+            while (index < length && isDigit(value.charAt(index))) {
+                zero &= value.charAt(index) == '0';
+                index++;
+            }
+            valueScale = index - fractionStart;
+            if(index < length || valueScale == 0)
+                return -1;
+        }
+
+        if(integerDigits + valueScale > MAX_DIGITS || (negative && zero))
+            return -1;
+        return valueScale;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * The value without the decimal point, the value must be numeric.
+     */
+    private static long unscaledValueOf(String value) {
+        boolean negative = value.charAt(0) == '-';
+        long unscaled = 0;
+        for (int index = negative ? 1 : 0; index < value.length(); index++) {
+            char c = value.charAt(index);
+            if(c != '.')
+                unscaled = unscaled * 10 + (c - '0');
+        }
+        return negative ? -unscaled : unscaled;
+    }
+
+    /**
+     * The same text of the value before be stored
+     */
+    private static String format(long unscaled, int valueScale) {
+        if(valueScale == 0)
+            return Long.toString(unscaled);
+
+        StringBuilder builder = new StringBuilder(MAX_DIGITS + 3);
+        if(unscaled < 0)
+            builder.append('-');
+        String digits = Long.toString(Math.abs(unscaled));
+        for (int i = digits.length(); i <= valueScale; i++)
+            builder.append('0');
+        builder.append(digits);
+        builder.insert(builder.length() - valueScale, '.');
+        return builder.toString();
+    }
+
+    /**
+     * If the value fits in the column, change the scale of column if necessary
+     */
+    @Override
+    boolean accepts(String value) {
+        int valueScale = scaleOf(value);
+        if(valueScale < 0)
+            return false;
+
+        int newScale = Math.max(scale, valueScale);
+        long limit = POWERS_OF_TEN[MAX_DIGITS - (newScale - valueScale)];
+        if(Math.abs(unscaledValueOf(value)) >= limit)
+            return false;
+        return newScale == scale || maxAbsoluteValue < POWERS_OF_TEN[MAX_DIGITS - (newScale - scale)];
+    }
+
+    @Override
+    public String get(int index) {
+        checkIndex(index, size);
+        return format(valueUnscaled(index), storage.scale(index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String set(int index, String value) {
+        checkIndex(index, size);
+        String old = get(index);
+        store(index, value);
+        return old;
+    }
+
+    @Override
+    public void add(int index, String value) {
+        if(index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+        if(size == storage.capacity())
+            storage.grow(Math.max(storage.capacity() + (storage.capacity() >> 1), 10), size);
+        storage.move(index, index + 1, size - index);
+        size++;
+        store(index, value);
+        modCount++;
+    }
+
+    @Override
+    public String remove(int index) {
+        checkIndex(index, size);
+        String old = get(index);
+        storage.move(index + 1, index, size - index - 1);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    private void store(int index, String value) {
+        if(! accepts(value))
+            throw new IllegalArgumentException("value: \""+value+"\" can not be stored in a numeric column");
+
+        int valueScale = scaleOf(value);
+        if(valueScale > scale) {
+            long factor = POWERS_OF_TEN[valueScale - scale];
+            for (int i = 0; i < size; i++)
+                storage.unscaled(i, storage.unscaled(i) * factor);
+            maxAbsoluteValue *= factor;
+            scale = valueScale;
+        }
+
+        long unscaled = unscaledValueOf(value) * POWERS_OF_TEN[scale - valueScale];
+        storage.unscaled(index, unscaled);
+        storage.scale(index, (byte) valueScale);
+        maxAbsoluteValue = Math.max(maxAbsoluteValue, Math.abs(unscaled));
+    }
+
+    /**
+     * The unscaled value in its own scale
+     */
+    private long valueUnscaled(int index) {
+        return storage.unscaled(index) / POWERS_OF_TEN[scale - storage.scale(index)];
+    }
+
+    /**
+     * The value multiplied by 10 ^ scale of the column
+     * @param index
+     * @return
+     */
+    long getUnscaled(int index) {
+        checkIndex(index, size);
+        return storage.unscaled(index);
+    }
+
+    /**
+     * The number of decimal places of the text of the value
+     * @param index
+     * @return
+     */
+    int getScale(int index) {
+        checkIndex(index, size);
+        return storage.scale(index);
+    }
+
+    /**
+     * The scale of the column, the biggest scale of the values
+     * @return
+     */
+    int getScale() {
+        return scale;
+    }
+
+    long getMaxAbsoluteValue() {
+        return maxAbsoluteValue;
+    }
+
+    /**
+     * The value as BigDecimal, with the same scale of the text of value
+     * @param index
+     * @return
+     */
+    BigDecimal getBigDecimal(int index) {
+        checkIndex(index, size);
+        return BigDecimal.valueOf(valueUnscaled(index), storage.scale(index));
+    }
+
+    /**
+     * Add the value to the accumulator as long, without convert it to BigDecimal
+     * @param accumulator
+     * @param index
+     */
+    void accumulate(CSVStatisticsAccumulator accumulator, int index) {
+        checkIndex(index, size);
+        accumulator.add(storage.unscaled(index), scale, storage.scale(index));
+    }
+
+    /**
+     * If the double values keep the order of the values, what happens when no value has more than 15 digits
+     * @return
+     */
+    boolean hasExactDoubleOrder() {
+        return maxAbsoluteValue < POWERS_OF_TEN[15];
+    }
+
+    /**
+     * The value as double
+     * @param index
+     * @return
+     */
+    double getDouble(int index) {
+        checkIndex(index, size);
+        return scale == 0 ? storage.unscaled(index) : storage.unscaled(index) / (double) POWERS_OF_TEN[scale];
+    }
+
+    /**
+     * Sum all values, without convert them to BigDecimal.
+     * The sum has the biggest scale of the values summed, as the sum of the values as BigDecimal
+     * @return
+     */
+    BigDecimal sum() {
+        if(size == 0)
+            return BigDecimal.ZERO;
+        long total = 0;
+        int valuesScale = 0;
+        for (int index = 0; index < size; index++) {
+            valuesScale = Math.max(valuesScale, storage.scale(index));
+            long value = storage.unscaled(index);
+            long result = total + value;
+            // overflow, sum using BigInteger
+            if(((total ^ result) & (value ^ result)) < 0)
+                return sumBig(index, BigInteger.valueOf(total), valuesScale, null);
+            total = result;
+        }
+        return toValuesScale(BigDecimal.valueOf(total, scale), valuesScale);
+    }
+
+    /**
+     * Sum the values of specific positions
+     * @param indexes
+     * @return
+     */
+    BigDecimal sum(int[] indexes) {
+        if(indexes.length == 0)
+            return BigDecimal.ZERO;
+        long total = 0;
+        int valuesScale = 0;
+        for (int count = 0; count < indexes.length; count++) {
+            int index = indexes[count];
+            checkIndex(index, size);
+            valuesScale = Math.max(valuesScale, storage.scale(index));
+            long value = storage.unscaled(index);
+            long result = total + value;
+            if(((total ^ result) & (value ^ result)) < 0)
+                return sumBig(count, BigInteger.valueOf(total), valuesScale, indexes);
+            total = result;
+        }
+        return toValuesScale(BigDecimal.valueOf(total, scale), valuesScale);
+    }
+
+    private BigDecimal sumBig(int from, BigInteger total, int valuesScale, int[] indexes) {
+        int end = indexes == null ? size : indexes.length;
+        for (int count = from; count < end; count++) {
+            int index = indexes == null ? count : indexes[count];
+            valuesScale = Math.max(valuesScale, storage.scale(index));
+            total = total.add(BigInteger.valueOf(storage.unscaled(index)));
+        }
+        return toValuesScale(new BigDecimal(total, scale), valuesScale);
+    }
+
+    /**
+     * The column scale can be bigger than the scale of the values summed, the digits removed are always zero
+     */
+    private BigDecimal toValuesScale(BigDecimal total, int valuesScale) {
+        return valuesScale == scale ? total : total.setScale(valuesScale, RoundingMode.UNNECESSARY);
+    }
+
+    @Override
+    int count(String matchingValue) {
+        int valueScale = scaleOf(matchingValue);
+        if(valueScale < 0 || valueScale > scale || ! accepts(matchingValue))
+            return 0;
+        long unscaled = unscaledValueOf(matchingValue) * POWERS_OF_TEN[scale - valueScale];
+        int total = 0;
+        for (int index = 0; index < size; index++) {
+            if(storage.unscaled(index) == unscaled && storage.scale(index) == valueScale)
+                total++;
+        }
+        return total;
+    }
+
+    /**
+     * The matching value is converted to a long once, and the values are compared without convert them to text
+     */
+    @Override
+    int[] indexesOf(String matchingValue) {
+        int valueScale = scaleOf(matchingValue);
+        if(valueScale < 0 || valueScale > scale || ! accepts(matchingValue))
+            return new int[0];
+        long unscaled = unscaledValueOf(matchingValue) * POWERS_OF_TEN[scale - valueScale];
+        int[] indexes = new int[16];
+        int count = 0;
+        for (int index = 0; index < size; index++) {
+            if(storage.unscaled(index) == unscaled && storage.scale(index) == valueScale) {
+                if(count == indexes.length)
+                    indexes = Arrays.copyOf(indexes, count * 2);
+                indexes[count++] = index;
+            }
+        }
+        return Arrays.copyOf(indexes, count);
+    }
+
+    /**
+     * A numeric column out of the heap that receives a value that is not numeric keeps the values out of the heap, as text
+     */
+    @Override
+    List<String> uncompact() {
+        if(! (storage instanceof OffHeapStorage))
+            return super.uncompact();
+        List<String> textValues = CSVOffHeapTextValues.of(this);
+        close();
+        return textValues;
+    }
+
+    /**
+     * Release the memory out of the heap, the column is empty after it
+     */
+    @Override
+    void close() {
+        if(storage instanceof OffHeapStorage) {
+            storage.close();
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVOffHeapMemory
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>Allocate and release memory out of the heap, used by the storage mode OFF_HEAP.</p>
+ *
+ * <p>Direct buffers are released by the garbage collector when they are not used anymore, which can take a long time
+ * to buffers that live long. To release the memory when the data set is closed, the cleaner of the buffer is called
+ * directly. If the JVM does not allow it, the memory is left to the garbage collector.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+final class CSVOffHeapMemory {
+
+    /**
+     * Size of the blocks copied when the source and destination are the same memory
+     */
+    private static final int COPY_BLOCK_SIZE = 64 * 1024;
+
+    private static final Object UNSAFE;
+
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private CSVOffHeapMemory() { }
+
+    /**
+     * A direct buffer with the capacity, in the native byte order
+     * @param capacity
+     * @return
+     */
+    static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Release the memory of a direct buffer. The buffer must not be used after it.
+     * @param buffer
+     */
+    static void free(ByteBuffer buffer) {
+        if(buffer == null || ! buffer.isDirect() || INVOKE_CLEANER == null)
+            return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // the garbage collector releases it
+        }
+    }
+
+    /**
+     * Copy bytes between buffers, or inside the same buffer when the regions overlap
+     */
+    static void copy(ByteBuffer source, int sourcePosition, ByteBuffer destination, int destinationPosition, int length) {
+        if(length <= 0)
+            return;
+
+        if(source != destination) {
+            ByteBuffer from = source.duplicate();
+            from.position(sourcePosition).limit(sourcePosition + length);
+            ByteBuffer to = destination.duplicate();
+            to.position(destinationPosition);
+            to.put(from);
+            return;
+        }
+
+        byte[] block = new byte[Math.min(length, COPY_BLOCK_SIZE)];
+        boolean backward = destinationPosition > sourcePosition;
+        for (int copied = 0; copied < length; copied += block.length) {
+            int blockLength = Math.min(block.length, length - copied);
+            int offset = backward ? length - copied - blockLength : copied;
+            ByteBuffer from = source.duplicate();
+            from.position(sourcePosition + offset);
+            from.get(block, 0, blockLength);
+            ByteBuffer to = destination.duplicate();
+            to.position(destinationPosition + offset);
+            to.put(block, 0, blockLength);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVOffHeapTextValues
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Text values of a column stored out of the heap, used by the storage mode OFF_HEAP.</p>
+ *
+ * <p>The bytes of the values ( UTF-8 ) are appended to blocks of an arena, and a table keeps the block,
+ * offset and length of the value of each position. Both are direct buffers, the heap keeps just the references
+ * to them. The space of values removed or replaced is not reused, it is released when the column is closed.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVOffHeapTextValues extends CSVColumnValues {
+
+    /**
+     * Maximum size of a block of the arena, a value is never split between blocks
+     */
+    static final int BLOCK_SIZE = 1 << 24;
+
+    /**
+     * Size of the first block, each new block has the double of the size of the last one until BLOCK_SIZE
+     */
+    private static final int FIRST_BLOCK_SIZE = 4096;
+
+    /**
+     * Bytes of each entry of the table: block ( int ), offset ( int ) and length ( int )
+     */
+    static final int ENTRY_SIZE = 12;
+
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE / ENTRY_SIZE;
+
+    private final List<ByteBuffer> blocks = new ArrayList<>();
+
+    /**
+     * Position to the next value of the last block
+     */
+    private int blockPosition;
+
+    private ByteBuffer table;
+
+    private int size;
+
+    private CSVOffHeapTextValues(int capacity) {
+        table = CSVOffHeapMemory.allocate(checkCapacity(capacity) * ENTRY_SIZE);
+    }
+
+    /**
+     * Store the values out of the heap
+     * @param values
+     * @return
+     */
+    static CSVOffHeapTextValues of(List<String> values) {
+        CSVOffHeapTextValues textValues = new CSVOffHeapTextValues(Math.max(values.size(), 10));
+        for (String value : values)
+            textValues.add(value);
+        return textValues;
+    }
+
+    /**
+     * <p>Create the text storage over direct buffers that already have the values, like the buffers of a snapshot
+     * mapped in memory. The buffers need to be in the native byte order, the storage releases them when closed.</p>
+     *
+     * <p>The table has an entry of ENTRY_SIZE bytes to each value: the index of its block, its offset in the block
+     * and its length. New values are added in new blocks.</p>
+     *
+     * @param table
+     * @param blocks
+     * @param size
+     * @return
+     */
+    static CSVOffHeapTextValues ofBuffers(ByteBuffer table, List<ByteBuffer> blocks, int size) {
+        if(table.capacity() < size * ENTRY_SIZE)
+            throw new IllegalArgumentException("The table does not have "+size+" values");
+        CSVOffHeapTextValues textValues = new CSVOffHeapTextValues(0);
+        CSVOffHeapMemory.free(textValues.table);
+        textValues.table = table;
+        textValues.blocks.addAll(blocks);
+        textValues.blockPosition = blocks.isEmpty() ? 0 : blocks.get(blocks.size() - 1).capacity();
+        textValues.size = size;
+        return textValues;
+    }
+
+    /**
+     * Any value can be stored as text, except null
+     */
+    @Override
+    boolean accepts(String value) {
+        return value != null;
+    }
+
+    @Override
+    public String get(int index) {
+        checkIndex(index, size);
+        int entry = index * ENTRY_SIZE;
+        int length = table.getInt(entry + 8);
+        if(length == 0)
+            return "";
+        ByteBuffer block = blocks.get(table.getInt(entry)).duplicate();
+        block.position(table.getInt(entry + 4));
+        byte[] bytes = new byte[length];
+        block.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String set(int index, String value) {
+        checkIndex(index, size);
+        String old = get(index);
+        store(index, value);
+        return old;
+    }
+
+    @Override
+    public void add(int index, String value) {
+        if(index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+        int capacity = table.capacity() / ENTRY_SIZE;
+        if(size == capacity) {
+            ByteBuffer newTable = CSVOffHeapMemory.allocate(checkCapacity(Math.max(capacity + (capacity >> 1), 10)) * ENTRY_SIZE);
+            CSVOffHeapMemory.copy(table, 0, newTable, 0, size * ENTRY_SIZE);
+            CSVOffHeapMemory.free(table);
+            table = newTable;
+        }
+        CSVOffHeapMemory.copy(table, index * ENTRY_SIZE, table, (index + 1) * ENTRY_SIZE, (size - index) * ENTRY_SIZE);
+        size++;
+        store(index, value);
+        modCount++;
+    }
+
+    @Override
+    public String remove(int index) {
+        checkIndex(index, size);
+        String old = get(index);
+        CSVOffHeapMemory.copy(table, (index + 1) * ENTRY_SIZE, table, index * ENTRY_SIZE, (size - index - 1) * ENTRY_SIZE);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    /**
+     * Append the bytes of the value to the arena and point the entry of the position to them
+     */
+    private void store(int index, String value) {
+        if(! accepts(value))
+            throw new IllegalArgumentException("value: \""+value+"\" can not be stored in a text column");
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length > BLOCK_SIZE)
+            throw new IllegalArgumentException("A value out of the heap can not have more than "+BLOCK_SIZE+" bytes");
+
+        if(blocks.isEmpty() || blockPosition + bytes.length > blocks.get(blocks.size() - 1).capacity()) {
+            int blockSize = blocks.isEmpty() ? FIRST_BLOCK_SIZE : Math.min(BLOCK_SIZE, blocks.get(blocks.size() - 1).capacity() * 2);
+            blocks.add(CSVOffHeapMemory.allocate(Math.max(blockSize, bytes.length)));
+            blockPosition = 0;
+        }
+
+        ByteBuffer block = blocks.get(blocks.size() - 1).duplicate();
+        block.position(blockPosition);
+        block.put(bytes);
+
+        int entry = index * ENTRY_SIZE;
+        table.putInt(entry, blocks.size() - 1);
+        table.putInt(entry + 4, blockPosition);
+        table.putInt(entry + 8, bytes.length);
+        blockPosition += bytes.length;
+    }
+
+    private static int checkCapacity(int capacity) {
+        if(capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("A text column out of the heap can not have more than "+MAX_CAPACITY+" values");
+        return capacity;
+    }
+
+    /**
+     * Release the memory out of the heap, the column is empty after it
+     */
+    @Override
+    void close() {
+        for (ByteBuffer block : blocks)
+            CSVOffHeapMemory.free(block);
+        blocks.clear();
+        CSVOffHeapMemory.free(table);
+        table = CSVOffHeapMemory.allocate(0);
+        size = 0;
+    }
+}
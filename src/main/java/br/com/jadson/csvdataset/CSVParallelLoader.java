@@ -0,0 +1,371 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVParallelLoader
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Read a CSV file in parallel.</p>
+ *
+ * <p>The file is split in chunks of bytes that end in a line break outside double quotes,
+ * so each chunk contains just complete records. Each chunk is read by a {@link CSVMappedTokenizer} in a task
+ * of the ForkJoinPool and the chunks are returned in the same order of the file. The values of each chunk are
+ * kept by column, so they are added to the columns of the data set without keep a copy of the file as rows.</p>
+ *
+ * <p>To know if a line break is inside quotes, each part of the file is first read in parallel by the
+ * {@link CSVStateMachine} of the tokenizers, once for each state the part can start in. Resolving the parts
+ * in order gives the real state at each split point, so the records are split exactly as the tokenizer does,
+ * even when a double quote in the middle of a unquoted field is followed by quoted line breaks.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVParallelLoader {
+
+    /**
+     * Files smaller than this are not split
+     */
+    static final long DEFAULT_MIN_CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Chunks are mapped at once, so they can not be bigger than 2GB
+     */
+    private static final long MAX_CHUNK_SIZE = 1024 * 1024 * 1024;
+
+    /**
+     * Size of the window used to look for the line break after the nominal split point
+     */
+    private static final int SCAN_WINDOW_SIZE = 64 * 1024;
+
+    /**
+     * Records of a chunk of the file, stored by column
+     */
+    static class Chunk {
+
+        /** first value of each record, when the CSV contains rows headers */
+        final List<String> rowsHeaders = new ArrayList<>();
+
+        /** values of each column, without the row header. All records of a chunk have the same size */
+        final List<List<String>> columns = new ArrayList<>();
+
+        int rowCount;
+
+        /**
+         * The values of a record of the chunk, without the row header
+         * @param row
+         * @return
+         */
+        List<String> getRow(int row) {
+            List<String> values = new ArrayList<>(columns.size());
+            for (List<String> column : columns) {
+                values.add(column.get(row));
+            }
+            return values;
+        }
+    }
+
+    private final Path file;
+
+    private final char separator;
+
+    private final boolean containsColumnsHeaders;
+
+    private final boolean containsRowsHeaders;
+
+    private final ForkJoinPool pool;
+
+    private final long minChunkSize;
+
+    /**
+     * Values of the first record of the file, when it contains the columns headers
+     */
+    private List<String> header;
+
+
+    public CSVParallelLoader(Path file, char separator, boolean containsColumnsHeaders, boolean containsRowsHeaders, ForkJoinPool pool) {
+        this(file, separator, containsColumnsHeaders, containsRowsHeaders, pool, DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    CSVParallelLoader(Path file, char separator, boolean containsColumnsHeaders, boolean containsRowsHeaders, ForkJoinPool pool, long minChunkSize) {
+        if(pool == null)
+            throw new IllegalArgumentException("ForkJoinPool can't be null");
+        if(minChunkSize <= 0)
+            throw new IllegalArgumentException("Invalid chunk size: "+minChunkSize);
+        this.file = file;
+        this.separator = separator;
+        this.containsColumnsHeaders = containsColumnsHeaders;
+        this.containsRowsHeaders = containsRowsHeaders;
+        this.pool = pool;
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * Read all records of the file
+     * @return the chunks in the order of the file
+     * @throws IOException
+     */
+    public List<Chunk> load() throws IOException {
+
+        long dataStart = 0;
+        long size;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            // the data starts after the byte order mark, it is skipped by the tokenizer of the first chunk
+            ByteBuffer bom = ByteBuffer.allocate(3);
+            if(channel.read(bom, 0) == 3 && CSVStateMachine.isByteOrderMark(bom.get(0), bom.get(1), bom.get(2)))
+                dataStart = 3;
+        }
+
+        // the header is read before, the chunks contain just data
+        if(containsColumnsHeaders) {
+            try (CSVMappedTokenizer tokenizer = new CSVMappedTokenizer(file, separator)) {
+                if(tokenizer.nextRecord()) {
+                    header = tokenizer.getFields();
+                    dataStart = tokenizer.getPosition();
+                }
+            }
+        }
+
+        long[] splitPoints = splitPoints(dataStart, size);
+
+        List<Callable<Chunk>> tasks = new ArrayList<>();
+        for (int index = 0; index < splitPoints.length - 1; index++) {
+            long start = splitPoints[index];
+            long end = splitPoints[index+1];
+            tasks.add( () -> readChunk(start, end) );
+        }
+
+        return invokeAll(tasks);
+    }
+
+    /**
+     * Values of the first record of the file, when it contains the columns headers
+     * @return
+     */
+    public List<String> getHeader() {
+        return header;
+    }
+
+    /**
+     * Split the data between start and end offsets in parts that finish in a line break outside quotes.
+     *
+     * @return offsets where each chunk starts, the last element is the end of the data
+     */
+    long[] splitPoints(long start, long end) throws IOException {
+
+        long length = end - start;
+
+        int chunkCount = (int) Math.max(1, Math.min( pool.getParallelism() * 4L, length / minChunkSize));
+        while (length / chunkCount > MAX_CHUNK_SIZE)
+            chunkCount *= 2;
+
+        long[] nominalPoints = new long[chunkCount + 1];
+        for (int index = 0; index <= chunkCount; index++) {
+            nominalPoints[index] = start + length * index / chunkCount;
+        }
+
+        if(chunkCount == 1)
+            return nominalPoints;
+
+        // first find the state at the end of each part for each state it can start in
+        List<Callable<int[]>> scanTasks = new ArrayList<>();
+        for (int index = 0; index < chunkCount - 1; index++) {
+            long partStart = nominalPoints[index];
+            long partEnd = nominalPoints[index+1];
+            scanTasks.add( () -> endStates(partStart, partEnd) );
+        }
+        List<int[]> endStates = invokeAll(scanTasks);
+
+        // the data starts in a record start, the state at each nominal point is the end state of the part before it
+        List<Callable<Long>> boundaryTasks = new ArrayList<>();
+        int state = CSVStateMachine.FIELD_START;
+        for (int index = 1; index < chunkCount; index++) {
+            state = endStates.get(index - 1)[state];
+            long nominalPoint = nominalPoints[index];
+            int stateAtPoint = state;
+            boundaryTasks.add( () -> nextRecordStart(nominalPoint, end, stateAtPoint) );
+        }
+        List<Long> boundaries = invokeAll(boundaryTasks);
+
+        // a long record can make two boundaries be the same, remove duplicated points
+        List<Long> points = new ArrayList<>();
+        points.add(start);
+        for (Long boundary : boundaries) {
+            if(boundary > points.get(points.size() - 1) && boundary < end)
+                points.add(boundary);
+        }
+        points.add(end);
+
+        long[] splitPoints = new long[points.size()];
+        for (int index = 0; index < splitPoints.length; index++) {
+            splitPoints[index] = points.get(index);
+        }
+        return splitPoints;
+    }
+
+    private Chunk readChunk(long start, long end) throws IOException {
+
+        Chunk chunk = new Chunk();
+
+        int windowSize = (int) Math.min(CSVMappedTokenizer.DEFAULT_WINDOW_SIZE, Math.max(end - start, 1));
+
+        try (CSVMappedTokenizer tokenizer = new CSVMappedTokenizer(file, separator, start, end, windowSize)) {
+
+            int firstField = containsRowsHeaders ? 1 : 0;
+
+            while (tokenizer.nextRecord()) {
+
+                if(containsRowsHeaders)
+                    chunk.rowsHeaders.add(tokenizer.getField(0));
+
+                int rowSize = tokenizer.getFieldCount() - firstField;
+
+                // the first record defines the columns of the chunk
+                if(chunk.rowCount == 0) {
+                    for (int column = 0; column < rowSize; column++) {
+                        chunk.columns.add(new ArrayList<>());
+                    }
+                } else if(rowSize != chunk.columns.size()) {
+                    throw new IllegalArgumentException("Invalid number of row elements: "+rowSize+". Rows should have: "  + chunk.columns.size()+" elements. ");
+                }
+
+                for (int column = 0; column < rowSize; column++) {
+                    chunk.columns.get(column).add(tokenizer.getField(firstField + column));
+                }
+                chunk.rowCount++;
+            }
+        }
+
+        return chunk;
+    }
+
+    /**
+     * Read a part of the file with a state machine started in each possible state
+     *
+     * @return the state at the end of the part, for each state in the start of it
+     */
+    private int[] endStates(long start, long end) throws IOException {
+
+        CSVStateMachine[] machines = new CSVStateMachine[CSVStateMachine.STATE_COUNT];
+        for (int state = 0; state < machines.length; state++) {
+            machines[state] = new CSVStateMachine(separator, state);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            int limit = buffer.limit();
+            int index = 0;
+
+            // the machines usually reach the same state after the first line break, then just one is needed
+            boolean sameState = false;
+            while (index < limit && ! sameState) {
+                byte b = buffer.get(index++);
+                sameState = true;
+                for (CSVStateMachine machine : machines) {
+                    machine.next(b);
+                    sameState &= machine.getState() == machines[0].getState();
+                }
+            }
+
+            if (sameState) {
+                CSVStateMachine machine = machines[0];
+                while (index < limit) {
+                    machine.next(buffer.get(index++));
+                }
+                Arrays.fill(machines, machine);
+            }
+        }
+
+        int[] endStates = new int[machines.length];
+        for (int state = 0; state < machines.length; state++) {
+            endStates[state] = machines[state].getState();
+        }
+        return endStates;
+    }
+
+    /**
+     * Offset after the first line break that ends a record from "position"
+     *
+     * @param state state of the tokenizer at "position"
+     */
+    private long nextRecordStart(long position, long end, int state) throws IOException {
+
+        CSVStateMachine machine = new CSVStateMachine(separator, state);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            while (position < end) {
+
+                int length = (int) Math.min(SCAN_WINDOW_SIZE, end - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                for (int index = 0; index < length; index++) {
+                    byte b = buffer.get(index);
+                    machine.next(b);
+                    if((b == '\n' || b == '\r') && machine.getState() == CSVStateMachine.FIELD_START)
+                        return position + index + 1;
+                }
+
+                position += length;
+            }
+        }
+
+        return end;
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Load of file "+file+" interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof IOException)
+                throw (IOException) cause;
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+        return results;
+    }
+}
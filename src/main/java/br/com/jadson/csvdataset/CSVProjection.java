@@ -0,0 +1,166 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVProjection
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>The columns of a CSV file that are loaded to memory.</p>
+ *
+ * <p>Columns can be chosen by header label or by position. The position is the same used by the data set,
+ * where the rows headers are not a column. The selected columns keep the order of the file.</p>
+ *
+ * <p>The projection tells to the tokenizer which fields are used, so the values of the other columns
+ * are skipped while the file is read and no String is created to them.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVProjection {
+
+    private final List<String> columnLabels;
+
+    private final int[] columnPositions;
+
+    private final boolean containsRowsHeaders;
+
+    /**
+     * Selected fields of a record of file, including the row header field
+     */
+    private boolean[] selectedFields;
+
+    /**
+     * Number of fields of each record, -1 if the file has no columns headers
+     */
+    private int recordSize = -1;
+
+
+    private CSVProjection(List<String> columnLabels, int[] columnPositions, boolean containsRowsHeaders) {
+        this.columnLabels = columnLabels;
+        this.columnPositions = columnPositions;
+        this.containsRowsHeaders = containsRowsHeaders;
+    }
+
+    public static CSVProjection ofLabels(List<String> columnLabels, boolean containsRowsHeaders) {
+        if(columnLabels == null || columnLabels.size() == 0 )
+            throw new IllegalArgumentException("There is no column to load");
+        return new CSVProjection(columnLabels, null, containsRowsHeaders);
+    }
+
+    public static CSVProjection ofPositions(int[] columnPositions, boolean containsRowsHeaders) {
+        if(columnPositions == null || columnPositions.length == 0 )
+            throw new IllegalArgumentException("There is no column to load");
+        return new CSVProjection(null, columnPositions, containsRowsHeaders);
+    }
+
+    /**
+     * Find the fields of the selected columns.
+     *
+     * @param columnsHeaders header labels of the file, without the cross header. Null if the file has no columns headers.
+     */
+    public void bind(List<String> columnsHeaders) {
+
+        int offset = containsRowsHeaders ? 1 : 0;
+
+        if(columnsHeaders != null)
+            recordSize = columnsHeaders.size() + offset;
+
+        List<Integer> fields = new ArrayList<>();
+
+        if(columnLabels != null) {
+            if(columnsHeaders == null)
+                throw new IllegalArgumentException("Columns can be selected by label just if the CSV contains columns headers");
+            for (String columnLabel : columnLabels) {
+                int columnPosition = columnsHeaders.indexOf(columnLabel);
+                if(columnPosition < 0)
+                    throw new IllegalArgumentException("There is not column: "+columnLabel);
+                fields.add(columnPosition + offset);
+            }
+        } else {
+            for (int columnPosition : columnPositions) {
+                if(columnPosition < 0 || ( columnsHeaders != null && columnPosition >= columnsHeaders.size() ) )
+                    throw new IllegalArgumentException("Column with Position \""+columnPosition+"\" does not exits");
+                fields.add(columnPosition + offset);
+            }
+        }
+
+        int size = offset;
+        for (Integer field : fields) {
+            size = Math.max(size, field + 1);
+        }
+
+        selectedFields = new boolean[size];
+        if(containsRowsHeaders)
+            selectedFields[0] = true;
+        for (Integer field : fields) {
+            selectedFields[field] = true;
+        }
+    }
+
+    /**
+     * Fields of records used by the projection, to be informed to tokenizer
+     * @return
+     */
+    public boolean[] getSelectedFields() {
+        return selectedFields;
+    }
+
+    /**
+     * Return the header labels of selected columns
+     * @param columnsHeaders
+     * @return
+     */
+    public List<String> selectHeaders(List<String> columnsHeaders) {
+        int offset = containsRowsHeaders ? 1 : 0;
+        List<String> selected = new ArrayList<>();
+        for (int field = offset; field < selectedFields.length; field++) {
+            if(selectedFields[field])
+                selected.add(columnsHeaders.get(field - offset));
+        }
+        return selected;
+    }
+
+    /**
+     * Return the values of the selected fields of the current record of the tokenizer, including the row header
+     * @param tokenizer
+     * @return
+     */
+    public List<String> selectValues(CSVTokenizer tokenizer) {
+
+        if(recordSize >= 0 && tokenizer.getFieldCount() != recordSize)
+            throw new IllegalArgumentException("Invalid number of row elements: "+tokenizer.getFieldCount()+". Not same size of column headers elements: "  + recordSize);
+
+        if(tokenizer.getFieldCount() < selectedFields.length)
+            throw new IllegalArgumentException("Column with Position \""+(selectedFields.length - 1 - (containsRowsHeaders ? 1 : 0))+"\" does not exits");
+
+        List<String> values = new ArrayList<>();
+        for (int field = 0; field < selectedFields.length; field++) {
+            if(selectedFields[field])
+                values.add(tokenizer.getField(field));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVQuantileSketch
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * <p>Approximate percentiles of a big number of values, keeping just a small sample of them in memory ( KLL sketch ).</p>
+ *
+ * <p>Values are added one by one, so the sketch can be built while the rows of a file are read, without load the file:</p>
+ *
+ * <pre>
+ * CSVQuantileSketch sketch = new CSVQuantileSketch();
+ * dataSet.forEachRow( row -&gt; sketch.add( row.getValue("latency") ) );
+ * sketch.getPercentile(99);
+ * </pre>
+ *
+ * <p>Sketches of different chunks or files can be merged. The error of the rank of a percentile is around
+ * 1.7 / k of the number of values ( about 1% with the default k = 200 ), and the memory used depends on k, not on the
+ * number of values.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+public class CSVQuantileSketch {
+
+    public static final int DEFAULT_K = 200;
+
+    /**
+     * Each level below keeps this fraction of the items of the level above
+     */
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+    private final int k;
+
+    /**
+     * Items of each level, an item of level h represents 2 ^ h values
+     */
+    private final List<Level> levels = new ArrayList<>();
+
+    /**
+     * Maximum items kept before compact some level
+     */
+    private int maxSize;
+
+    /**
+     * Items kept in all levels
+     */
+    private int size;
+
+    /**
+     * Number of values added
+     */
+    private long count;
+
+    private double min = Double.NaN;
+
+    private double max = Double.NaN;
+
+    private final SplittableRandom random = new SplittableRandom();
+
+    /**
+     * Items of a level of the sketch
+     */
+    private static class Level {
+
+        private double[] items = new double[8];
+
+        private int size;
+
+        private void add(double item) {
+            if(size == items.length)
+                items = Arrays.copyOf(items, size * 2);
+            items[size++] = item;
+        }
+    }
+
+    public CSVQuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * @param k bigger values of k give more accurate percentiles and use more memory
+     */
+    public CSVQuantileSketch(int k) {
+        if(k < 8)
+            throw new IllegalArgumentException("k should be at least 8");
+        this.k = k;
+        grow();
+    }
+
+    /**
+     * Add a value
+     * @param value
+     * @return this sketch
+     */
+    public CSVQuantileSketch add(double value) {
+        if(Double.isNaN(value))
+            throw new IllegalArgumentException("Value can't be NaN");
+
+        levels.get(0).add(value);
+        size++;
+        count++;
+        min = count == 1 || value < min ? value : min;
+        max = count == 1 || value > max ? value : max;
+
+        if(size >= maxSize)
+            compress();
+        return this;
+    }
+
+    public CSVQuantileSketch add(BigDecimal value) {
+        if(value == null)
+            throw new IllegalArgumentException("Value can't be null");
+        return add(value.doubleValue());
+    }
+
+    /**
+     * Add a numeric value
+     * @param value
+     * @return this sketch
+     */
+    public CSVQuantileSketch add(String value) {
+        if(value == null)
+            throw new IllegalArgumentException("Value can't be null");
+        try {
+            return add(Double.parseDouble(value));
+        }catch(NumberFormatException nfe){
+            throw new NumberFormatException("value: \""+value+"\" is not a numeric value");
+        }
+    }
+
+    /**
+     * Add all values of other sketch to this sketch
+     * @param other
+     * @return this sketch
+     */
+    public CSVQuantileSketch merge(CSVQuantileSketch other) {
+        if(other == null)
+            throw new IllegalArgumentException("Sketch can't be null");
+        if(other.count == 0)
+            return this;
+
+        while (levels.size() < other.levels.size())
+            grow();
+
+        for (int h = 0; h < other.levels.size(); h++) {
+            Level otherLevel = other.levels.get(h);
+            for (int i = 0; i < otherLevel.size; i++)
+                levels.get(h).add(otherLevel.items[i]);
+            size += otherLevel.size;
+        }
+
+        min = count == 0 || other.min < min ? other.min : min;
+        max = count == 0 || other.max > max ? other.max : max;
+        count += other.count;
+
+        while (size >= maxSize)
+            compress();
+        return this;
+    }
+
+    /**
+     * <p>Return the approximate percentile of the values.</p>
+     *
+     * <p>The percentiles 0 and 100 are the exact minimum and maximum.</p>
+     *
+     * @param percentile between 0 and 100
+     * @return
+     */
+    public double getPercentile(double percentile) {
+        if(Double.isNaN(percentile) || percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("Percentile should be between 0 and 100: "+percentile);
+        if(count == 0)
+            throw new ArithmeticException("Sketch has no elements");
+        if(percentile == 0)
+            return min;
+        if(percentile == 100)
+            return max;
+
+        // all items with their weights, sorted by item
+        double[] items = new double[size];
+        long[] weights = new long[size];
+        int total = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            Level level = levels.get(h);
+            Arrays.sort(level.items, 0, level.size);
+            total = mergeSorted(items, weights, total, level, 1L << h);
+        }
+
+        double rank = percentile / 100 * count;
+        long cumulative = 0;
+        for (int i = 0; i < total; i++) {
+            cumulative += weights[i];
+            if(cumulative >= rank)
+                return items[i];
+        }
+        return max;
+    }
+
+    public double getMedian() {
+        return getPercentile(50);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Merge the sorted items of a level with the items already sorted
+     */
+    private static int mergeSorted(double[] items, long[] weights, int total, Level level, long weight) {
+        int i = total - 1;
+        int j = level.size - 1;
+        int position = total + level.size - 1;
+        while (j >= 0) {
+            if(i >= 0 && items[i] > level.items[j]) {
+                items[position] = items[i];
+                weights[position--] = weights[i--];
+            }else {
+                items[position] = level.items[j--];
+                weights[position--] = weight;
+            }
+        }
+        return total + level.size;
+    }
+
+    /**
+     * Compact the first level that is full: sort it and move half of its items to the next level
+     */
+    private void compress() {
+        for (int h = 0; h < levels.size(); h++) {
+            Level level = levels.get(h);
+            if(level.size >= capacity(h)) {
+                if(h + 1 >= levels.size())
+                    grow();
+                Level next = levels.get(h + 1);
+
+                Arrays.sort(level.items, 0, level.size);
+                // with a odd number of items, the first one stays in this level
+                int start = level.size % 2 + (random.nextBoolean() ? 1 : 0);
+                for (int i = start; i < level.size; i += 2)
+                    next.add(level.items[i]);
+
+                int kept = level.size % 2;
+                size -= level.size - kept - (level.size - start + 1) / 2;
+                level.size = kept;
+
+                if(size < maxSize)
+                    break;
+            }
+        }
+    }
+
+    private void grow() {
+        levels.add(new Level());
+        maxSize = 0;
+        for (int h = 0; h < levels.size(); h++)
+            maxSize += capacity(h);
+    }
+
+    private int capacity(int h) {
+        int depth = levels.size() - h - 1;
+        return Math.max(2, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    @Override
+    public String toString() {
+        return "CSVQuantileSketch{" + "k=" + k + ", count=" + count + ", items=" + size + '}';
+    }
+}
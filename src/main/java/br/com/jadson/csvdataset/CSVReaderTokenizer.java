@@ -0,0 +1,203 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVReaderTokenizer
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * <p>Tokenizer that reads the characters of the CSV from a {@link Reader}.</p>
+ *
+ * <p>The fields of the current record are stored one after another in a reusable buffer,
+ * Strings are created just when some field is requested.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVReaderTokenizer extends CSVTokenizer {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+
+    /**
+     * Characters read from the file, but not processed yet
+     */
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    private int bufferPosition = 0;
+
+    private int bufferLimit = 0;
+
+    private final CSVStateMachine machine;
+
+    /**
+     * The first character of the data was not read yet
+     */
+    private boolean startOfData = true;
+
+    /**
+     * Content of the fields of current record, without quotes
+     */
+    private char[] record = new char[256];
+
+    private int recordLength = 0;
+
+    /**
+     * Where each field of current record ends inside "record" buffer. The field i starts where the field i-1 ends
+     */
+    private int[] fieldEnds = new int[16];
+
+    private int fieldCount = 0;
+
+    /**
+     * If the content of current field is kept
+     */
+    private boolean copyField = true;
+
+
+    public CSVReaderTokenizer(Reader reader, char separator) {
+        if(reader == null)
+            throw new IllegalArgumentException("Reader can't be null");
+        validateSeparator(separator);
+        this.reader = reader;
+        this.machine = new CSVStateMachine(separator);
+    }
+
+    @Override
+    public boolean nextRecord() throws IOException {
+
+        recordLength = 0;
+        fieldCount = 0;
+        copyField = isSelected(0);
+
+        machine.startRecord();
+
+        while (true) {
+
+            if (bufferPosition == bufferLimit && ! fillBuffer()) {
+                // end of file, the last line has no line break
+                if (! machine.isRecordStarted())
+                    return false;
+                endField();
+                return true;
+            }
+
+            char c = buffer[bufferPosition++];
+
+            switch (machine.next(c)) {
+                case CSVStateMachine.APPEND:
+                    append(c);
+                    break;
+                case CSVStateMachine.END_FIELD:
+                    endField();
+                    break;
+                case CSVStateMachine.END_RECORD:
+                    endField();
+                    return true;
+            }
+        }
+    }
+
+    @Override
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    @Override
+    public String getField(int index) {
+        if(index < 0 || index >= fieldCount)
+            throw new IllegalArgumentException("There is not field with position: "+index);
+        int start = index == 0 ? 0 : fieldEnds[index-1];
+        return new String(record, start, fieldEnds[index] - start);
+    }
+
+    @Override
+    public boolean fieldEquals(int index, String value) {
+        if(index < 0 || index >= fieldCount)
+            throw new IllegalArgumentException("There is not field with position: "+index);
+        int start = index == 0 ? 0 : fieldEnds[index-1];
+        int length = fieldEnds[index] - start;
+        if(length != value.length())
+            return false;
+        for (int i = 0; i < length; i++) {
+            if(record[start + i] != value.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int fieldHashCode(int index) {
+        if(index < 0 || index >= fieldCount)
+            throw new IllegalArgumentException("There is not field with position: "+index);
+        int start = index == 0 ? 0 : fieldEnds[index-1];
+        int hash = 0;
+        for (int i = start; i < fieldEnds[index]; i++) {
+            hash = 31 * hash + record[i];
+        }
+        return hash;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+
+    private void endField() {
+        if (fieldCount == fieldEnds.length)
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldEnds.length * 2);
+        fieldEnds[fieldCount++] = recordLength;
+        copyField = isSelected(fieldCount);
+    }
+
+    private void append(char c) {
+        if (! copyField)
+            return;
+        if (recordLength == record.length)
+            record = Arrays.copyOf(record, record.length * 2);
+        record[recordLength++] = c;
+    }
+
+    private boolean fillBuffer() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        while (read == 0) {
+            read = reader.read(buffer, 0, buffer.length);
+        }
+        if (read < 0)
+            return false;
+        bufferPosition = 0;
+        bufferLimit = read;
+        if (startOfData) {
+            startOfData = false;
+            // files saved by some editors start with the byte order mark
+            if (buffer[0] == CSVStateMachine.BYTE_ORDER_MARK)
+                bufferPosition = 1;
+        }
+        return true;
+    }
+}
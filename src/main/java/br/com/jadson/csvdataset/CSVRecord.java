@@ -28,10 +28,17 @@ package br.com.jadson.csvdataset;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * <p>Class represents CSV row or column.</p>
@@ -61,6 +68,117 @@ class CSVRecord {
      */
     private List<String> values;
 
+    /**
+     * If the record has a hash index
+     */
+    private boolean indexed;
+
+    /**
+     * Index of the positions of each value, null when it needs to be created again
+     */
+    private CSVHashIndex index;
+
+    /**
+     * Index of the numeric values sorted by value, null if the record does not have it
+     */
+    private CSVSortedIndex sortedIndex;
+
+    /**
+     * If the record has a bitmap index
+     */
+    private boolean bitmapIndexed;
+
+    /**
+     * Positions of each value as a bitmap, null when it needs to be created again
+     */
+    private Map<String, CSVBitmap> bitmaps;
+
+    /**
+     * Number of changes made in the values, the results of operations calculated before a change are discarded
+     */
+    private int modificationCount = 0;
+
+    /**
+     * The values as the list given to the users of the data set, null until it is requested
+     */
+    private List<String> valuesView;
+
+    /**
+     * Results of the operations over all values, kept while the values are not changed
+     */
+    private Statistics statistics;
+
+    /**
+     * <p>Cache of the operations over all values of the record. Each result is calculated just when it is used
+     * the first time.</p>
+     *
+     * <p>When a value is added or removed the sum, minimum, maximum and the accumulator of variance are updated,
+     * the other results are calculated again. Any other change, including the changes made through the list
+     * returned by getValuesView(), discards the cache.</p>
+     */
+    private static class Statistics {
+
+        /** Modification count of the record when the results were calculated */
+        private int modificationCount;
+
+        private BigDecimal sum;
+
+        private BigDecimal mean;
+
+        private BigDecimal variance;
+
+        private BigDecimal stdDev;
+
+        private BigDecimal min;
+
+        private BigDecimal max;
+
+        /** Count, sum and sum of squares of the values, used to calculate the variance */
+        private CSVStatisticsAccumulator accumulator;
+
+        private BigDecimal median;
+
+        private Statistics(int modificationCount) {
+            this.modificationCount = modificationCount;
+        }
+    }
+
+    /**
+     * List of values given to the users of the data set. The changes made in it are made by the record,
+     * so the indexes and the results of operations are updated too.
+     */
+    private class ValuesView extends AbstractList<String> implements RandomAccess {
+
+        @Override
+        public String get(int index) {
+            return values.get(index);
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        @Override
+        public String set(int index, String value) {
+            return setValue(index, value);
+        }
+
+        @Override
+        public void add(int index, String value) {
+            addValue(value, index);
+            modCount++;
+        }
+
+        @Override
+        public String remove(int index) {
+            String value = values.get(index);
+            removeValue(index);
+            modCount++;
+            return value;
+        }
+    }
+
 
     public CSVRecord(CSVRecordType type, int position) {
         this.type = type;
@@ -68,15 +186,50 @@ class CSVRecord {
         this.values = new ArrayList<>();
     }
 
+    /**
+     * Create a record without values of its own, the values are read at its position in the records
+     * of the other orientation ( a row reads the columns ). The values of the record can't be added or removed directly.
+     * @param type
+     * @param position
+     * @param records
+     * @return
+     */
+    static CSVRecord viewOf(CSVRecordType type, int position, List<CSVRecord> records) {
+        CSVRecord record = new CSVRecord(type, position);
+        record.values = new CSVRecordView(records, record);
+        return record;
+    }
+
     public CSVRecord(CSVRecordType type, int position, List<String> values){
         this(type, position);
         this.values = values;
     }
 
+    /**
+     * Check if the value can be added to the record, without change it
+     * @param value
+     */
+    void validateValue(String value) {
+        // a value that can not be sorted is not added
+        if(sortedIndex != null)
+            convertToBD(value);
+    }
+
     public void addValue(String value) {
         if(values == null)
             throw new IllegalArgumentException("CSVRecord not initialized properly. ");
+        // a value that can not be sorted is not added
+        BigDecimal number = sortedIndex != null ? convertToBD(value) : null;
+        uncompactIfNotAccepted(value);
         this.values.add(value);
+        if(index != null)
+            index.add(value);
+        if(sortedIndex != null)
+            sortedIndex.add(number, values.size() - 1);
+        if(bitmaps != null)
+            bitmaps.computeIfAbsent(value, key -> new CSVBitmap()).add(values.size() - 1);
+        modificationCount++;
+        updateStatisticsAdded(value);
     }
 
     public void addValue(String value, int position) {
@@ -85,7 +238,224 @@ class CSVRecord {
         if(this.values.size() < position)
             throw new IllegalArgumentException("There is not "+type+" with position: "+position);
 
+        BigDecimal number = sortedIndex != null ? convertToBD(value) : null;
+        uncompactIfNotAccepted(value);
         this.values.add(position, value);
+        // a value in the middle shifts the positions after it, the index is created again when used
+        if(index != null && position == values.size() - 1)
+            index.add(value);
+        else
+            index = null;
+        if(sortedIndex != null)
+            sortedIndex.add(number, position);
+        // the positions after it are shifted, the bitmaps are created again when used
+        bitmaps = null;
+        modificationCount++;
+        updateStatisticsAdded(value);
+    }
+
+    /**
+     * Remove the value of a specific position
+     * @param position
+     */
+    public void removeValue(int position) {
+        if(values == null)
+            throw new IllegalArgumentException("CSVRecord not initialized properly. ");
+        String value = this.values.remove(position);
+        if(index != null && position == values.size())
+            index.removeLast(value);
+        else
+            index = null;
+        if(sortedIndex != null)
+            sortedIndex.remove(convertToBD(value), position);
+        bitmaps = null;
+        modificationCount++;
+        updateStatisticsRemoved(value);
+    }
+
+    /**
+     * Change the value of a specific position
+     * @param position
+     * @param value
+     * @return the previous value of the position
+     */
+    public String setValue(int position, String value) {
+        if(values == null)
+            throw new IllegalArgumentException("CSVRecord not initialized properly. ");
+        BigDecimal number = sortedIndex != null ? convertToBD(value) : null;
+        uncompactIfNotAccepted(value);
+        String oldValue = this.values.set(position, value);
+        index = null;
+        if(sortedIndex != null) {
+            sortedIndex.remove(convertToBD(oldValue), position);
+            sortedIndex.add(number, position);
+        }
+        bitmaps = null;
+        modificationCount++;
+        return oldValue;
+    }
+
+    /**
+     * <p>Create a index of the positions of each value. Searches by value use the index instead of look all values.</p>
+     *
+     * <p>Adding or removing the last value updates the index. Adding or removing a value in the middle shifts the
+     * positions, so the index is created again when it is used the next time. Changes made in the list returned
+     * by getValuesView() are made through the record, so they are seen by it.</p>
+     */
+    public void createIndex() {
+        if(values == null)
+            throw new IllegalArgumentException("CSVRecord not initialized properly. ");
+        indexed = true;
+        index = CSVHashIndex.of(values);
+    }
+
+    public void dropIndex() {
+        indexed = false;
+        index = null;
+    }
+
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    private CSVHashIndex index() {
+        if(index == null)
+            index = CSVHashIndex.of(values);
+        return index;
+    }
+
+    /**
+     * <p>Create a index of the numeric values sorted by value, used to find the values in a range.</p>
+     *
+     * <p>Like the hash index, it is updated by addValue and removeValue. Values that are not numeric can not be added
+     * to a record with this index.</p>
+     */
+    public void createSortedIndex() {
+        if(values == null)
+            throw new IllegalArgumentException("CSVRecord not initialized properly. ");
+        sortedIndex = CSVSortedIndex.of(values.size(), this::numberAt);
+    }
+
+    public void dropSortedIndex() {
+        sortedIndex = null;
+    }
+
+    public boolean hasSortedIndex() {
+        return sortedIndex != null;
+    }
+
+    /**
+     * <p>Create a index of the positions of each value as compressed bitmaps, used to combine conditions over
+     * columns with few distinct values with bitwise operations.</p>
+     *
+     * <p>Adding a value at the end updates the bitmaps. Adding or removing a value in the middle shifts the positions,
+     * so the bitmaps are created again when they are used the next time.</p>
+     */
+    public void createBitmapIndex() {
+        if(values == null)
+            throw new IllegalArgumentException("CSVRecord not initialized properly. ");
+        bitmapIndexed = true;
+        bitmaps = null;
+    }
+
+    public void dropBitmapIndex() {
+        bitmapIndexed = false;
+        bitmaps = null;
+    }
+
+    public boolean hasBitmapIndex() {
+        return bitmapIndexed;
+    }
+
+    /**
+     * The positions of the values equal to one of the values
+     * @param matchingValues
+     * @return
+     */
+    CSVBitmap getBitmapOfValues(String[] matchingValues) {
+        CSVBitmap result = new CSVBitmap();
+        for (String matchingValue : matchingValues) {
+            CSVBitmap bitmap = bitmapIndexed ? bitmaps().get(matchingValue) : CSVBitmap.of(getIndexesOfValue(matchingValue));
+            if(bitmap != null)
+                result = result.or(bitmap);
+        }
+        return result;
+    }
+
+    private Map<String, CSVBitmap> bitmaps() {
+        if(bitmaps == null) {
+            CSVGroups groups = groupValues();
+            bitmaps = new HashMap<>();
+            for (int group = 0; group < groups.size(); group++)
+                bitmaps.put(groups.getKey(group), CSVBitmap.of(groups.getPositions(group)));
+        }
+        return bitmaps;
+    }
+
+    /**
+     * <p>Return the indexes of record with numeric values between low and high ( inclusive ).</p>
+     *
+     * <p>With a sorted index, the indexes are ordered by value and found in O(log n + k). Without it, all values are
+     * compared and the indexes are in the order of the record.</p>
+     *
+     * @param low null to no lower limit
+     * @param high null to no upper limit
+     * @return
+     */
+    public int[] getIndexesOfRange(BigDecimal low, BigDecimal high) {
+        if(sortedIndex != null)
+            return sortedIndex.getPositions(low, high);
+
+        int[] indexes = new int[values.size()];
+        int count = 0;
+        for (int index = 0; index < values.size(); index++) {
+            BigDecimal value = numberAt(index);
+            if((low == null || value.compareTo(low) >= 0) && (high == null || value.compareTo(high) <= 0))
+                indexes[count++] = index;
+        }
+        return Arrays.copyOf(indexes, count);
+    }
+
+    /**
+     * Store the values in a compact way ( primitive arrays ) if all values have the same type.
+     */
+    public void compactValues() {
+        if(values != null)
+            values = CSVColumnValues.compact(values);
+    }
+
+    /**
+     * If the values are stored in a compact way and the new value can not be stored in that way,
+     * go back to store the values as Strings.
+     */
+    private void uncompactIfNotAccepted(String value) {
+        if(values instanceof CSVColumnValues && ! ((CSVColumnValues) values).accepts(value))
+            values = ((CSVColumnValues) values).uncompact();
+    }
+
+    /**
+     * Store the values out of the heap, in direct buffers. New values are added out of the heap too.
+     */
+    public void moveValuesOffHeap() {
+        if(values != null)
+            values = CSVColumnValues.moveOffHeap(values);
+    }
+
+    /**
+     * Release the memory of the values that is out of the heap. The record has no values after it.
+     */
+    public void close() {
+        if(values instanceof CSVColumnValues)
+            ((CSVColumnValues) values).close();
+    }
+
+    /**
+     * Grows the storage of values to contains at least "capacity" elements without new allocations
+     * @param capacity
+     */
+    public void ensureCapacity(int capacity) {
+        if(values instanceof ArrayList)
+            ((ArrayList<String>) values).ensureCapacity(capacity);
     }
 
     /**
@@ -95,6 +465,10 @@ class CSVRecord {
      */
     public BigDecimal countValues(String matchingValue) {
         validatedValues();
+        if(indexed)
+            return new BigDecimal(index().count(matchingValue));
+        if(values instanceof CSVColumnValues)
+            return new BigDecimal(((CSVColumnValues) values).count(matchingValue));
         int total = 0;
         for(String value : values){
             if(value.equals(matchingValue))
@@ -103,10 +477,34 @@ class CSVRecord {
         return new BigDecimal(total);
     }
 
+    /**
+     * Return the distinct values of the record. Columns stored in a dictionary just read the dictionary.
+     * @return
+     */
+    public List<String> getUniqueValues() {
+        if(values == null)
+            throw new IllegalArgumentException("CSVRecord not initialized properly. ");
+        List<String> distinctValues = values instanceof CSVColumnValues ? ((CSVColumnValues) values).distinctValues() : values;
+        Set<String> uniqueValues = new HashSet<>();
+        uniqueValues.addAll(distinctValues);
+        return new ArrayList<>(uniqueValues);
+    }
+
     public BigDecimal sumValues() {
 
         validatedValues();
 
+        Statistics statistics = statistics();
+        if(statistics.sum == null)
+            statistics.sum = calculateSum();
+        return statistics.sum;
+    }
+
+    private BigDecimal calculateSum() {
+
+        if(values instanceof CSVNumericValues)
+            return ((CSVNumericValues) values).sum();
+
         BigDecimal total = BigDecimal.ZERO;
         for(String value : values){
             total = total.add(convertToBD(value));
@@ -117,14 +515,17 @@ class CSVRecord {
     /*
      * Sum column values just for specific positions
      */
-    public BigDecimal sumValues(List<Integer> indexes) {
+    public BigDecimal sumValues(int[] indexes) {
 
         validatedValues();
 
+        if(values instanceof CSVNumericValues)
+            return ((CSVNumericValues) values).sum(indexes);
+
         BigDecimal total = BigDecimal.ZERO;
 
-        for(int count = 0; count < indexes.size() ; count++){
-            total = total.add(convertToBD(values.get( indexes.get(count) )));
+        for(int count = 0; count < indexes.length ; count++){
+            total = total.add(numberAt( indexes[count] ));
         }
         return total;
     }
@@ -139,8 +540,10 @@ class CSVRecord {
 
         validatedValues();
 
-        BigDecimal sum = sumValues();
-        return sum.divide(new BigDecimal( values.size() ), 5, RoundingMode.HALF_UP );
+        Statistics statistics = statistics();
+        if(statistics.mean == null)
+            statistics.mean = sumValues().divide(new BigDecimal( values.size() ), 5, RoundingMode.HALF_UP );
+        return statistics.mean;
     }
 
     /**
@@ -148,12 +551,12 @@ class CSVRecord {
      * @param indexes
      * @return
      */
-    public BigDecimal meanValues(List<Integer> indexes) {
+    public BigDecimal meanValues(int[] indexes) {
 
         validatedValues();
 
         BigDecimal sum = sumValues(indexes);
-        return sum.divide(new BigDecimal( indexes.size() ), 5, RoundingMode.HALF_UP );
+        return sum.divide(new BigDecimal( indexes.length ), 5, RoundingMode.HALF_UP );
     }
 
     /**
@@ -165,56 +568,83 @@ class CSVRecord {
 
         validatedValues();
 
-        List<BigDecimal> tempList = new LinkedList<BigDecimal>();
-        for (String value : values) {
-            tempList.add(convertToBD(value) );
-        }
+        Statistics statistics = statistics();
+        if(statistics.median == null)
+            statistics.median = selection(null).percentile(50);
+        return statistics.median;
+    }
 
-        Collections.sort(tempList);
+    /**
+     * Median just for specific values
+     * @param indexes
+     * @return
+     */
+    public BigDecimal medianValues(int[] indexes) {
 
-        BigDecimal median = BigDecimal.ZERO;
-        // if old, it the the average of the 2 in the middle
-        if (tempList.size() % 2 == 0)
-            median = ( ( tempList.get(tempList.size()/2) )
-                    .add(   tempList.get(tempList.size()/2-1)  )
-            ).divide(new BigDecimal(2), 5, RoundingMode.HALF_UP);
-        else {
-            // If even, it is the middle element
-            median = tempList.get(tempList.size() / 2);
-        }
+        validatedValues();
 
-        return median;
+        return selection(indexes).percentile(50);
     }
 
     /**
-     * Median just for specific values
+     * <p>Calculate the percentile of values, interpolating between the two closest values when it falls between them.</p>
+     *
+     * <p>The values are not sorted, the closest values are found in linear time.</p>
+     *
+     * @param percentile between 0 and 100. 50 is the median.
+     * @return
+     */
+    public BigDecimal percentileValues(double percentile) {
+
+        validatedValues();
+
+        return selection(null).percentile(percentile);
+    }
+
+    /**
+     * Percentile just for specific values
      * @param indexes
+     * @param percentile between 0 and 100
      * @return
      */
-    public BigDecimal medianValues(List<Integer> indexes) {
+    public BigDecimal percentileValues(int[] indexes, double percentile) {
 
         validatedValues();
 
-        List<BigDecimal> tempList = new LinkedList<BigDecimal>();
+        return selection(indexes).percentile(percentile);
+    }
 
-        for(int count = 0; count < indexes.size() ; count++){
-            tempList.add(convertToBD(values.get( indexes.get(count) )));
-        }
+    /**
+     * Build a sketch of values, to calculate approximate percentiles
+     *
+     * @return
+     */
+    public CSVQuantileSketch sketchValues() {
 
-        Collections.sort(tempList);
+        validatedValues();
 
-        BigDecimal median = BigDecimal.ZERO;
-        // if old, it the the average of the 2 in the middle
-        if (tempList.size() % 2 == 0)
-            median = ( ( tempList.get(tempList.size()/2) )
-                    .add(   tempList.get(tempList.size()/2-1)  )
-            ).divide(new BigDecimal(2), 5, RoundingMode.HALF_UP);
-        else {
-            // If even, it is the middle element
-            median = tempList.get(tempList.size() / 2);
+        CSVQuantileSketch sketch = new CSVQuantileSketch();
+        if(values instanceof CSVNumericValues) {
+            for (int index = 0; index < values.size(); index++)
+                sketch.add(((CSVNumericValues) values).getDouble(index));
+        }else {
+            for (int index = 0; index < values.size(); index++)
+                sketch.add(convertToDouble(values.get(index)));
         }
+        return sketch;
+    }
+
+    /**
+     * Selection over all values or just over specific values
+     */
+    private CSVSelection selection(int[] indexes) {
+        if(indexes != null)
+            return new CSVSelection(indexes.length, count -> numberAt(indexes[count]), null);
+
+        if(values instanceof CSVNumericValues && ((CSVNumericValues) values).hasExactDoubleOrder())
+            return new CSVSelection(values.size(), this::numberAt, ((CSVNumericValues) values)::getDouble);
 
-        return median;
+        return new CSVSelection(values.size(), this::numberAt, null);
     }
 
     /**
@@ -226,40 +656,98 @@ class CSVRecord {
 
         validatedValues();
 
-        BigDecimal variance = BigDecimal.ZERO;
+        Statistics statistics = statistics();
+        if(statistics.variance == null)
+            statistics.variance = accumulator().getVariance();
+        return statistics.variance;
+    }
+
+    /*
+     * Variance just for specific values
+     */
+    public BigDecimal varianceValues(int[] indexes) {
 
-        BigDecimal mean = meanValues();
+        validatedValues();
 
-        //  (  SUM (X - MEAN) ^ 2 ) / N-1
-        for(String num: values) {
-            BigDecimal sub = convertToBD(num).subtract(mean);
-            variance = variance.add( sub.pow(2) );
+        CSVStatisticsAccumulator accumulator = new CSVStatisticsAccumulator();
+        for(int count = 0; count < indexes.length ; count++){
+            accumulate( accumulator, indexes[count] );
         }
-        variance = variance.divide( new BigDecimal( values.size()), 5, RoundingMode.HALF_UP );
 
-        return variance;
+        return accumulator.getVariance();
     }
 
-    /*
-     * Variance just for specific values
+    /**
+     * Accumulate all values in a single pass, to calculate the mean, variance and standard deviation
+     *
+     * @return
      */
-    public BigDecimal varianceValues(List<Integer> indexes) {
+    public CSVStatisticsAccumulator accumulateValues() {
+        validatedValues();
+        return new CSVStatisticsAccumulator().merge(accumulator());
+    }
 
+    /**
+     * Accumulate all values splitting them in parts accumulated in parallel and merged at the end
+     *
+     * @param pool
+     * @return
+     */
+    public CSVStatisticsAccumulator accumulateValuesParallel(ForkJoinPool pool) {
         validatedValues();
+        return pool.invoke(new AccumulateTask(0, values.size()));
+    }
+
+    /**
+     * Accumulate the values between "from" (inclusive) and "to" (exclusive)
+     */
+    private CSVStatisticsAccumulator accumulateValues(int from, int to) {
+        CSVStatisticsAccumulator accumulator = new CSVStatisticsAccumulator();
+        for (int index = from; index < to; index++) {
+            accumulate(accumulator, index);
+        }
+        return accumulator;
+    }
+
+    /**
+     * Add the value of a position, values of typed numeric columns are added without convert them to BigDecimal
+     */
+    private void accumulate(CSVStatisticsAccumulator accumulator, int index) {
+        if(values instanceof CSVNumericValues)
+            ((CSVNumericValues) values).accumulate(accumulator, index);
+        else
+            accumulator.add(numberAt(index));
+    }
+
+    /**
+     * Split the values in half until the part is small enough to be accumulated by one thread
+     */
+    private class AccumulateTask extends RecursiveTask<CSVStatisticsAccumulator> {
 
-        BigDecimal variance = BigDecimal.ZERO;
+        private static final long serialVersionUID = 1L;
 
-        BigDecimal mean = meanValues(indexes);
+        private static final int MIN_PART_SIZE = 8192;
 
-        //  (  SUM (X - MEAN) ^ 2 ) / N-1
-        for(int count = 0; count < indexes.size() ; count++){
-            BigDecimal sub = convertToBD(  values.get( indexes.get(count) )).subtract(mean);
-            variance = variance.add( sub.pow(2) );
+        private final int from;
+
+        private final int to;
+
+        private AccumulateTask(int from, int to) {
+            this.from = from;
+            this.to = to;
         }
 
-        variance = variance.divide( new BigDecimal( indexes.size()), 5, RoundingMode.HALF_UP );
+        @Override
+        protected CSVStatisticsAccumulator compute() {
+            if(to - from <= MIN_PART_SIZE)
+                return accumulateValues(from, to);
 
-        return variance;
+            int middle = (from + to) >>> 1;
+            AccumulateTask first = new AccumulateTask(from, middle);
+            first.fork();
+            CSVStatisticsAccumulator second = new AccumulateTask(middle, to).compute();
+            return first.join().merge(second);
+        }
     }
 
 
@@ -275,9 +763,10 @@ class CSVRecord {
 
         validatedValues();
 
-        BigDecimal variance = varianceValues();
-
-        return variance.sqrt(new MathContext(5));
+        Statistics statistics = statistics();
+        if(statistics.stdDev == null)
+            statistics.stdDev = varianceValues().sqrt(new MathContext(5));
+        return statistics.stdDev;
     }
 
 
@@ -286,7 +775,7 @@ class CSVRecord {
      * @param indexes
      * @return
      */
-    public BigDecimal stdDevValues(List<Integer> indexes) {
+    public BigDecimal stdDevValues(int[] indexes) {
 
         validatedValues();
 
@@ -295,6 +784,138 @@ class CSVRecord {
         return variance.sqrt(new MathContext(5));
     }
 
+    /**
+     * Return the smallest value of the record
+     *
+     * @return
+     */
+    public BigDecimal minValues() {
+
+        validatedValues();
+
+        Statistics statistics = statistics();
+        if(statistics.min == null) {
+            for (int index = 0; index < values.size(); index++) {
+                BigDecimal value = numberAt(index);
+                if(statistics.min == null || value.compareTo(statistics.min) < 0)
+                    statistics.min = value;
+            }
+        }
+        return statistics.min;
+    }
+
+    /**
+     * Return the biggest value of the record
+     *
+     * @return
+     */
+    public BigDecimal maxValues() {
+
+        validatedValues();
+
+        Statistics statistics = statistics();
+        if(statistics.max == null) {
+            for (int index = 0; index < values.size(); index++) {
+                BigDecimal value = numberAt(index);
+                if(statistics.max == null || value.compareTo(statistics.max) > 0)
+                    statistics.max = value;
+            }
+        }
+        return statistics.max;
+    }
+
+    /**
+     * Count, sum and sum of squares of all values
+     */
+    private CSVStatisticsAccumulator accumulator() {
+        Statistics statistics = statistics();
+        if(statistics.accumulator == null)
+            statistics.accumulator = accumulateValues(0, values.size());
+        return statistics.accumulator;
+    }
+
+    /**
+     * Return the cache of the results of operations, a new one if the values were changed
+     */
+    private Statistics statistics() {
+        // the values of a view change with the records it reads, so the results are not kept
+        if(statistics == null || statistics.modificationCount != modificationCount || values instanceof CSVRecordView)
+            statistics = new Statistics(modificationCount);
+        return statistics;
+    }
+
+    /**
+     * Update the results of operations with the new value, instead of calculate them again over all values
+     */
+    private void updateStatisticsAdded(String value) {
+        if(statistics == null)
+            return;
+
+        BigDecimal number = toNumberOrNull(value);
+
+        if(number == null || statistics.modificationCount != modificationCount - 1) {
+            statistics = null;
+            return;
+        }
+
+        statistics.modificationCount = modificationCount;
+        statistics.mean = null;
+        statistics.variance = null;
+        statistics.stdDev = null;
+        statistics.median = null;
+
+        if(statistics.sum != null)
+            statistics.sum = statistics.sum.add(number);
+        if(statistics.accumulator != null)
+            statistics.accumulator.add(number);
+        if(statistics.min != null && number.compareTo(statistics.min) < 0)
+            statistics.min = number;
+        if(statistics.max != null && number.compareTo(statistics.max) > 0)
+            statistics.max = number;
+    }
+
+    /**
+     * Update the results of operations without the removed value, instead of calculate them again over all values
+     */
+    private void updateStatisticsRemoved(String value) {
+        if(statistics == null)
+            return;
+
+        BigDecimal number = toNumberOrNull(value);
+
+        if(number == null || statistics.modificationCount != modificationCount - 1 || values.size() == 0) {
+            statistics = null;
+            return;
+        }
+
+        statistics.modificationCount = modificationCount;
+        statistics.mean = null;
+        statistics.variance = null;
+        statistics.stdDev = null;
+        statistics.median = null;
+
+        // the scale of sum is the biggest scale of values, that can change without this value
+        if(statistics.sum != null)
+            statistics.sum = number.scale() < statistics.sum.scale() ? statistics.sum.subtract(number) : null;
+        if(statistics.accumulator != null)
+            statistics.accumulator.remove(number);
+        if(statistics.min != null && number.compareTo(statistics.min) == 0)
+            statistics.min = null;
+        if(statistics.max != null && number.compareTo(statistics.max) == 0)
+            statistics.max = null;
+    }
+
+    /**
+     * Convert the value to BigDecimal, or null if it is not a number
+     */
+    private BigDecimal toNumberOrNull(String value) {
+        try {
+            return value == null ? null : new BigDecimal(value);
+        }catch(NumberFormatException nfe){
+            return null;
+        }
+    }
+
     /**
      * <p>Normalize using Min-Max:</p>
      *
@@ -309,17 +930,17 @@ class CSVRecord {
         BigDecimal Xmin = null;
         BigDecimal Xmax = null;
 
-        for(String value: values) {
-            BigDecimal X = convertToBD(value);
+        for(int index = 0; index < values.size(); index++) {
+            BigDecimal X = numberAt(index);
             if(Xmin == null || X.compareTo(Xmin) <= 0)
                 Xmin = X;
             if(Xmax == null || X.compareTo(Xmax) >= 0)
                 Xmax = X;
         }
 
-        for(String value : values) {
+        for(int index = 0; index < values.size(); index++) {
             if(Xmin.compareTo(Xmax) != 0) {
-                BigDecimal X = convertToBD(value);
+                BigDecimal X = numberAt(index);
                 normalizedValues.add((X.subtract(Xmin)).divide(Xmax.subtract(Xmin), 5, RoundingMode.HALF_UP).toString());
             }else{
                 normalizedValues.add( "1.00000" );
@@ -331,6 +952,17 @@ class CSVRecord {
 
 
 
+    /**
+     * The value of a position as BigDecimal, numeric values stored compacted are not parsed again
+     * @param index
+     * @return
+     */
+    private BigDecimal numberAt(int index) {
+        if(values instanceof CSVNumericValues)
+            return ((CSVNumericValues) values).getBigDecimal(index);
+        return convertToBD(values.get(index));
+    }
+
     /**
      * Convert String to BigDecimal
      * @param value
@@ -405,13 +1037,26 @@ class CSVRecord {
         return values;
     }
 
+    /**
+     * The values as a list whose changes are made by this record, keeping the indexes and the cache of results
+     * of operations up to date. Used for the lists returned to the users of the data set.
+     * @return
+     */
+    public List<String> getValuesView() {
+        if(values == null)
+            return null;
+        if(valuesView == null)
+            valuesView = new ValuesView();
+        return valuesView;
+    }
+
     /**
      * Return all values of a record ( row or column ) for especific indexes
      * @return
      */
-    public List<String> getValues( List<Integer> indexes) {
-        List<String> filterValues = new ArrayList<>();
-        for (Integer index : indexes){
+    public List<String> getValues( int[] indexes) {
+        List<String> filterValues = new ArrayList<>(indexes.length);
+        for (int index : indexes){
             filterValues.add(values.get(index));
         }
         return filterValues;
@@ -423,20 +1068,72 @@ class CSVRecord {
 
     /**
      * Return the indexes of record that contains a specific reference value.
+     *
+     * Use the index of the record if it exists, created by createIndex(). Otherwise, all values are compared.
+     * Values stored typed are compared as numbers, bits or dictionary codes, without convert them to text.
+     *
      * @param referenceValue
      * @return
      */
-    public List<Integer> getIndexesOfValue(String referenceValue) {
-        List<Integer> indexes = new ArrayList<>();
-        int index = 0;
-        for (String value : values){
-            if(value.equals(referenceValue)){
-                indexes.add(index);
+    public int[] getIndexesOfValue(String referenceValue) {
+        if(indexed)
+            return index().getPositions(referenceValue);
+        // typed values compare the reference value converted once to the type of the column, not the text of each value
+        if(values instanceof CSVColumnValues && referenceValue != null)
+            return ((CSVColumnValues) values).indexesOf(referenceValue);
+        int[] indexes = new int[16];
+        int count = 0;
+        for (int index = 0; index < values.size(); index++) {
+            if(values.get(index).equals(referenceValue)) {
+                if(count == indexes.length)
+                    indexes = Arrays.copyOf(indexes, count * 2);
+                indexes[count++] = index;
             }
-            index++;
         }
+        return Arrays.copyOf(indexes, count);
+    }
 
-        return indexes;
+    /**
+     * Return the positions of each distinct value, grouped in a single pass over the values.
+     * The groups are not kept by the record, each call groups the current values.
+     * @return
+     */
+    public CSVGroups groupValues() {
+        return CSVGroups.of(values);
+    }
+
+    /**
+     * <p>Aggregate the values of each group in a single pass over the values.</p>
+     *
+     * <p>For each group returns: count, sum, mean, median, variance and standard deviation.
+     * The same values of the operations over the positions of the group.</p>
+     *
+     * @param groups groups of positions of other record with the same size
+     * @return
+     */
+    public BigDecimal[][] aggregateGroups(CSVGroups groups) {
+
+        validatedValues();
+
+        CSVStatisticsAccumulator[] accumulators = new CSVStatisticsAccumulator[groups.size()];
+        for (int group = 0; group < accumulators.length; group++)
+            accumulators[group] = new CSVStatisticsAccumulator();
+
+        BigDecimal[] numbers = new BigDecimal[values.size()];
+        for (int index = 0; index < numbers.length; index++) {
+            numbers[index] = numberAt(index);
+            accumulators[groups.getGroupOfPosition(index)].add(numbers[index]);
+        }
+
+        BigDecimal[][] aggregations = new BigDecimal[groups.size()][];
+        for (int group = 0; group < aggregations.length; group++) {
+            CSVStatisticsAccumulator accumulator = accumulators[group];
+            int[] positions = groups.getPositions(group);
+            BigDecimal median = new CSVSelection(positions.length, count -> numbers[positions[count]], null).percentile(50);
+            aggregations[group] = new BigDecimal[]{ BigDecimal.valueOf(accumulator.getCount()), accumulator.getSum(),
+                    accumulator.getMean(), median, accumulator.getVariance(), accumulator.getStdDev() };
+        }
+        return aggregations;
     }
 
 
@@ -453,17 +1150,36 @@ class CSVRecord {
 
 
     public List<BigDecimal> getValuesAsBigDecimal() {
-        List<BigDecimal> r = new ArrayList<>();
-        for (String v : values) {
-            r.add(convertToBD(v));
+        List<BigDecimal> r = new ArrayList<>(values.size());
+        for (int index = 0; index < values.size(); index++) {
+            r.add(numberAt(index));
         }
         return r;
     }
 
     public List<Double> getValuesAsDouble() {
-        List<Double> r = new ArrayList<>();
-        for (String v : values) {
-            r.add(convertToDouble(v));
+        List<Double> r = new ArrayList<>(values.size());
+        for (double v : getValuesAsDoubleArray()) {
+            r.add(v);
+        }
+        return r;
+    }
+
+    /**
+     * Return the values as a primitive array, without boxing each value
+     * @return
+     */
+    public double[] getValuesAsDoubleArray() {
+        double[] r = new double[values.size()];
+        if(values instanceof CSVNumericValues) {
+            CSVNumericValues numericValues = (CSVNumericValues) values;
+            for (int index = 0; index < r.length; index++) {
+                r[index] = numericValues.getDouble(index);
+            }
+        }else {
+            for (int index = 0; index < r.length; index++) {
+                r[index] = convertToDouble(values.get(index));
+            }
         }
         return r;
     }
@@ -478,6 +1194,12 @@ class CSVRecord {
 
     public List<Boolean> getValuesAsBoolean() {
         List<Boolean> r = new ArrayList<>();
+        if(values instanceof CSVBooleanValues) {
+            for (int index = 0; index < values.size(); index++) {
+                r.add(((CSVBooleanValues) values).getBoolean(index));
+            }
+            return r;
+        }
         for (String v : values) {
             r.add(convertToBoolean(v));
         }
@@ -0,0 +1,67 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVRecordView
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * <p>The values of a record read from the records of the other orientation, without a copy of them.</p>
+ *
+ * <p>The data set stores the values just in the columns, the values of a row are the value at the row position
+ * of each column. The view has no values of its own, so changes in the columns are seen by it and the position
+ * used is always the current position of the record.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVRecordView extends AbstractList<String> implements RandomAccess {
+
+    /**
+     * Records that store the values
+     */
+    private final List<CSVRecord> records;
+
+    /**
+     * Record that owns the view, its position is the position of the values in the records
+     */
+    private final CSVRecord owner;
+
+    CSVRecordView(List<CSVRecord> records, CSVRecord owner) {
+        this.records = records;
+        this.owner = owner;
+    }
+
+    @Override
+    public String get(int index) {
+        return records.get(index).getValues().get((int) owner.getPosition());
+    }
+
+    @Override
+    public int size() {
+        return records.size();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVRow
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>A row read directly from a CSV file, without load the whole file to memory.</p>
+ *
+ * <p>Contains the row header (when the CSV contains rows headers) and the values of the row.
+ * Values can be accessed by position or by the column header label.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+public class CSVRow {
+
+    /**
+     * Position of the row in the file, the first row of data is the row 0
+     */
+    private final long position;
+
+    /**
+     * Row header label, null if the CSV does not contains rows headers
+     */
+    private final String header;
+
+    private final List<String> values;
+
+    /**
+     * Position of each column header label, shared by all rows of the file
+     */
+    private final Map<String, Integer> columnsPositions;
+
+    CSVRow(long position, String header, List<String> values, Map<String, Integer> columnsPositions) {
+        this.position = position;
+        this.header = header;
+        this.values = Collections.unmodifiableList(values);
+        this.columnsPositions = columnsPositions;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    public List<String> getValues() {
+        return values;
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Return the value of a specific column
+     * @param columnPosition
+     * @return
+     */
+    public String getValue(int columnPosition) {
+        if(columnPosition < 0 || columnPosition >= values.size())
+            throw new IllegalArgumentException("Column with Position \""+columnPosition+"\" does not exits");
+        return values.get(columnPosition);
+    }
+
+    /**
+     * Return the value of the column with the header label
+     * @param columnLabel
+     * @return
+     */
+    public String getValue(String columnLabel) {
+        Integer columnPosition = columnsPositions.get(columnLabel);
+        if(columnPosition == null)
+            throw new IllegalArgumentException("Column \""+columnLabel+"\" does not exits");
+        return values.get(columnPosition);
+    }
+
+    public BigDecimal getValueAsBigDecimal(int columnPosition) {
+        return convertToBD(getValue(columnPosition));
+    }
+
+    public BigDecimal getValueAsBigDecimal(String columnLabel) {
+        return convertToBD(getValue(columnLabel));
+    }
+
+    private BigDecimal convertToBD(String value) {
+        try {
+            return new BigDecimal(value);
+        }catch(NumberFormatException nfe){
+            throw new NumberFormatException("value: \""+value+"\" of ROW ("+position+") is not a numeric value");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CSVRow{" + "position=" + position + ", header=" + header + ", values=" + values + '}';
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVRowFilter
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Condition that a row of a CSV file needs to satisfy to be loaded to memory.</p>
+ *
+ * <p>The condition is checked just after the record is read, comparing the value of the column
+ * directly with the content read by the tokenizer, before any String is created to the record.
+ * Rows that does not satisfy the condition are not added to the data set.</p>
+ *
+ * <pre>
+ *    dataSet.loadData( CSVRowFilter.equalTo("region", "EU") );
+ *    dataSet.loadData( CSVRowFilter.in("Quarter", Arrays.asList("Q3", "Q4")) );
+ * </pre>
+ *
+ * <p>Conditions can be combined with and, or and not. The same conditions select the rows already loaded
+ * in the operations "where" of the data set, evaluated as bitmaps of the rows of each condition.</p>
+ *
+ * <pre>
+ *    CSVRowFilter filter = CSVRowFilter.equalTo("Quarter", "Q4").and( CSVRowFilter.not( CSVRowFilter.equalTo("region", "EU") ) );
+ *    dataSet.loadData( filter );
+ *    dataSet.sumColumnWhere("sales", filter);
+ * </pre>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+public abstract class CSVRowFilter {
+
+    /**
+     * Rows where the column with the header label has the value
+     * @param columnLabel
+     * @param value
+     * @return
+     */
+    public static CSVRowFilter equalTo(String columnLabel, String value) {
+        return in(columnLabel, Arrays.asList(value));
+    }
+
+    /**
+     * Rows where the column at position has the value. The rows headers are not a column.
+     * @param columnPosition
+     * @param value
+     * @return
+     */
+    public static CSVRowFilter equalTo(int columnPosition, String value) {
+        return in(columnPosition, Arrays.asList(value));
+    }
+
+    /**
+     * Rows where the column with the header label has one of the values
+     * @param columnLabel
+     * @param values
+     * @return
+     */
+    public static CSVRowFilter in(String columnLabel, Collection<String> values) {
+        if(columnLabel == null)
+            throw new IllegalArgumentException("Column label can't be null");
+        return new ValuesFilter(columnLabel, -1, values);
+    }
+
+    /**
+     * Rows where the column at position has one of the values. The rows headers are not a column.
+     * @param columnPosition
+     * @param values
+     * @return
+     */
+    public static CSVRowFilter in(int columnPosition, Collection<String> values) {
+        if(columnPosition < 0)
+            throw new IllegalArgumentException("Column with Position \""+columnPosition+"\" does not exits");
+        return new ValuesFilter(null, columnPosition, values);
+    }
+
+
+    /**
+     * Rows that satisfy this condition and the other
+     * @param other
+     * @return
+     */
+    public CSVRowFilter and(CSVRowFilter other) {
+        if(other == null)
+            throw new IllegalArgumentException("Filter can't be null");
+        return new AndFilter(this, other);
+    }
+
+    /**
+     * Rows that satisfy this condition or the other
+     * @param other
+     * @return
+     */
+    public CSVRowFilter or(CSVRowFilter other) {
+        if(other == null)
+            throw new IllegalArgumentException("Filter can't be null");
+        return new OrFilter(this, other);
+    }
+
+    /**
+     * Rows that does not satisfy the condition
+     * @param filter
+     * @return
+     */
+    public static CSVRowFilter not(CSVRowFilter filter) {
+        if(filter == null)
+            throw new IllegalArgumentException("Filter can't be null");
+        return new NotFilter(filter);
+    }
+
+
+    /**
+     * Find the fields of the records used by the condition.
+     *
+     * @param columnsHeaders header labels of the file, without the cross header. Null if the file has no columns headers.
+     * @param containsRowsHeaders
+     */
+    abstract void bind(List<String> columnsHeaders, boolean containsRowsHeaders);
+
+    /**
+     * Add the fields of the records used by the condition
+     * @param fields
+     */
+    abstract void collectFields(Set<Integer> fields);
+
+    /**
+     * Check the condition for the current record of the tokenizer
+     * @param tokenizer
+     * @return
+     */
+    abstract boolean accept(CSVTokenizer tokenizer);
+
+    /**
+     * The positions of the rows of the data set, already loaded, that satisfy the condition
+     * @param dataSet
+     * @param size number of rows of data of the data set
+     * @return
+     */
+    abstract CSVBitmap select(CSVDataSet dataSet, int size);
+
+
+
+    /**
+     * Both conditions are satisfied
+     */
+    private static class AndFilter extends CSVRowFilter {
+
+        private final CSVRowFilter first;
+
+        private final CSVRowFilter second;
+
+        AndFilter(CSVRowFilter first, CSVRowFilter second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        void bind(List<String> columnsHeaders, boolean containsRowsHeaders) {
+            first.bind(columnsHeaders, containsRowsHeaders);
+            second.bind(columnsHeaders, containsRowsHeaders);
+        }
+
+        @Override
+        void collectFields(Set<Integer> fields) {
+            first.collectFields(fields);
+            second.collectFields(fields);
+        }
+
+        @Override
+        boolean accept(CSVTokenizer tokenizer) {
+            return first.accept(tokenizer) && second.accept(tokenizer);
+        }
+
+        @Override
+        CSVBitmap select(CSVDataSet dataSet, int size) {
+            return first.select(dataSet, size).and(second.select(dataSet, size));
+        }
+    }
+
+    /**
+     * One of the conditions is satisfied
+     */
+    private static class OrFilter extends CSVRowFilter {
+
+        private final CSVRowFilter first;
+
+        private final CSVRowFilter second;
+
+        OrFilter(CSVRowFilter first, CSVRowFilter second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        void bind(List<String> columnsHeaders, boolean containsRowsHeaders) {
+            first.bind(columnsHeaders, containsRowsHeaders);
+            second.bind(columnsHeaders, containsRowsHeaders);
+        }
+
+        @Override
+        void collectFields(Set<Integer> fields) {
+            first.collectFields(fields);
+            second.collectFields(fields);
+        }
+
+        @Override
+        boolean accept(CSVTokenizer tokenizer) {
+            return first.accept(tokenizer) || second.accept(tokenizer);
+        }
+
+        @Override
+        CSVBitmap select(CSVDataSet dataSet, int size) {
+            return first.select(dataSet, size).or(second.select(dataSet, size));
+        }
+    }
+
+    /**
+     * The condition is not satisfied
+     */
+    private static class NotFilter extends CSVRowFilter {
+
+        private final CSVRowFilter filter;
+
+        NotFilter(CSVRowFilter filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        void bind(List<String> columnsHeaders, boolean containsRowsHeaders) {
+            filter.bind(columnsHeaders, containsRowsHeaders);
+        }
+
+        @Override
+        void collectFields(Set<Integer> fields) {
+            filter.collectFields(fields);
+        }
+
+        @Override
+        boolean accept(CSVTokenizer tokenizer) {
+            return ! filter.accept(tokenizer);
+        }
+
+        @Override
+        CSVBitmap select(CSVDataSet dataSet, int size) {
+            return CSVBitmap.range(size).andNot(filter.select(dataSet, size));
+        }
+    }
+
+
+
+    /**
+     * Value of a column is equals to one of a set of values
+     */
+    private static class ValuesFilter extends CSVRowFilter {
+
+        /**
+         * With few values is faster compare each one than calculate the hash code of the field
+         */
+        private static final int MAX_VALUES_WITHOUT_HASH = 8;
+
+        private final String columnLabel;
+
+        private final int columnPosition;
+
+        private final String[] values;
+
+        /**
+         * Values by hash code, when there are many values
+         */
+        private Map<Integer, List<String>> valuesByHash;
+
+        private int field = -1;
+
+        ValuesFilter(String columnLabel, int columnPosition, Collection<String> values) {
+            if(values == null || values.size() == 0 )
+                throw new IllegalArgumentException("Filter does not have values");
+            if(values.contains(null))
+                throw new IllegalArgumentException("Filter values can't be null");
+
+            this.columnLabel = columnLabel;
+            this.columnPosition = columnPosition;
+            this.values = new LinkedHashSet<>(values).toArray(new String[0]);
+
+            if(this.values.length > MAX_VALUES_WITHOUT_HASH) {
+                valuesByHash = new HashMap<>();
+                for (String value : this.values) {
+                    valuesByHash.computeIfAbsent(value.hashCode(), hash -> new ArrayList<>()).add(value);
+                }
+            }
+        }
+
+        @Override
+        void bind(List<String> columnsHeaders, boolean containsRowsHeaders) {
+
+            int position = columnPosition;
+
+            if(columnLabel != null) {
+                if(columnsHeaders == null)
+                    throw new IllegalArgumentException("Columns can be filtered by label just if the CSV contains columns headers");
+                position = columnsHeaders.indexOf(columnLabel);
+                if(position < 0)
+                    throw new IllegalArgumentException("There is not column: "+columnLabel);
+            } else if(columnsHeaders != null && position >= columnsHeaders.size()) {
+                throw new IllegalArgumentException("Column with Position \""+position+"\" does not exits");
+            }
+
+            field = containsRowsHeaders ? position + 1 : position;
+        }
+
+        @Override
+        void collectFields(Set<Integer> fields) {
+            fields.add(field);
+        }
+
+        @Override
+        boolean accept(CSVTokenizer tokenizer) {
+
+            if(field >= tokenizer.getFieldCount())
+                throw new IllegalArgumentException("Column with Position \""+field+"\" does not exits");
+
+            if(valuesByHash == null) {
+                for (String value : values) {
+                    if(tokenizer.fieldEquals(field, value))
+                        return true;
+                }
+                return false;
+            }
+
+            List<String> candidates = valuesByHash.get(tokenizer.fieldHashCode(field));
+            if(candidates == null)
+                return false;
+            for (String value : candidates) {
+                if(tokenizer.fieldEquals(field, value))
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        CSVBitmap select(CSVDataSet dataSet, int size) {
+            CSVRecord column = columnLabel != null ? dataSet.getColumnByHeaderLabel(columnLabel) : dataSet.getColumn(columnPosition);
+            return column.getBitmapOfValues(values);
+        }
+    }
+}
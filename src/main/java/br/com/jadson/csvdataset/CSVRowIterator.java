@@ -0,0 +1,132 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVRowIterator
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>Iterate over the rows of a CSV file reading one record at time, so the memory used does not depend
+ * of the size of the file.</p>
+ *
+ * <p>The first record is the columns headers if the CSV contains columns headers,
+ * and the first value of each record is the row header if the CSV contains rows headers.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVRowIterator implements Iterator<CSVRow>, Closeable {
+
+    private final CSVTokenizer tokenizer;
+
+    private final boolean containsRowsHeaders;
+
+    private String crossHeader = "";
+
+    private List<String> columnsHeaders = Collections.emptyList();
+
+    private final Map<String, Integer> columnsPositions = new HashMap<>();
+
+    private CSVRow next;
+
+    private long position = 0;
+
+    public CSVRowIterator(CSVTokenizer tokenizer, boolean containsColumnsHeaders, boolean containsRowsHeaders) throws IOException {
+        this.tokenizer = tokenizer;
+        this.containsRowsHeaders = containsRowsHeaders;
+
+        if(containsColumnsHeaders && tokenizer.nextRecord()) {
+            List<String> headers = tokenizer.getFields();
+            if(containsRowsHeaders) {
+                crossHeader = headers.get(0);
+                headers = headers.subList(1, headers.size());
+            }
+            columnsHeaders = Collections.unmodifiableList(headers);
+            // if there are duplicated labels, the first column is used
+            for (int index = columnsHeaders.size() - 1; index >= 0; index--) {
+                columnsPositions.put(columnsHeaders.get(index), index);
+            }
+        }
+    }
+
+    public String getCrossHeader() {
+        return crossHeader;
+    }
+
+    public List<String> getColumnsHeaders() {
+        return columnsHeaders;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if(next == null)
+            next = readRow();
+        return next != null;
+    }
+
+    @Override
+    public CSVRow next() {
+        if(! hasNext())
+            throw new NoSuchElementException();
+        CSVRow row = next;
+        next = null;
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        tokenizer.close();
+    }
+
+    private CSVRow readRow() {
+        try {
+            if (! tokenizer.nextRecord())
+                return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<String> values = tokenizer.getFields();
+        String header = null;
+
+        if(containsRowsHeaders) {
+            header = values.get(0);
+            values = values.subList(1, values.size());
+        }
+
+        if ( ! columnsHeaders.isEmpty() && values.size() != columnsHeaders.size() ) {
+            throw new IllegalArgumentException("Invalid number of row elements: "+values.size()+". Not same size of column headers elements: "  + columnsHeaders.size());
+        }
+
+        return new CSVRow(position++, header, values, columnsPositions);
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVSelection
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * <p>Find the value of a specific position of the values in ascending order, without sort all values.</p>
+ *
+ * <p>The values are copied to a primitive array and the position is found using quickselect ( introselect ),
+ * in linear time. The primitive array is used just when all values can be converted to double keeping their order,
+ * values with more than 15 significant digits are sorted as BigDecimal.</p>
+ *
+ * <p>Equal values keep the order they have in the record, like a stable sort, so the value returned is the same
+ * one that would be in that position if the values were sorted.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVSelection {
+
+    /**
+     * Values with until 15 significant digits always are different and keep their order when converted to double
+     */
+    private static final int MAX_DOUBLE_PRECISION = 15;
+
+    /**
+     * Ranges smaller than this are sorted instead of partitioned
+     */
+    private static final int SORT_THRESHOLD = 16;
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    /**
+     * Value of each element
+     */
+    private final IntFunction<BigDecimal> values;
+
+    private final int size;
+
+    /**
+     * Values as double in the original order, null if some value can not be converted
+     */
+    private double[] keys;
+
+    /**
+     * Values as double partially ordered by the selections already done
+     */
+    private double[] work;
+
+    /**
+     * Values sorted, used when the values can not be converted to double
+     */
+    private BigDecimal[] sorted;
+
+    /**
+     * @param size number of elements
+     * @param values value of each element
+     * @param doubleValues value of each element as double, if it is known that all values keep their order
+     *                     as double, null otherwise
+     */
+    CSVSelection(int size, IntFunction<BigDecimal> values, IntToDoubleFunction doubleValues) {
+        this.size = size;
+        this.values = values;
+
+        if(doubleValues != null) {
+            keys = new double[size];
+            for (int index = 0; index < size; index++)
+                keys[index] = doubleValues.applyAsDouble(index);
+        }else{
+            keys = toDoubles(size, values);
+        }
+
+        if(keys != null) {
+            work = Arrays.copyOf(keys, size);
+        }else{
+            sorted = new BigDecimal[size];
+            for (int index = 0; index < size; index++)
+                sorted[index] = values.apply(index);
+            Arrays.sort(sorted);
+        }
+    }
+
+    /**
+     * Convert the values to double, return null if some value could change its order
+     */
+    private static double[] toDoubles(int size, IntFunction<BigDecimal> values) {
+        double[] keys = new double[size];
+        for (int index = 0; index < size; index++) {
+            BigDecimal value = values.apply(index);
+            if(value.precision() > MAX_DOUBLE_PRECISION)
+                return null;
+            double key = value.doubleValue();
+            if(Double.isInfinite(key) || (Math.abs(key) < Double.MIN_NORMAL && value.signum() != 0))
+                return null;
+            keys[index] = key;
+        }
+        return keys;
+    }
+
+    /**
+     * <p>Return the percentile of values, using linear interpolation between the closest positions ( the R-7 method ).</p>
+     *
+     * <p>When the percentile falls exactly in one position, the value of that position is returned,
+     * otherwise the interpolated value has 5 decimal places.</p>
+     *
+     * @param percentile between 0 and 100
+     * @return
+     */
+    BigDecimal percentile(double percentile) {
+        if(Double.isNaN(percentile) || percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("Percentile should be between 0 and 100: "+percentile);
+        if(size == 0)
+            throw new ArithmeticException("There are no elements to calculate the percentile");
+
+        BigDecimal position = BigDecimal.valueOf(size - 1).multiply(BigDecimal.valueOf(percentile)).divide(HUNDRED);
+        int lower = position.setScale(0, RoundingMode.FLOOR).intValueExact();
+        BigDecimal fraction = position.subtract(BigDecimal.valueOf(lower));
+
+        BigDecimal lowerValue = valueAt(lower);
+        if(fraction.signum() == 0)
+            return lowerValue;
+
+        BigDecimal upperValue = valueAt(lower + 1);
+        return lowerValue.add( fraction.multiply(upperValue.subtract(lowerValue)) ).setScale(5, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Return the value that would be at the rank position if the values were sorted
+     * @param rank
+     * @return
+     */
+    BigDecimal valueAt(int rank) {
+        if(rank < 0 || rank >= size)
+            throw new IndexOutOfBoundsException("Index: "+rank+", Size: "+size);
+
+        if(sorted != null)
+            return sorted[rank];
+
+        double key = select(work, rank);
+
+        // find the element with the same key that has this rank in a stable order
+        int less = 0;
+        for (int index = 0; index < size; index++) {
+            if(keys[index] < key)
+                less++;
+        }
+        int remaining = rank - less;
+        for (int index = 0; index < size; index++) {
+            if(keys[index] == key && remaining-- == 0)
+                return values.apply(index);
+        }
+        throw new IllegalStateException("Element of rank "+rank+" not found");
+    }
+
+    /**
+     * Partially order the array until the element of position k is in its sorted position.
+     */
+    private static double select(double[] a, int k) {
+        int left = 0;
+        int right = a.length - 1;
+        // after too many bad partitions, sort the remaining range
+        int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(a.length));
+
+        while (right - left >= SORT_THRESHOLD) {
+            if(depthLimit-- == 0) {
+                Arrays.sort(a, left, right + 1);
+                return a[k];
+            }
+
+            int middle = (left + right) >>> 1;
+            // median of three as pivot
+            if(a[middle] < a[left]) swap(a, middle, left);
+            if(a[right] < a[left]) swap(a, right, left);
+            if(a[right] < a[middle]) swap(a, right, middle);
+            double pivot = a[middle];
+
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (a[i] < pivot) i++;
+                while (a[j] > pivot) j--;
+                if(i <= j) {
+                    swap(a, i, j);
+                    i++;
+                    j--;
+                }
+            }
+
+            if(k <= j)
+                right = j;
+            else if(k >= i)
+                left = i;
+            else
+                return a[k];
+        }
+
+        Arrays.sort(a, left, right + 1);
+        return a[k];
+    }
+
+    private static void swap(double[] a, int i, int j) {
+        double temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+    }
+}
@@ -0,0 +1,534 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVSnapshot
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Binary file with the data of a data set stored by columns, that is loaded without parse the text of the CSV.</p>
+ *
+ * <p>Numeric columns are stored as the long values and scales of the CSVNumericValues, the other columns as a table
+ * of entries and blocks of UTF-8 bytes of the CSVOffHeapTextValues. When loaded, each region of the file is mapped
+ * in memory ( copy on write ) and used directly as the buffers of these classes, so nothing is read until used and
+ * the pages of the columns are read by the operating system when accessed.</p>
+ *
+ * <p>Layout of the file: "CSVS", version, byte order, the regions of the columns, the metadata ( settings, size and
+ * time of last modification of the CSV file, headers and the position of the regions of each column ) and at the end
+ * the position of the metadata. The values are in
+ * the native byte order of the machine that stored the file, a snapshot of other byte order is not loaded.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVSnapshot {
+
+    /**
+     * Extension added to the name of the CSV file
+     */
+    static final String EXTENSION = ".snapshot";
+
+    private static final byte[] MAGIC = {'C', 'S', 'V', 'S'};
+
+    private static final int VERSION = 2;
+
+    /**
+     * Magic, version, byte order and padding to align the regions
+     */
+    private static final int PROLOGUE_SIZE = 16;
+
+    /**
+     * Position of the metadata and magic
+     */
+    private static final int TRAILER_SIZE = 12;
+
+    private static final byte NUMERIC_COLUMN = 1;
+
+    private static final byte TEXT_COLUMN = 2;
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /* the settings of the data set */
+    final String separator;
+    final boolean containsColumnsHeaders;
+    final boolean containsRowsHeaders;
+
+    /**
+     * Size and time of last modification of the CSV file when its data was read, see {@link #sourceOf(Path)}
+     */
+    final long[] source;
+
+    final String crossHeader;
+    final List<String> columnsHeaders;
+    final List<String> rowsHeaders;
+
+    final int rowCount;
+
+    /**
+     * The values of each column
+     */
+    final List<List<String>> columns;
+
+    CSVSnapshot(String separator, boolean containsColumnsHeaders, boolean containsRowsHeaders, long[] source, String crossHeader,
+                List<String> columnsHeaders, List<String> rowsHeaders, int rowCount, List<List<String>> columns) {
+        this.separator = separator;
+        this.containsColumnsHeaders = containsColumnsHeaders;
+        this.containsRowsHeaders = containsRowsHeaders;
+        this.source = source;
+        this.crossHeader = crossHeader;
+        this.columnsHeaders = columnsHeaders;
+        this.rowsHeaders = rowsHeaders;
+        this.rowCount = rowCount;
+        this.columns = columns;
+    }
+
+    /**
+     * Size and time of last modification of the CSV file, compared to know if the snapshot has the data of the file.
+     * A time is not enough, the file can be written again in the same tick of the clock of the file system.
+     *
+     * @param csvFile
+     * @return {size, time in nanoseconds}, or {-1, -1} if the file does not exist
+     * @throws IOException
+     */
+    static long[] sourceOf(Path csvFile) throws IOException {
+        if(! Files.exists(csvFile))
+            return new long[]{-1, -1};
+        BasicFileAttributes attributes = Files.readAttributes(csvFile, BasicFileAttributes.class);
+        return new long[]{ attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) };
+    }
+
+    /**
+     * If the CSV file is the same it was when its data was read to this snapshot
+     * @param source the current size and time of last modification of the file
+     * @return
+     */
+    boolean isSnapshotOf(long[] source) {
+        return this.source[0] == source[0] && this.source[1] == source[1];
+    }
+
+    /**
+     * Release the memory mapped by the columns
+     */
+    void close() {
+        for (List<String> values : columns)
+            ((CSVColumnValues) values).close();
+    }
+
+    ////////////////////////////// store //////////////////////////////
+
+    /**
+     * Store the snapshot in the file. It is written in a temporary file that replaces the file at the end, so a
+     * snapshot of the same file that is mapped in memory is not changed.
+     * @param file
+     * @throws IOException
+     */
+    void store(Path file) throws IOException {
+
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (Output output = new Output(FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+
+            output.putBytes(MAGIC);
+            output.putInt(VERSION);
+            output.putByte(byteOrderFlag());
+            output.align(PROLOGUE_SIZE);
+
+            // the regions of the columns, the metadata of each column is kept to be written after them
+            Output metadata = new Output(null);
+            for (List<String> column : columns) {
+                CSVNumericValues numericValues = CSVColumnValues.toNumeric(column);
+                if(numericValues != null)
+                    storeNumericColumn(output, metadata, numericValues);
+                else
+                    storeTextColumn(output, metadata, column);
+            }
+
+            long metadataPosition = output.position();
+            output.putInt(separator.charAt(0));
+            output.putByte((byte) (containsColumnsHeaders ? 1 : 0));
+            output.putByte((byte) (containsRowsHeaders ? 1 : 0));
+            output.putLong(source[0]);
+            output.putLong(source[1]);
+            output.putString(crossHeader);
+            output.putInt(rowCount);
+            output.putStrings(columnsHeaders);
+            output.putStrings(rowsHeaders);
+            output.putInt(columns.size());
+            output.putBytes(metadata.toByteArray());
+
+            output.putLong(metadataPosition);
+            output.putBytes(MAGIC);
+        }
+
+        try {
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void storeNumericColumn(Output output, Output metadata, CSVNumericValues values) throws IOException {
+        output.align(Long.BYTES);
+        long unscaledValuesPosition = output.position();
+        for (int index = 0; index < rowCount; index++)
+            output.putLong(values.getUnscaled(index));
+
+        long scalesPosition = output.position();
+        for (int index = 0; index < rowCount; index++)
+            output.putByte((byte) values.getScale(index));
+
+        metadata.putByte(NUMERIC_COLUMN);
+        metadata.putInt(values.getScale());
+        metadata.putLong(values.getMaxAbsoluteValue());
+        metadata.putLong(unscaledValuesPosition);
+        metadata.putLong(scalesPosition);
+    }
+
+    /**
+     * The table of entries is written first, the position of each value in the blocks is calculated from the number
+     * of bytes of the values. A value does not cross the end of a block.
+     */
+    private void storeTextColumn(Output output, Output metadata, List<String> values) throws IOException {
+        output.align(Long.BYTES);
+        long tablePosition = output.position();
+
+        List<Integer> blockSizes = new ArrayList<>();
+        int block = -1;
+        int blockPosition = 0;
+        for (int index = 0; index < rowCount; index++) {
+            int length = utf8Length(values.get(index));
+            if(block < 0 || (blockPosition > 0 && blockPosition + length > CSVOffHeapTextValues.BLOCK_SIZE)) {
+                if(block >= 0)
+                    blockSizes.add(blockPosition);
+                block++;
+                blockPosition = 0;
+            }
+            output.putInt(block);
+            output.putInt(blockPosition);
+            output.putInt(length);
+            blockPosition += length;
+        }
+        if(block >= 0)
+            blockSizes.add(blockPosition);
+
+        long blocksPosition = output.position();
+        for (int index = 0; index < rowCount; index++)
+            output.putBytes(values.get(index).getBytes(StandardCharsets.UTF_8));
+
+        metadata.putByte(TEXT_COLUMN);
+        metadata.putLong(tablePosition);
+        metadata.putLong(blocksPosition);
+        metadata.putInt(blockSizes.size());
+        for (Integer blockSize : blockSizes)
+            metadata.putInt(blockSize);
+    }
+
+    /**
+     * Number of bytes of the value in UTF-8, the same of String.getBytes(): invalid surrogate chars are one byte ( '?' )
+     */
+    static int utf8Length(String value) {
+        int length = 0;
+        for (int index = 0; index < value.length(); index++) {
+            char c = value.charAt(index);
+            if(c < 0x80) {
+                length++;
+            } else if(c < 0x800) {
+                length += 2;
+            } else if(Character.isSurrogate(c)) {
+                if(Character.isHighSurrogate(c) && index + 1 < value.length() && Character.isLowSurrogate(value.charAt(index + 1))) {
+                    index++;
+                    length += 4;
+                } else {
+                    length++;
+                }
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    ////////////////////////////// load //////////////////////////////
+
+    /**
+     * <p>Load the snapshot of the file, mapping the regions of the columns in memory.</p>
+     *
+     * <p>The columns have to be closed to release the mapped memory.</p>
+     *
+     * @param file
+     * @return null if the file is not a snapshot of this version and byte order
+     * @throws IOException
+     */
+    static CSVSnapshot load(Path file) throws IOException {
+
+        // a copy on write mapping needs a channel that can write, but nothing is written to the file
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            long fileSize = channel.size();
+            if(fileSize < PROLOGUE_SIZE + TRAILER_SIZE)
+                return null;
+
+            ByteBuffer prologue = read(channel, 0, PROLOGUE_SIZE);
+            if(! hasMagic(prologue) || prologue.getInt() != VERSION || prologue.get() != byteOrderFlag())
+                return null;
+
+            ByteBuffer trailer = read(channel, fileSize - TRAILER_SIZE, TRAILER_SIZE);
+            long metadataPosition = trailer.getLong();
+            if(! hasMagic(trailer) || metadataPosition < PROLOGUE_SIZE || metadataPosition > fileSize - TRAILER_SIZE)
+                return null;
+
+            ByteBuffer metadata = read(channel, metadataPosition, (int) (fileSize - TRAILER_SIZE - metadataPosition));
+
+            String separator = String.valueOf((char) metadata.getInt());
+            boolean containsColumnsHeaders = metadata.get() == 1;
+            boolean containsRowsHeaders = metadata.get() == 1;
+            long[] source = { metadata.getLong(), metadata.getLong() };
+            String crossHeader = getString(metadata);
+            int rowCount = metadata.getInt();
+            List<String> columnsHeaders = getStrings(metadata);
+            List<String> rowsHeaders = getStrings(metadata);
+            int columnCount = metadata.getInt();
+
+            List<List<String>> columns = new ArrayList<>(columnCount);
+            try {
+                for (int column = 0; column < columnCount; column++) {
+                    byte type = metadata.get();
+                    if(type == NUMERIC_COLUMN)
+                        columns.add(loadNumericColumn(channel, metadata, rowCount));
+                    else if(type == TEXT_COLUMN)
+                        columns.add(loadTextColumn(channel, metadata, rowCount));
+                    else
+                        throw new IOException("Invalid type of column in the snapshot: "+type);
+                }
+            } catch (IOException | RuntimeException e) {
+                for (List<String> values : columns)
+                    ((CSVColumnValues) values).close();
+                throw e;
+            }
+
+            return new CSVSnapshot(separator, containsColumnsHeaders, containsRowsHeaders, source, crossHeader, columnsHeaders, rowsHeaders, rowCount, columns);
+        }
+    }
+
+    private static CSVNumericValues loadNumericColumn(FileChannel channel, ByteBuffer metadata, int rowCount) throws IOException {
+        int scale = metadata.getInt();
+        long maxAbsoluteValue = metadata.getLong();
+        long unscaledValuesPosition = metadata.getLong();
+        long scalesPosition = metadata.getLong();
+
+        if(rowCount == 0)
+            return CSVNumericValues.ofOffHeap(new ArrayList<>());
+
+        ByteBuffer unscaledValues = map(channel, unscaledValuesPosition, (long) rowCount * Long.BYTES);
+        ByteBuffer scales = map(channel, scalesPosition, rowCount);
+        return CSVNumericValues.ofBuffers(unscaledValues, scales, rowCount, scale, maxAbsoluteValue);
+    }
+
+    private static CSVOffHeapTextValues loadTextColumn(FileChannel channel, ByteBuffer metadata, int rowCount) throws IOException {
+        long tablePosition = metadata.getLong();
+        long blocksPosition = metadata.getLong();
+        int blockCount = metadata.getInt();
+        int[] blockSizes = new int[blockCount];
+        for (int block = 0; block < blockCount; block++)
+            blockSizes[block] = metadata.getInt();
+
+        if(rowCount == 0)
+            return CSVOffHeapTextValues.of(new ArrayList<>());
+
+        ByteBuffer table = map(channel, tablePosition, (long) rowCount * CSVOffHeapTextValues.ENTRY_SIZE);
+
+        // empty blocks ( just empty values ) are not mapped, they are never read
+        List<ByteBuffer> blocks = new ArrayList<>(blockCount);
+        long position = blocksPosition;
+        for (int blockSize : blockSizes) {
+            blocks.add(blockSize == 0 ? CSVOffHeapMemory.allocate(0) : map(channel, position, blockSize));
+            position += blockSize;
+        }
+        return CSVOffHeapTextValues.ofBuffers(table, blocks, rowCount);
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        if(size > Integer.MAX_VALUE || position < 0 || position + size > channel.size())
+            throw new IOException("Invalid region of the snapshot: "+position+" - "+(position + size));
+        return channel.map(FileChannel.MapMode.PRIVATE, position, size).order(ByteOrder.nativeOrder());
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.nativeOrder());
+        while (buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of the snapshot");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer) {
+        for (byte b : MAGIC) {
+            if(buffer.get() != b)
+                return false;
+        }
+        return true;
+    }
+
+    private static byte byteOrderFlag() {
+        return (byte) (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 1 : 2);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> getStrings(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<String> strings = new ArrayList<>(count);
+        for (int index = 0; index < count; index++)
+            strings.add(getString(buffer));
+        return strings;
+    }
+
+    /**
+     * Write to a channel through a buffer in the native byte order, counting the position.
+     * Without channel, the buffer grows and keeps all bytes.
+     */
+    private static class Output implements AutoCloseable {
+
+        private final FileChannel channel;
+
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.nativeOrder());
+
+        /**
+         * Position of the start of the buffer in the channel
+         */
+        private long flushedPosition;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return flushedPosition + buffer.position();
+        }
+
+        void putByte(byte value) throws IOException {
+            ensureRemaining(1);
+            buffer.put(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensureRemaining(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if(! buffer.hasRemaining())
+                    ensureRemaining(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            putBytes(bytes);
+        }
+
+        void putStrings(List<String> values) throws IOException {
+            putInt(values.size());
+            for (String value : values)
+                putString(value);
+        }
+
+        /**
+         * Write zeros until the position is a multiple of the alignment
+         */
+        void align(int alignment) throws IOException {
+            while (position() % alignment != 0)
+                putByte((byte) 0);
+        }
+
+        byte[] toByteArray() {
+            byte[] bytes = new byte[buffer.position()];
+            ByteBuffer content = buffer.duplicate();
+            content.flip();
+            content.get(bytes);
+            return bytes;
+        }
+
+        private void ensureRemaining(int length) throws IOException {
+            if(buffer.remaining() >= length)
+                return;
+            if(channel == null) {
+                ByteBuffer newBuffer = ByteBuffer.allocate(buffer.capacity() * 2).order(ByteOrder.nativeOrder());
+                buffer.flip();
+                newBuffer.put(buffer);
+                buffer = newBuffer;
+                return;
+            }
+            flush();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                flushedPosition += channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if(channel == null)
+                return;
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
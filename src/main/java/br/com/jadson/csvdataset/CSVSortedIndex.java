@@ -0,0 +1,179 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVSortedIndex
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * <p>Index of the values of a numeric column sorted by value, to find the rows with values in a range.</p>
+ *
+ * <p>Values are kept in ascending order, equal values in the order of their rows. A range is found with two binary
+ * searches, so the positions of the k rows in the range are returned in O(log n + k).</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVSortedIndex {
+
+    /**
+     * Values in ascending order
+     */
+    private BigDecimal[] values;
+
+    /**
+     * Position of the row of each value
+     */
+    private int[] positions;
+
+    private int size;
+
+    private CSVSortedIndex(int capacity) {
+        values = new BigDecimal[Math.max(capacity, 10)];
+        positions = new int[values.length];
+    }
+
+    /**
+     * Build the index of the values
+     * @param size number of values
+     * @param numbers the value of each position
+     * @return
+     */
+    static CSVSortedIndex of(int size, IntFunction<BigDecimal> numbers) {
+        CSVSortedIndex index = new CSVSortedIndex(size);
+
+        Integer[] order = new Integer[size];
+        BigDecimal[] values = new BigDecimal[size];
+        for (int position = 0; position < size; position++) {
+            order[position] = position;
+            values[position] = numbers.apply(position);
+        }
+        // stable sort, equal values stay in the order of rows
+        Arrays.sort(order, (first, second) -> values[first].compareTo(values[second]));
+
+        for (int i = 0; i < size; i++) {
+            index.values[i] = values[order[i]];
+            index.positions[i] = order[i];
+        }
+        index.size = size;
+        return index;
+    }
+
+    /**
+     * A value was added at the position, the positions after it are moved one position ahead.
+     * @param value
+     * @param position
+     */
+    void add(BigDecimal value, int position) {
+        // every row has a position in the index, so a value added at the end does not move any position
+        if(position < size) {
+            for (int i = 0; i < size; i++) {
+                if(positions[i] >= position)
+                    positions[i]++;
+            }
+        }
+
+        if(size == values.length) {
+            int capacity = values.length + (values.length >> 1);
+            values = Arrays.copyOf(values, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+        }
+
+        int index = indexOf(value, position);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        System.arraycopy(positions, index, positions, index + 1, size - index);
+        values[index] = value;
+        positions[index] = position;
+        size++;
+    }
+
+    /**
+     * The value of the position was removed, the positions after it are moved one position back.
+     * @param value
+     * @param position
+     */
+    void remove(BigDecimal value, int position) {
+        int index = indexOf(value, position);
+        if(index == size || positions[index] != position)
+            throw new IllegalStateException("Value \""+value+"\" is not indexed at position "+position);
+
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        System.arraycopy(positions, index + 1, positions, index, size - index - 1);
+        values[--size] = null;
+
+        for (int i = 0; i < size; i++) {
+            if(positions[i] > position)
+                positions[i]--;
+        }
+    }
+
+    /**
+     * Index of the first entry not smaller than ( value, position )
+     */
+    private int indexOf(BigDecimal value, int position) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = values[middle].compareTo(value);
+            if(comparison < 0 || (comparison == 0 && positions[middle] < position))
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Index of the first value bigger than the value ( strict ) or not smaller than it
+     */
+    private int bound(BigDecimal value, boolean strict) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = values[middle].compareTo(value);
+            if(comparison < 0 || (strict && comparison == 0))
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Positions of rows with values between low and high ( inclusive ), ordered by value.
+     *
+     * @param low null to no lower limit
+     * @param high null to no upper limit
+     * @return
+     */
+    int[] getPositions(BigDecimal low, BigDecimal high) {
+        int from = low == null ? 0 : bound(low, false);
+        int to = high == null ? size : bound(high, true);
+        return from >= to ? new int[0] : Arrays.copyOfRange(positions, from, to);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVStateMachine
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+/**
+ * <p>State machine that splits a sequence of characters in records and fields following the rules of RFC 4180.</p>
+ *
+ * <p>The characters are given one by one, as chars of a Reader or as bytes of a UTF-8 file (just ASCII characters
+ * change the state, so the bytes of multi-byte characters are handled as normal characters).
+ * For each character the machine says what the tokenizer has to do with it: skip it, append it to the current field,
+ * finish the current field or finish the current record.</p>
+ *
+ * <p>The same machine is used by all tokenizers and to find where the records start when a file is split
+ * to be read in parallel, so all of them agree about where a quoted value starts and ends.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+class CSVStateMachine {
+
+    static final char QUOTE = '"';
+
+    /**
+     * Files saved by some editors start with this character, it is not part of the data
+     */
+    static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    /* states of the machine */
+    static final int FIELD_START = 0;
+    static final int UNQUOTED_FIELD = 1;
+    static final int QUOTED_FIELD = 2;
+    static final int QUOTE_IN_QUOTED_FIELD = 3;
+
+    static final int STATE_COUNT = 4;
+
+    /* what to do with the character */
+    static final int SKIP = 0;
+    static final int APPEND = 1;
+    static final int END_FIELD = 2;
+    static final int END_RECORD = 3;
+
+    private final int separator;
+
+    private int state = FIELD_START;
+
+    /**
+     * Some character of the current record was read, a line break before it is a empty line
+     */
+    private boolean recordStarted = false;
+
+    /**
+     * The last record finished with '\r', so a '\n' right after it is part of the same line break
+     */
+    private boolean skipLineFeed = false;
+
+
+    CSVStateMachine(int separator) {
+        this.separator = separator;
+    }
+
+    /**
+     * Machine that starts in the middle of the data, in a known state
+     */
+    CSVStateMachine(int separator, int state) {
+        this.separator = separator;
+        this.state = state;
+        this.recordStarted = state != FIELD_START;
+    }
+
+    /**
+     * Prepare the machine to read a new record
+     */
+    void startRecord() {
+        state = FIELD_START;
+        recordStarted = false;
+    }
+
+    /**
+     * Process the next character
+     *
+     * @param c a char or a byte of UTF-8 data
+     * @return SKIP, APPEND, END_FIELD or END_RECORD
+     */
+    int next(int c) {
+
+        if (skipLineFeed) {
+            skipLineFeed = false;
+            if (c == '\n')
+                return SKIP;
+        }
+
+        switch (state) {
+
+            case FIELD_START:
+                if (c == '\n' || c == '\r') {
+                    skipLineFeed = c == '\r';
+                    return recordStarted ? endRecord() : SKIP; // skip empty lines
+                }
+                recordStarted = true;
+                if (c == QUOTE) {
+                    state = QUOTED_FIELD;
+                    return SKIP;
+                }
+                if (c == separator)
+                    return END_FIELD;
+                state = UNQUOTED_FIELD;
+                return APPEND;
+
+            case UNQUOTED_FIELD:
+                if (c == separator) {
+                    state = FIELD_START;
+                    return END_FIELD;
+                }
+                if (c == '\n' || c == '\r') {
+                    skipLineFeed = c == '\r';
+                    return endRecord();
+                }
+                return APPEND; // quotes in the middle of a unquoted field are normal characters
+
+            case QUOTED_FIELD:
+                if (c == QUOTE) {
+                    state = QUOTE_IN_QUOTED_FIELD;
+                    return SKIP;
+                }
+                return APPEND; // separators and line breaks are part of the value
+
+            default: // QUOTE_IN_QUOTED_FIELD
+                if (c == QUOTE) { // escaped quote ""
+                    state = QUOTED_FIELD;
+                    return APPEND;
+                }
+                if (c == separator) {
+                    state = FIELD_START;
+                    return END_FIELD;
+                }
+                if (c == '\n' || c == '\r') {
+                    skipLineFeed = c == '\r';
+                    return endRecord();
+                }
+                // characters after the closing quote are kept as part of the value: "12"34 -> 1234
+                state = UNQUOTED_FIELD;
+                return APPEND;
+        }
+    }
+
+    int getState() {
+        return state;
+    }
+
+    boolean isRecordStarted() {
+        return recordStarted;
+    }
+
+    boolean isSkipLineFeed() {
+        return skipLineFeed;
+    }
+
+    void setSkipLineFeed(boolean skipLineFeed) {
+        this.skipLineFeed = skipLineFeed;
+    }
+
+    /**
+     * If the three first bytes of a UTF-8 file are the byte order mark (EF BB BF)
+     */
+    static boolean isByteOrderMark(byte b0, byte b1, byte b2) {
+        return (b0 & 0xFF) == 0xEF && (b1 & 0xFF) == 0xBB && (b2 & 0xFF) == 0xBF;
+    }
+
+    private int endRecord() {
+        state = FIELD_START;
+        recordStarted = false;
+        return END_RECORD;
+    }
+}
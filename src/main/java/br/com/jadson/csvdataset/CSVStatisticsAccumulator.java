@@ -0,0 +1,236 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVStatisticsAccumulator
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * <p>Accumulate values to calculate the mean, variance and standard deviation in a single pass over the values.</p>
+ *
+ * <p>Accumulators of different parts of the values can be merged, so each part can be accumulated in parallel:</p>
+ *
+ * <pre>
+ * CSVStatisticsAccumulator first = new CSVStatisticsAccumulator().add("1").add("2");
+ * CSVStatisticsAccumulator second = new CSVStatisticsAccumulator().add("3");
+ * first.merge(second).getVariance();
+ * </pre>
+ *
+ * <p>The count, sum and sum of squares are kept exactly, so merged accumulators produce the same result
+ * of accumulate all values in one accumulator. The variance is the population variance, with 5 decimal places.</p>
+ *
+ * <p>Values of typed numeric columns are accumulated as long values, without create a BigDecimal for each value.
+ * The sums are moved to BigDecimal just when the long values would overflow.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+public class CSVStatisticsAccumulator {
+
+    /**
+     * The biggest absolute unscaled value whose square fits in a long
+     */
+    private static final long MAX_SQUARED_VALUE = 3037000499L;
+
+    private long count;
+
+    private BigDecimal sum = BigDecimal.ZERO;
+
+    private BigDecimal sumOfSquares = BigDecimal.ZERO;
+
+    /* sums of the unscaled values added as long, not included in sum and sumOfSquares yet */
+
+    private int unscaledScale;
+
+    private long unscaledSum;
+
+    private long unscaledSumOfSquares;
+
+    /**
+     * The biggest scale of the values, the scale of the sum of the values as BigDecimal
+     */
+    private int valuesScale;
+
+    /**
+     * Add a value
+     * @param value
+     * @return this accumulator
+     */
+    public CSVStatisticsAccumulator add(BigDecimal value) {
+        if(value == null)
+            throw new IllegalArgumentException("Value can't be null");
+        count++;
+        sum = sum.add(value);
+        sumOfSquares = sumOfSquares.add(value.multiply(value));
+        valuesScale = Math.max(valuesScale, value.scale());
+        return this;
+    }
+
+    /**
+     * Add a value of a typed numeric column, without convert it to BigDecimal
+     *
+     * @param unscaled the value multiplied by 10 ^ scale
+     * @param scale the scale of the column
+     * @param valueScale the scale of the value as it was in the text
+     */
+    void add(long unscaled, int scale, int valueScale) {
+        if(scale != unscaledScale) {
+            moveUnscaledSums();
+            unscaledScale = scale;
+        }
+        valuesScale = Math.max(valuesScale, valueScale);
+        count++;
+
+        if(unscaled > MAX_SQUARED_VALUE || unscaled < -MAX_SQUARED_VALUE) {
+            BigDecimal value = BigDecimal.valueOf(unscaled, scale);
+            sum = sum.add(value);
+            sumOfSquares = sumOfSquares.add(value.multiply(value));
+            return;
+        }
+
+        long square = unscaled * unscaled;
+        long newSum = unscaledSum + unscaled;
+        long newSumOfSquares = unscaledSumOfSquares + square;
+        // overflow, the sums until now are moved to BigDecimal
+        if(((unscaledSum ^ newSum) & (unscaled ^ newSum)) < 0 || newSumOfSquares < 0) {
+            moveUnscaledSums();
+            newSum = unscaled;
+            newSumOfSquares = square;
+        }
+        unscaledSum = newSum;
+        unscaledSumOfSquares = newSumOfSquares;
+    }
+
+    /**
+     * Add a numeric value
+     * @param value
+     * @return this accumulator
+     */
+    public CSVStatisticsAccumulator add(String value) {
+        if(value == null)
+            throw new IllegalArgumentException("Value can't be null");
+        try {
+            return add(new BigDecimal(value));
+        }catch(NumberFormatException nfe){
+            throw new NumberFormatException("value: \""+value+"\" is not a numeric value");
+        }
+    }
+
+    /**
+     * Add all values accumulated by other accumulator
+     * @param other
+     * @return this accumulator
+     */
+    public CSVStatisticsAccumulator merge(CSVStatisticsAccumulator other) {
+        if(other == null)
+            throw new IllegalArgumentException("Accumulator can't be null");
+        count += other.count;
+        sum = sum.add(other.totalSum());
+        sumOfSquares = sumOfSquares.add(other.totalSumOfSquares());
+        valuesScale = Math.max(valuesScale, other.valuesScale);
+        return this;
+    }
+
+    /**
+     * Remove a value added before
+     * @param value
+     */
+    void remove(BigDecimal value) {
+        count--;
+        sum = sum.subtract(value);
+        sumOfSquares = sumOfSquares.subtract(value.multiply(value));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * The sum of values, with the biggest scale of the values
+     * @return
+     */
+    public BigDecimal getSum() {
+        BigDecimal total = totalSum();
+        // the unscaled sums have the scale of the column, the digits removed are always zero
+        return total.scale() > valuesScale ? total.setScale(valuesScale, RoundingMode.UNNECESSARY) : total;
+    }
+
+    /**
+     * The average of values, with 5 decimal places
+     * @return
+     */
+    public BigDecimal getMean() {
+        validateCount();
+        return totalSum().divide(BigDecimal.valueOf(count), 5, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * <p>The population variance of values, with 5 decimal places:</p>
+     *
+     * <p>( N * SUM(X ^ 2) - SUM(X) ^ 2 ) / N ^ 2</p>
+     *
+     * @return
+     */
+    public BigDecimal getVariance() {
+        validateCount();
+        BigDecimal n = BigDecimal.valueOf(count);
+        BigDecimal sum = totalSum();
+        return n.multiply(totalSumOfSquares()).subtract(sum.multiply(sum)).divide(n.multiply(n), 5, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * The standard deviation of values, with 5 significant digits
+     * @return
+     */
+    public BigDecimal getStdDev() {
+        return getVariance().sqrt(new MathContext(5));
+    }
+
+    private BigDecimal totalSum() {
+        return unscaledSum == 0 ? sum : sum.add(BigDecimal.valueOf(unscaledSum, unscaledScale));
+    }
+
+    private BigDecimal totalSumOfSquares() {
+        return unscaledSumOfSquares == 0 ? sumOfSquares : sumOfSquares.add(BigDecimal.valueOf(unscaledSumOfSquares, unscaledScale * 2));
+    }
+
+    private void moveUnscaledSums() {
+        sum = totalSum();
+        sumOfSquares = totalSumOfSquares();
+        unscaledSum = 0;
+        unscaledSumOfSquares = 0;
+    }
+
+    private void validateCount() {
+        if(count == 0)
+            throw new ArithmeticException("Accumulator has no elements");
+    }
+
+    @Override
+    public String toString() {
+        return "CSVStatisticsAccumulator{" + "count=" + count + ", sum=" + getSum() + '}';
+    }
+}
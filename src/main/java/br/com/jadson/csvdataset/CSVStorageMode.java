@@ -0,0 +1,63 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVStorageMode
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+/**
+ * <p>How the values of the columns are stored in memory.</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+public enum CSVStorageMode {
+
+    /**
+     * Each value is stored as a String
+     */
+    TEXT,
+
+    /**
+     * <p>After load a file, and when a column is added, the type of each column is inferred and the values are stored in primitive arrays:
+     * numeric columns as long values with a fixed number of decimal places, boolean columns as bits.</p>
+     *
+     * <p>The other columns are stored in a dictionary when they have few distinct values: at most one distinct value
+     * for each four values, and at most 65536 distinct values. Each distinct String is kept once and each value is a
+     * code of 2 bytes. A column with more distinct values keeps the values as Strings, as does a dictionary column
+     * that receives a new value after its 65536 codes are used.</p>
+     *
+     * <p>Values are converted back to String when accessed, so just values that keep the same text
+     * after the conversion are stored typed ( "1.50" is a numeric value, "+1.5" or "1.5E3" are not ).</p>
+     */
+    TYPED,
+
+    /**
+     * <p>The values of the columns are stored out of the heap, in direct buffers, while the file is loaded or when columns are added:
+     * numeric columns as long values with a fixed number of decimal places, the other columns as text in blocks
+     * of bytes with a table of the position of each value. The heap keeps just the headers and the references
+     * to the buffers, so the data set does not increase the work of the garbage collector.</p>
+     *
+     * <p>The memory is released when the data set is closed or cleared, or when a column is removed.</p>
+     */
+    OFF_HEAP
+}
@@ -0,0 +1,120 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ *
+ * CSVDataSet
+ * br.com.jadson
+ * CSVTokenizer
+ * 17/10/26
+ */
+package br.com.jadson.csvdataset;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Split the content of a CSV file in records and fields in just one pass over the data.</p>
+ *
+ * <p>Follow the RFC 4180 rules: a field that starts with double quotes can contain the separator, line breaks
+ * and escaped double quotes (""). Double quotes in the middle of a field that does not start with them are
+ * kept as normal characters. Empty lines are skipped. The rules are implemented by {@link CSVStateMachine},
+ * shared by all tokenizers.</p>
+ *
+ * <p>Each call to nextRecord() reads one record, the values of the fields of this record are returned by getField().</p>
+ *
+ * Jadson Santos - jadsonjs@gmail.com
+ */
+abstract class CSVTokenizer implements Closeable {
+
+    /**
+     * Fields of the records that will be used, the content of the other fields are skipped. Null to use all fields
+     */
+    private boolean[] selectedFields;
+
+    /**
+     * Read the next record of the file.
+     *
+     * @return false if there is no more records
+     * @throws IOException
+     */
+    public abstract boolean nextRecord() throws IOException;
+
+    /**
+     * Number of fields of current record
+     * @return
+     */
+    public abstract int getFieldCount();
+
+    /**
+     * Return the value of a field of current record
+     * @param index
+     * @return
+     */
+    public abstract String getField(int index);
+
+    /**
+     * Check if the value of a field of current record is equals to a value, without create a String to the field
+     * @param index
+     * @param value
+     * @return
+     */
+    public abstract boolean fieldEquals(int index, String value);
+
+    /**
+     * Return the same hash code of the String with the value of the field, without create it
+     * @param index
+     * @return
+     */
+    public int fieldHashCode(int index) {
+        return getField(index).hashCode();
+    }
+
+    /**
+     * Return all values of current record
+     * @return
+     */
+    public List<String> getFields() {
+        List<String> fields = new ArrayList<>(getFieldCount());
+        for (int index = 0; index < getFieldCount(); index++) {
+            fields.add(getField(index));
+        }
+        return fields;
+    }
+
+    /**
+     * <p>Select the fields of the next records that will be used. The content of the other fields is skipped
+     * and getField() returns a empty value for them.</p>
+     *
+     * @param selectedFields selectedFields[i] is true if the field i is used. Fields after the end of array are skipped. Null to use all fields.
+     */
+    public void setSelectedFields(boolean[] selectedFields) {
+        this.selectedFields = selectedFields;
+    }
+
+    protected boolean isSelected(int field) {
+        return selectedFields == null || ( field < selectedFields.length && selectedFields[field] );
+    }
+
+    protected static void validateSeparator(char separator) {
+        if(separator == CSVStateMachine.QUOTE || separator == '\n' || separator == '\r')
+            throw new IllegalArgumentException("Invalid separator: "+separator);
+    }
+}
@@ -31,8 +31,12 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Test creation of data in CSV file
@@ -206,6 +210,80 @@ public class CSVDataSetAlgorithmTest {
     }
 
 
+    /**
+     * Test min and max of a row or a column
+     */
+    @Test
+    void rowAndColumnMinMaxAlgorithmTest() throws IOException {
+
+        CSVDataSet dataSet = new CSVDataSet( "temp.csv", true, false );
+
+        dataSet.clearData();
+        dataSet.addRow( Arrays.asList(new String[]{"Column1", "Column2", "Column3", "Column4"}) );
+        dataSet.addRow(  Arrays.asList(new String[]{"1", "2", "3", "4"})   );
+        dataSet.addRow(  Arrays.asList(new String[]{"5", "-6", "7", "8"})    );
+        dataSet.addRow(  Arrays.asList(new String[]{"9", "10", "11.5", "12"}) );
+
+        Assertions.assertTrue( new BigDecimal("-6").compareTo(dataSet.minRow(1)) == 0 );
+        Assertions.assertTrue( new BigDecimal("8").compareTo(dataSet.maxRow(1)) == 0 );
+        Assertions.assertTrue( new BigDecimal("3").compareTo(dataSet.minColumn("Column3")) == 0 );
+        Assertions.assertTrue( new BigDecimal("11.5").compareTo(dataSet.maxColumn(2)) == 0 );
+    }
+
+    /**
+     * Results of the operations are kept between calls, they have to change when the data set changes
+     */
+    @Test
+    void columnStatisticsAfterChangesAlgorithmTest() throws IOException {
+
+        CSVDataSet dataSet = new CSVDataSet( "temp.csv", true, false );
+
+        dataSet.clearData();
+        dataSet.addRow( Arrays.asList(new String[]{"Column1", "Column2"}) );
+        dataSet.addRow(  Arrays.asList(new String[]{"1", "2.5"})   );
+        dataSet.addRow(  Arrays.asList(new String[]{"5", "6"})    );
+        dataSet.addRow(  Arrays.asList(new String[]{"9", "10"}) );
+
+        Assertions.assertEquals( new BigDecimal("18.5"), dataSet.sumColumn("Column2") );
+        Assertions.assertEquals( new BigDecimal("6"), dataSet.medianColumn("Column2") );
+        Assertions.assertTrue( new BigDecimal("2.5").compareTo(dataSet.minColumn("Column2")) == 0 );
+        Assertions.assertTrue( new BigDecimal("10").compareTo(dataSet.maxColumn("Column2")) == 0 );
+        BigDecimal variance = dataSet.varianceColumn("Column2");
+
+        dataSet.addRow(  Arrays.asList(new String[]{"0", "20"}) );
+
+        Assertions.assertEquals( new BigDecimal("38.5"), dataSet.sumColumn("Column2") );
+        Assertions.assertTrue( new BigDecimal("8").compareTo(dataSet.medianColumn("Column2")) == 0 );
+        Assertions.assertTrue( new BigDecimal("20").compareTo(dataSet.maxColumn("Column2")) == 0 );
+        Assertions.assertTrue( new BigDecimal("9.625").compareTo(dataSet.meanColumn("Column2")) == 0 );
+        Assertions.assertNotEquals( variance, dataSet.varianceColumn("Column2") );
+
+        dataSet.removeRow(0);
+
+        Assertions.assertEquals( new BigDecimal("36"), dataSet.sumColumn("Column2") );
+        Assertions.assertTrue( new BigDecimal("6").compareTo(dataSet.minColumn("Column2")) == 0 );
+        Assertions.assertTrue( new BigDecimal("10").compareTo(dataSet.medianColumn("Column2")) == 0 );
+        Assertions.assertTrue( new BigDecimal("34.66667").compareTo(dataSet.varianceColumn("Column2")) == 0 );
+
+        dataSet.replaceColumn("Column2", Arrays.asList(new String[]{"Column2", "1", "2", "3"}));
+
+        Assertions.assertEquals( new BigDecimal("6"), dataSet.sumColumn("Column2") );
+        Assertions.assertTrue( new BigDecimal("1").compareTo(dataSet.minColumn("Column2")) == 0 );
+
+        // changes made in the list of values of the column, without change the number of values
+        dataSet.getColumnValues("Column2").set(0, "10");
+
+        Assertions.assertEquals( new BigDecimal("15"), dataSet.sumColumn("Column2") );
+        Assertions.assertTrue( new BigDecimal("2").compareTo(dataSet.minColumn("Column2")) == 0 );
+        Assertions.assertTrue( new BigDecimal("10").compareTo(dataSet.maxColumn("Column2")) == 0 );
+
+        dataSet.getColumnValues("Column2").remove(2);
+        dataSet.getColumnValues("Column2").add("4");
+
+        Assertions.assertEquals( new BigDecimal("16"), dataSet.sumColumn("Column2") );
+        Assertions.assertEquals( Arrays.asList(new String[]{"10", "2", "4"}), dataSet.getColumnValues("Column2") );
+    }
+
     /**
      * Test median a row or a column
      */
@@ -229,6 +307,72 @@ public class CSVDataSetAlgorithmTest {
     }
 
 
+    /**
+     * Test percentiles of a row or a column
+     */
+    @Test
+    void rowAndColumnPercentileAlgorithmTest() throws IOException {
+
+        CSVDataSet dataSet = new CSVDataSet( "temp.csv", true, false );
+
+        dataSet.clearData();
+        dataSet.addRow( Arrays.asList(new String[]{"Column1", "Column2", "Column3", "Column4"}) );
+        for (int i = 100; i >= 1; i--) {
+            dataSet.addRow( Arrays.asList(new String[]{ String.valueOf(i), "2", "3", "4"}) );
+        }
+
+        Assertions.assertEquals( new BigDecimal("50.50000"), dataSet.percentileColumn("Column1", 50) );
+        Assertions.assertEquals( dataSet.medianColumn("Column1"), dataSet.percentileColumn(0, 50) );
+        Assertions.assertEquals( new BigDecimal("90.10000"), dataSet.percentileColumn("Column1", 90) );
+        Assertions.assertEquals( new BigDecimal("99.01000"), dataSet.percentileColumn("Column1", 99) );
+        Assertions.assertEquals( new BigDecimal("1"), dataSet.percentileColumn("Column1", 0) );
+        Assertions.assertEquals( new BigDecimal("100"), dataSet.percentileColumn("Column1", 100) );
+        Assertions.assertEquals( new BigDecimal("28.00000"), dataSet.percentileRow(0, 75) );
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dataSet.percentileColumn("Column1", 101) );
+    }
+
+
+    /**
+     * Test approximate percentiles, the error of the rank should be small
+     */
+    @Test
+    void columnApproxPercentileAlgorithmTest() throws IOException {
+
+        CSVDataSet dataSet = new CSVDataSet( "temp.csv", true, false );
+
+        List<Integer> numbers = new ArrayList<>();
+        for (int i = 1; i <= 100000; i++)
+            numbers.add(i);
+        Collections.shuffle(numbers, new Random(1));
+
+        dataSet.clearData();
+        dataSet.addRow( Arrays.asList(new String[]{"Column1"}) );
+        for (Integer number : numbers)
+            dataSet.addRow( Arrays.asList(new String[]{ String.valueOf(number) }) );
+
+        Assertions.assertEquals( 50000, dataSet.approxMedianColumn("Column1").doubleValue(), 2000 );
+        Assertions.assertEquals( 99000, dataSet.approxPercentileColumn("Column1", 99).doubleValue(), 2000 );
+        Assertions.assertEquals( 1, dataSet.approxPercentileColumn(0, 0).doubleValue() );
+        Assertions.assertEquals( 100000, dataSet.approxPercentileColumn(0, 100).doubleValue() );
+
+        // sketches of parts merged
+        CSVQuantileSketch first = new CSVQuantileSketch();
+        CSVQuantileSketch second = new CSVQuantileSketch();
+        for (int i = 0; i < numbers.size(); i++) {
+            if(i % 3 == 0)
+                first.add(numbers.get(i));
+            else
+                second.add(String.valueOf(numbers.get(i)));
+        }
+        CSVQuantileSketch merged = first.merge(second);
+
+        Assertions.assertEquals( 100000, merged.getCount() );
+        Assertions.assertEquals( 90000, merged.getPercentile(90), 2000 );
+        Assertions.assertEquals( 10000, merged.getPercentile(10), 2000 );
+    }
+
+
     @Test
     void columnMedianAlgorithmByColumnValueTest() throws IOException {
 
@@ -270,6 +414,100 @@ public class CSVDataSetAlgorithmTest {
     }
 
 
+    /**
+     * Test the accumulator of a column, merged from parts and in parallel
+     */
+    @Test
+    void columnAccumulatorAlgorithmTest() throws IOException {
+
+        CSVDataSet dataSet = new CSVDataSet( "temp.csv" , true, false);
+
+        dataSet.clearData();
+        dataSet.addRow( Arrays.asList(new String[]{"Column1", "Column2"}) );
+        for (int i = 0; i < 20000; i++) {
+            dataSet.addRow( Arrays.asList(new String[]{ String.valueOf(1000000000 + (i % 4)), String.valueOf(i % 7) + ".5" }) );
+        }
+
+        CSVStatisticsAccumulator accumulator = dataSet.accumulateColumn("Column1");
+
+        Assertions.assertEquals( 20000, accumulator.getCount() );
+        Assertions.assertTrue( new BigDecimal("1000000001.5").compareTo(accumulator.getMean()) == 0 );
+        Assertions.assertTrue( new BigDecimal("1.25").compareTo(accumulator.getVariance()) == 0 );
+        Assertions.assertEquals( dataSet.varianceColumn("Column1"), accumulator.getVariance() );
+        Assertions.assertEquals( dataSet.stdDevColumn("Column1"), accumulator.getStdDev() );
+
+        CSVStatisticsAccumulator parallel = dataSet.accumulateColumnParallel("Column2", new ForkJoinPool(4));
+        Assertions.assertEquals( dataSet.varianceColumn("Column2"), parallel.getVariance() );
+        Assertions.assertEquals( dataSet.meanColumn("Column2"), parallel.getMean() );
+
+        CSVStatisticsAccumulator merged = new CSVStatisticsAccumulator().add("1").add("2")
+                .merge( new CSVStatisticsAccumulator().add("3").add(new BigDecimal("4")) );
+        Assertions.assertTrue( new BigDecimal("1.25").compareTo(merged.getVariance()) == 0 );
+        Assertions.assertTrue( new BigDecimal("10").compareTo(merged.getSum()) == 0 );
+
+        // values of typed columns are accumulated as long, and as BigDecimal when the long values would overflow
+        List<String> typedValues = new ArrayList<>(Arrays.asList("4000000000", "-3.5", "2.25"));
+        typedValues.addAll(Collections.nCopies(12, "9000000000000000"));
+        typedValues.add("7");
+        CSVNumericValues numericValues = CSVNumericValues.of(typedValues);
+        CSVStatisticsAccumulator typed = new CSVStatisticsAccumulator();
+        CSVStatisticsAccumulator text = new CSVStatisticsAccumulator();
+        for (int index = 0; index < typedValues.size(); index++) {
+            numericValues.accumulate(typed, index);
+            text.add(typedValues.get(index));
+        }
+        Assertions.assertEquals( text.getSum(), typed.getSum() );
+        Assertions.assertEquals( text.getMean(), typed.getMean() );
+        Assertions.assertEquals( text.getVariance(), typed.getVariance() );
+        Assertions.assertEquals( text.getSum(), new CSVStatisticsAccumulator().merge(typed).getSum() );
+
+        Assertions.assertThrows(ArithmeticException.class, () -> new CSVStatisticsAccumulator().getMean() );
+    }
+
+
+    /**
+     * Test aggregate columns grouped by the values of other column, the results should be the same of the
+     * operations by matching
+     */
+    @Test
+    void groupByAlgorithmTest() throws IOException {
+
+        CSVDataSet dataSet = new CSVDataSet( "temp.csv" , true, false);
+
+        dataSet.clearData();
+        dataSet.addRow( Arrays.asList(new String[]{"Quarter", "revenue", "cost"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"Q1", "10", "1.5"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"Q2", "20", "2"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"Q1", "30", "3"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"Q3", "5", "4"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"Q1", "7", "5"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"Q2", "1", "6"}) );
+
+        CSVDataSet byQuarter = dataSet.groupBy("Quarter", Arrays.asList("revenue", "cost"));
+
+        Assertions.assertEquals( Arrays.asList("Q1", "Q2", "Q3"), byQuarter.getRowHeadersValues() );
+        Assertions.assertEquals( Arrays.asList("count", "sum(revenue)", "mean(revenue)", "median(revenue)", "variance(revenue)", "stdDev(revenue)",
+                "sum(cost)", "mean(cost)", "median(cost)", "variance(cost)", "stdDev(cost)"), byQuarter.getColumnHeadersValues() );
+        Assertions.assertEquals( Arrays.asList("3", "2", "1"), byQuarter.getColumnValues("count") );
+
+        for (String quarter : new String[]{"Q1", "Q2", "Q3"}) {
+            List<String> row = byQuarter.getRowValues(quarter);
+            for (String column : new String[]{"revenue", "cost"}) {
+                int first = byQuarter.getColumnHeadersValues().indexOf("sum("+column+")");
+                Assertions.assertEquals( dataSet.sumColumnByMatching(column, "Quarter", quarter).toString(), row.get(first) );
+                Assertions.assertEquals( dataSet.meanColumnByMatching(column, "Quarter", quarter).toString(), row.get(first + 1) );
+                Assertions.assertEquals( dataSet.medianColumnByMatching(column, "Quarter", quarter).toString(), row.get(first + 2) );
+                Assertions.assertEquals( dataSet.varianceColumnByMatching(column, "Quarter", quarter).toString(), row.get(first + 3) );
+                Assertions.assertEquals( dataSet.stdDevColumnByMatching(column, "Quarter", quarter).toString(), row.get(first + 4) );
+            }
+        }
+
+        Assertions.assertTrue( new BigDecimal("6").compareTo(byQuarter.sumColumn("count")) == 0 );
+        Assertions.assertEquals( "47", byQuarter.getRowValues("Q1").get(1) );
+        Assertions.assertEquals( "4", byQuarter.getRowValues("Q3").get(6) );
+    }
+
+
     /**
      * Test standard deviation a row or a column
      */
@@ -32,6 +32,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
@@ -383,6 +384,38 @@ public class CSVDataSetOperationTest {
     }
 
 
+    /**
+     * Test build a CSV file adding a set of rows
+     */
+    @Test
+    void addRowsTest() throws IOException {
+
+        CSVDataSet dataSet = new CSVDataSet( "temp.csv" );
+
+        dataSet.addRows( Arrays.asList(
+                Arrays.asList(new String[]{" ",    "Column1", "Column2", "Column3"}),
+                Arrays.asList(new String[]{"Row0", "1",       "2",       "3"}),
+                Arrays.asList(new String[]{"Row1", "4",       "5",       "6"})  ) );
+
+        dataSet.addRows( Arrays.asList(
+                Arrays.asList(new String[]{"Row2", "7", "8", "9"})  ) );
+
+        Assertions.assertEquals( 3, dataSet.getRowCount() );
+        Assertions.assertEquals( 3, dataSet.getColumnsCount() );
+        Assertions.assertTrue(Arrays.asList( new String[]  {"2", "5", "8"} ).equals(dataSet.getColumnValues("Column2")));
+        Assertions.assertTrue(Arrays.asList( new String[]  {"7", "8", "9"} ).equals(dataSet.getRowValues("Row2")));
+
+        // a invalid row does not change the data set
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            dataSet.addRows( Arrays.asList(
+                    Arrays.asList(new String[]{"Row3", "10", "11", "12"}),
+                    Arrays.asList(new String[]{"Row4", "13", "14"}) ) );
+        });
+
+        Assertions.assertEquals( 3, dataSet.getRowCount() );
+    }
+
+
     /**
      * Test build a CSV file adding column
      */
@@ -852,6 +885,12 @@ public class CSVDataSetOperationTest {
         Assertions.assertTrue(Arrays.asList( new String[]  {"1", "9", "90"} ).equals(dataSet.getColumnValuesByMatching("Column0", "Column2", "10")));
         Assertions.assertTrue(Arrays.asList( new String[]  {"9", "19", "90"} ).equals(dataSet.getColumnValuesByMatching("Column0", "Column3", "12")));
 
+        // a value changed in the list of the column is seen by the next searches
+        dataSet.getColumnValues("Column2").set(1, "10");
+
+        Assertions.assertTrue(Arrays.asList( new String[]  {"1", "5", "9", "90"} ).equals(dataSet.getColumnValuesByMatching("Column0", "Column2", "10")));
+        Assertions.assertTrue(new BigDecimal("4").compareTo(dataSet.countColumnValues("Column2", "10")) == 0);
+
     }
 
 
@@ -888,4 +927,247 @@ public class CSVDataSetOperationTest {
 
 
 
+    /**
+     * Test the index of a column is kept updated when rows are added, removed and the column is replaced
+     */
+    @Test
+    void columnIndexTest() throws IOException {
+
+        CSVDataSet indexed = new CSVDataSet( "temp.csv", true, false );
+        CSVDataSet notIndexed = new CSVDataSet( "temp.csv", true, false );
+
+        for (CSVDataSet dataSet : new CSVDataSet[]{indexed, notIndexed}) {
+            dataSet.clearData();
+            dataSet.addRow( Arrays.asList(new String[]{"customer_id", "value"}) );
+            dataSet.addRow( Arrays.asList(new String[]{"a", "1"}) );
+        }
+
+        indexed.createIndex("customer_id");
+
+        Random random = new Random(1);
+        for (int i = 0; i < 500; i++) {
+            List<String> row = Arrays.asList(new String[]{ String.valueOf((char) ('a' + random.nextInt(5))), String.valueOf(i) });
+            int operation = random.nextInt(4);
+            int position = random.nextInt(indexed.getRowCount());
+
+            for (CSVDataSet dataSet : new CSVDataSet[]{indexed, notIndexed}) {
+                if(operation == 0)
+                    dataSet.addRow(row, position);
+                else if(operation == 1 && dataSet.getRowCount() > 1)
+                    dataSet.removeRow(position);
+                else
+                    dataSet.addRow(row);
+            }
+        }
+
+        for (CSVDataSet dataSet : new CSVDataSet[]{indexed, notIndexed}) {
+            List<String> customers = new ArrayList<>(dataSet.getColumnValues("customer_id"));
+            customers.add(0, "customer_id");
+            customers.set(1, "f");
+            dataSet.replaceColumn("customer_id", customers);
+        }
+
+        for (String customer : new String[]{"a", "b", "c", "d", "e", "f", "z"}) {
+            Assertions.assertEquals( notIndexed.getColumnValuesByMatching("value", "customer_id", customer),
+                    indexed.getColumnValuesByMatching("value", "customer_id", customer) );
+            Assertions.assertEquals( notIndexed.countColumnValues("customer_id", customer), indexed.countColumnValues("customer_id", customer) );
+        }
+        Assertions.assertEquals( new BigDecimal(1), indexed.countColumnValues("customer_id", "f") );
+
+        indexed.dropIndex("customer_id");
+        Assertions.assertEquals( notIndexed.getColumnValuesByMatching("value", "customer_id", "a"),
+                indexed.getColumnValuesByMatching("value", "customer_id", "a") );
+    }
+
+
+    /**
+     * Test the sorted index of a column returns the same rows of a scan, also after rows are added and removed
+     */
+    @Test
+    void columnSortedIndexTest() throws IOException {
+
+        CSVDataSet indexed = new CSVDataSet( "temp.csv", true, false );
+        CSVDataSet notIndexed = new CSVDataSet( "temp.csv", true, false );
+
+        for (CSVDataSet dataSet : new CSVDataSet[]{indexed, notIndexed}) {
+            dataSet.clearData();
+            dataSet.addRow( Arrays.asList(new String[]{"latency", "value"}) );
+            dataSet.addRow( Arrays.asList(new String[]{"10", "1"}) );
+        }
+
+        indexed.createSortedIndex("latency");
+
+        Random random = new Random(1);
+        for (int i = 0; i < 500; i++) {
+            List<String> row = Arrays.asList(new String[]{ random.nextInt(100) + "." + random.nextInt(10), String.valueOf(i) });
+            int operation = random.nextInt(4);
+            int position = random.nextInt(indexed.getRowCount());
+
+            for (CSVDataSet dataSet : new CSVDataSet[]{indexed, notIndexed}) {
+                if(operation == 0)
+                    dataSet.addRow(row, position);
+                else if(operation == 1 && dataSet.getRowCount() > 1)
+                    dataSet.removeRow(position);
+                else
+                    dataSet.addRow(row);
+            }
+        }
+
+        BigDecimal[][] ranges = { {new BigDecimal("20"), new BigDecimal("40.5")}, {null, new BigDecimal("10")},
+                {new BigDecimal("90"), null}, {new BigDecimal("50"), new BigDecimal("50")}, {new BigDecimal("60"), new BigDecimal("30")} };
+
+        for (BigDecimal[] range : ranges) {
+            Assertions.assertEquals( notIndexed.getColumnValuesByRange("value", "latency", range[0], range[1]),
+                    indexed.getColumnValuesByRange("value", "latency", range[0], range[1]) );
+            Assertions.assertEquals( notIndexed.countColumnByRange("latency", range[0], range[1]), indexed.countColumnByRange("latency", range[0], range[1]) );
+            Assertions.assertEquals( notIndexed.sumColumnByRange("value", "latency", range[0], range[1]), indexed.sumColumnByRange("value", "latency", range[0], range[1]) );
+            if(indexed.countColumnByRange("latency", range[0], range[1]).signum() > 0)
+                Assertions.assertEquals( notIndexed.medianColumnByRange("value", "latency", range[0], range[1]), indexed.medianColumnByRange("value", "latency", range[0], range[1]) );
+        }
+
+        Assertions.assertEquals( new BigDecimal(indexed.getRowCount()), indexed.countColumnByRange("latency", null, null) );
+        Assertions.assertThrows( NumberFormatException.class, () -> indexed.addRow( Arrays.asList(new String[]{"slow", "1"}) ) );
+
+        // a invalid row does not change the data set, also when the invalid value is not in the first column
+        indexed.createSortedIndex("value");
+        int rowCount = indexed.getRowCount();
+        Assertions.assertThrows( NumberFormatException.class, () -> indexed.addRow( Arrays.asList(new String[]{"5", "slow"}) ) );
+        Assertions.assertThrows( NumberFormatException.class, () -> indexed.addRow( Arrays.asList(new String[]{"5", "slow"}), 0 ) );
+        Assertions.assertThrows( NumberFormatException.class, () -> indexed.addRows( Arrays.asList(Arrays.asList(new String[]{"5", "1"}), Arrays.asList(new String[]{"5", "slow"})) ) );
+        Assertions.assertThrows( IllegalArgumentException.class, () -> indexed.addRow( Arrays.asList(new String[]{"5"}) ) );
+        Assertions.assertThrows( IllegalArgumentException.class, () -> indexed.addRow( Arrays.asList(new String[]{"5", "1", "2"}), 0 ) );
+        Assertions.assertEquals( rowCount, indexed.getRowCount() );
+        Assertions.assertEquals( rowCount, indexed.getColumnValues("latency").size() );
+        Assertions.assertEquals( rowCount, indexed.getColumnValues("value").size() );
+    }
+
+    /**
+     * Test the rows selected by combined filters over the data loaded, with and without bitmap indexes
+     */
+    @Test
+    void columnFilterWhereTest() throws IOException {
+
+        CSVDataSet dataSet = new CSVDataSet( "temp.csv", true, false );
+        dataSet.clearData();
+        dataSet.addRow( Arrays.asList(new String[]{"Quarter", "region", "sales"}) );
+
+        String[] quarters = {"Q1", "Q2", "Q3", "Q4"};
+        String[] regions = {"EU", "US", "ASIA"};
+        Random random = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            dataSet.addRow( Arrays.asList(new String[]{ quarters[random.nextInt(4)], regions[random.nextInt(3)], String.valueOf(random.nextInt(1000)) }) );
+        }
+        dataSet.removeRow(10);
+        dataSet.addRow( Arrays.asList(new String[]{"Q4", "EU", "7"}), 20 );
+
+        CSVRowFilter filter = CSVRowFilter.equalTo("Quarter", "Q4")
+                .and( CSVRowFilter.not( CSVRowFilter.equalTo("region", "EU") ) )
+                .or( CSVRowFilter.in("Quarter", Arrays.asList("Q1", "Q2")).and( CSVRowFilter.equalTo("region", "ASIA") ) );
+
+        List<String> expected = new ArrayList<>();
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int row = 0; row < dataSet.getColumnValues("sales").size(); row++) {
+            String quarter = dataSet.getColumnValues("Quarter").get(row);
+            String region = dataSet.getColumnValues("region").get(row);
+            if( (quarter.equals("Q4") && ! region.equals("EU")) || ((quarter.equals("Q1") || quarter.equals("Q2")) && region.equals("ASIA")) ) {
+                expected.add(dataSet.getColumnValues("sales").get(row));
+                sum = sum.add(new BigDecimal(dataSet.getColumnValues("sales").get(row)));
+            }
+        }
+
+        Assertions.assertEquals( expected, dataSet.getColumnValuesWhere("sales", filter) );
+        Assertions.assertEquals( new BigDecimal(expected.size()), dataSet.countRowsWhere(filter) );
+        Assertions.assertEquals( sum, dataSet.sumColumnWhere("sales", filter) );
+        BigDecimal median = dataSet.medianColumnWhere("sales", filter);
+        BigDecimal stdDev = dataSet.stdDevColumnWhere("sales", filter);
+
+        dataSet.createBitmapIndex("Quarter");
+        dataSet.createBitmapIndex("region");
+
+        Assertions.assertEquals( expected, dataSet.getColumnValuesWhere("sales", filter) );
+        Assertions.assertEquals( sum, dataSet.sumColumnWhere(2, filter) );
+        Assertions.assertEquals( median, dataSet.medianColumnWhere("sales", filter) );
+        Assertions.assertEquals( stdDev, dataSet.stdDevColumnWhere("sales", filter) );
+
+        // the bitmaps are updated with the rows added
+        dataSet.addRow( Arrays.asList(new String[]{"Q4", "US", "1000"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"Q1", "EU", "1000"}), 0 );
+        Assertions.assertEquals( new BigDecimal(expected.size() + 1), dataSet.countRowsWhere(filter) );
+        Assertions.assertEquals( sum.add(new BigDecimal(1000)), dataSet.sumColumnWhere("sales", filter) );
+
+        Assertions.assertEquals( new BigDecimal(0), dataSet.countRowsWhere(CSVRowFilter.equalTo("region", "AFRICA")) );
+        Assertions.assertThrows( IllegalArgumentException.class, () -> dataSet.countRowsWhere(CSVRowFilter.equalTo("country", "BR")) );
+    }
+
+    /**
+     * Test find rows and columns by label after they are added and removed, and with duplicated labels
+     */
+    @Test
+    void headerLabelLookupTest() throws IOException {
+
+        CSVDataSet dataSet = new CSVDataSet( "temp.csv", true, true );
+        dataSet.clearData();
+
+        dataSet.addRow( Arrays.asList(new String[]{"product", "Q1", "Q2", "Q1"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"p1", "1", "2", "3"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"p2", "4", "5", "6"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"p0", "7", "8", "9"}), 0 );
+
+        // the first column with the label is used
+        Assertions.assertEquals( Arrays.asList(new String[]{"7", "1", "4"}), dataSet.getColumnValues("Q1") );
+        Assertions.assertEquals( Arrays.asList(new String[]{"4", "5", "6"}), dataSet.getRowValues("p2") );
+
+        dataSet.removeColumn("Q1");
+        Assertions.assertEquals( Arrays.asList(new String[]{"9", "3", "6"}), dataSet.getColumnValues("Q1") );
+        Assertions.assertEquals( Arrays.asList(new String[]{"8", "2", "5"}), dataSet.getColumnValues("Q2") );
+
+        dataSet.addColumn( Arrays.asList(new String[]{"Q0", "0", "0", "0"}), 0 );
+        dataSet.removeRow(0);
+        Assertions.assertEquals( Arrays.asList(new String[]{"0", "5", "6"}), dataSet.getRowValues("p2") );
+        Assertions.assertTrue( new BigDecimal(7).compareTo(dataSet.sumColumn("Q2")) == 0 );
+
+        // storing the data does not change the headers
+        dataSet.storeData();
+        dataSet.storeData();
+        Assertions.assertEquals( Arrays.asList(new String[]{"Q0", "Q2", "Q1"}), dataSet.getColumnHeadersValues() );
+        Assertions.assertEquals( Arrays.asList(new String[]{"2", "5"}), dataSet.getColumnValues("Q2") );
+
+        Assertions.assertThrows( IllegalArgumentException.class, () -> dataSet.getRowValues("p0") );
+        Assertions.assertThrows( IllegalArgumentException.class, () -> dataSet.getColumnValues("Q3") );
+
+        dataSet.deleteFile();
+    }
+
+    /**
+     * Test the rows, that read the values stored in the columns, see the changes of the columns
+     */
+    @Test
+    void rowsReadColumnsTest() throws IOException {
+
+        CSVDataSet dataSet = new CSVDataSet( "temp.csv", true, false );
+        dataSet.clearData();
+
+        dataSet.addRow( Arrays.asList(new String[]{"a", "b", "c"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"1", "2", "3"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"4", "5", "6"}) );
+
+        Assertions.assertTrue( new BigDecimal(6).compareTo(dataSet.sumRow(0)) == 0 );
+
+        dataSet.replaceColumn("b", Arrays.asList(new String[]{"b", "20", "50"}) );
+        Assertions.assertEquals( Arrays.asList(new String[]{"1", "20", "3"}), dataSet.getRowValues(0) );
+        Assertions.assertTrue( new BigDecimal(24).compareTo(dataSet.sumRow(0)) == 0 );
+
+        dataSet.addColumn( Arrays.asList(new String[]{"d", "7", "8"}), 0 );
+        dataSet.addRow( Arrays.asList(new String[]{"0", "0", "0", "0"}), 1 );
+        dataSet.removeColumn("a");
+        Assertions.assertEquals( Arrays.asList(new String[]{"7", "20", "3"}), dataSet.getRowValues(0) );
+        Assertions.assertEquals( Arrays.asList(new String[]{"0", "0", "0"}), dataSet.getRowValues(1) );
+        Assertions.assertEquals( Arrays.asList(new String[]{"8", "50", "6"}), dataSet.getRowValues(2) );
+        Assertions.assertEquals( 3, dataSet.getRowCount() );
+
+        dataSet.removeRow(1);
+        Assertions.assertEquals( Arrays.asList(new String[]{"8", "50", "6"}), dataSet.getRowValues(1) );
+        Assertions.assertThrows( IllegalArgumentException.class, () -> dataSet.removeRow(2) );
+    }
+
 }
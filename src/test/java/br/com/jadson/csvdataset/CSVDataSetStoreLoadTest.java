@@ -30,13 +30,21 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 /**
  * Test store CSV to a file and load to a file
@@ -146,6 +154,56 @@ public class CSVDataSetStoreLoadTest {
     }
 
 
+    /**
+     * Test store in append mode just the rows added since the last store, the headers just to a new file
+     */
+    @Test
+    void storeDataIncrementalAppendTest() throws IOException {
+
+        String fileName = "temp"+new Random().nextInt() +".csv";
+
+        CSVDataSet dataSet = new CSVDataSet( fileName, ",", true, true, false );
+
+        dataSet.addRow(Arrays.asList("Column0", "Column1"));
+        dataSet.addRow(Arrays.asList("1", "2"));
+        dataSet.addRow(Arrays.asList("3", "4"));
+        dataSet.storeData();
+
+        dataSet.addRow(Arrays.asList("5", "6"));
+        dataSet.storeData();
+        dataSet.storeData();
+
+        Assertions.assertEquals("Column0,Column1\n1,2\n3,4\n5,6\n", new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8));
+
+        // a row already in the file is removed just from memory
+        dataSet.removeRow(0);
+        dataSet.addRow(Arrays.asList("7", "8"));
+        dataSet.storeDataParallel();
+
+        Assertions.assertEquals("Column0,Column1\n1,2\n3,4\n5,6\n7,8\n", new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8));
+
+        // the rows loaded from the file are not stored again
+        CSVDataSet loadedDataSet = new CSVDataSet( fileName, ",", true, true, false );
+        loadedDataSet.loadData();
+        loadedDataSet.addRow(Arrays.asList("9", "10"));
+        loadedDataSet.storeData();
+
+        Assertions.assertEquals("Column0,Column1\n1,2\n3,4\n5,6\n7,8\n9,10\n", new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8));
+
+        // a missing or empty file receives the headers and all rows again
+        loadedDataSet.deleteFile();
+        loadedDataSet.storeData();
+
+        Assertions.assertEquals("Column0,Column1\n1,2\n3,4\n5,6\n7,8\n9,10\n", new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8));
+
+        Files.write(Paths.get(fileName), new byte[0]);
+        loadedDataSet.storeDataParallel();
+
+        Assertions.assertEquals("Column0,Column1\n1,2\n3,4\n5,6\n7,8\n9,10\n", new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8));
+
+        loadedDataSet.deleteFile();
+    }
+
     /**
      * Test store  and load from CSV
      */
@@ -182,6 +240,729 @@ public class CSVDataSetStoreLoadTest {
 
     }
 
+    /**
+     * Test store and load in UTF-8 with a separator that is not ASCII
+     */
+    @Test
+    void storeAndLoadDataNotAsciiSeparatorTest() throws IOException {
+
+        String fileName = "temp"+new Random().nextInt() +".csv";
+
+        CSVDataSet dataSet = new CSVDataSet( fileName, "¦", true, false );
+
+        dataSet.addRow(Arrays.asList( new String[]{"Nome", "Cidade"} ));
+        dataSet.addRow(Arrays.asList( new String[]{"João", "São Paulo"} ));
+        dataSet.storeData();
+
+        Assertions.assertArrayEquals("Nome¦Cidade\nJoão¦São Paulo\n".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(Paths.get(fileName)));
+
+        dataSet.clearData();
+        dataSet.loadData();
+
+        Assertions.assertTrue(Arrays.asList( new String[]  {"João", "São Paulo"} ).equals(dataSet.getRowValues(0)));
+
+        dataSet.deleteFile();
+    }
+
+    /**
+     * Test store values with separator, quotes and line breaks, just these values are quoted
+     */
+    @Test
+    void storeQuotedValuesTest() throws IOException {
+
+        List<String> header = Arrays.asList( new String[]{ "X",  "Column,1", "Column2", "Column3"});
+        List<String> row0 = Arrays.asList( new String[]  {"Row0",   "1,5",  "say \"hello\", bye", "inch\""} );
+        List<String> row1 = Arrays.asList( new String[]  {"Row1",   "\"quoted\"",  "first line\nsecond line", ""} );
+
+        String fileName = "temp"+new Random().nextInt() +".csv";
+
+        CSVDataSet dataSet = new CSVDataSet( fileName );
+
+        dataSet.addRow(header);
+        dataSet.addRow(row0);
+        dataSet.addRow(row1);
+
+        dataSet.storeData();
+
+        Assertions.assertEquals("X,\"Column,1\",Column2,Column3\n"
+                        +"Row0,\"1,5\",\"say \"\"hello\"\", bye\",inch\"\n"
+                        +"Row1,\"\"\"quoted\"\"\",\"first line\nsecond line\",\n",
+                new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8));
+
+        dataSet.clearData();
+
+        dataSet.loadData();
+
+        Assertions.assertTrue(row0.subList(1, 4).equals(dataSet.getRowValues("Row0")));
+        Assertions.assertTrue(row1.subList(1, 4).equals(dataSet.getRowValues("Row1")));
+        Assertions.assertTrue(Arrays.asList( new String[]  {"1,5", "\"quoted\""} ).equals(dataSet.getColumnValues("Column,1")) );
+
+        dataSet.deleteFile();
+    }
+
+    /**
+     * Test write rows directly to a file, the file has to be the same stored by the data set
+     */
+    @Test
+    void writeRowsTest() throws IOException {
+
+        String storedFileName = "temp"+new Random().nextInt() +".csv";
+        String writtenFileName = "temp"+new Random().nextInt() +".csv";
+
+        CSVDataSet dataSet = new CSVDataSet( storedFileName, ";", false, true, true );
+
+        try( CSVDataSetWriter writer = new CSVDataSetWriter( writtenFileName, ";", false, true, true, 64 ) ) {
+
+            List<String> header = Arrays.asList( new String[]{ "X",  "Column0", "Column1"});
+            dataSet.addRow(header);
+            writer.addRow(header);
+
+            for (int row = 0; row < 1000; row++) {
+                List<String> rowValues = Arrays.asList( "Row"+row, String.valueOf(row), row % 3 == 0 ? "a;\"b\"" : "c" );
+                dataSet.addRow(rowValues);
+                writer.addRow(rowValues);
+            }
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> writer.addRow( Arrays.asList("Row1000", "1") ));
+            Assertions.assertEquals( 1000, writer.getRowCount() );
+        }
+
+        dataSet.storeData();
+
+        Assertions.assertTrue(Arrays.equals(Files.readAllBytes(Paths.get(storedFileName)), Files.readAllBytes(Paths.get(writtenFileName))));
+
+        // the headers are not written again to the end of the file
+        try( CSVDataSetWriter writer = new CSVDataSetWriter( writtenFileName, ";", true, true, true ) ) {
+            writer.addRow(Arrays.asList( "X",  "Column0", "Column1"));
+            writer.addRow(Arrays.asList( "Row1000",  "1000", "d"));
+        }
+
+        CSVDataSet loadedDataSet = new CSVDataSet( writtenFileName, ";", false, true, true );
+        loadedDataSet.loadData();
+
+        Assertions.assertEquals( 1001, loadedDataSet.getRowCount() );
+        Assertions.assertEquals( "a;\"b\"", loadedDataSet.getRowValues("Row999").get(1) );
+        Assertions.assertEquals( "d", loadedDataSet.getRowValues("Row1000").get(1) );
+
+        // without headers, the first row defines the size of the rows
+        String noHeadersFileName = "temp"+new Random().nextInt() +".csv";
+        try( CSVDataSetWriter writer = new CSVDataSetWriter( noHeadersFileName, ",", false, false, false ) ) {
+            writer.addRow(Arrays.asList( "1", "2"));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> writer.addRow( Arrays.asList("3") ));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> writer.addRow( Arrays.asList("3", "4", "5") ));
+            writer.addRow(Arrays.asList( "3", "4"));
+            Assertions.assertEquals( 2, writer.getRowCount() );
+        }
+        CSVDataSet noHeadersDataSet = new CSVDataSet( noHeadersFileName, ",", false, false, false );
+        noHeadersDataSet.loadData();
+        Assertions.assertEquals( 2, noHeadersDataSet.getRowCount() );
+        noHeadersDataSet.deleteFile();
+
+        // a invalid separator does not truncate the file
+        long writtenFileSize = Files.size(Paths.get(writtenFileName));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CSVDataSetWriter( writtenFileName, "\"", false, true, true ) );
+        Assertions.assertEquals( writtenFileSize, Files.size(Paths.get(writtenFileName)) );
+
+        dataSet.deleteFile();
+        loadedDataSet.deleteFile();
+    }
+
+    /**
+     * Test store the rows encoded in parallel, the file has to be the same stored sequentially
+     */
+    @Test
+    void storeDataParallelTest() throws IOException {
+
+        String sequentialFileName = "temp"+new Random().nextInt() +".csv";
+        String parallelFileName = "temp"+new Random().nextInt() +".csv";
+
+        CSVDataSet dataSet = new CSVDataSet( sequentialFileName, true, true );
+        CSVDataSet parallelDataSet = new CSVDataSet( parallelFileName, true, true );
+
+        for (CSVDataSet d : new CSVDataSet[]{dataSet, parallelDataSet}) {
+            d.addRow( Arrays.asList("X,Y", "Column0", "Column1") );
+            for (int row = 0; row < 50000; row++) {
+                d.addRow( Arrays.asList("Row"+row, String.valueOf(row), row % 7 == 0 ? "\"a\",b" : "c\nd") );
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+
+        dataSet.storeData();
+        parallelDataSet.storeDataParallel(pool);
+
+        Assertions.assertTrue(Arrays.equals(Files.readAllBytes(Paths.get(sequentialFileName)), Files.readAllBytes(Paths.get(parallelFileName))));
+
+        // the file is truncated when stored again with less rows
+        for (CSVDataSet d : new CSVDataSet[]{dataSet, parallelDataSet}) {
+            for (int row = 0; row < 20000; row++) {
+                d.removeRow(0);
+            }
+        }
+        dataSet.storeData();
+        parallelDataSet.storeDataParallel(pool);
+
+        Assertions.assertTrue(Arrays.equals(Files.readAllBytes(Paths.get(sequentialFileName)), Files.readAllBytes(Paths.get(parallelFileName))));
+
+        pool.shutdown();
+
+        dataSet.deleteFile();
+        parallelDataSet.deleteFile();
+    }
+
+    /**
+     * Test load the data from the binary snapshot, that is stored again just when the CSV file is newer
+     */
+    @Test
+    void loadDataWithSnapshotTest() throws IOException {
+
+        String fileName = "temp"+new Random().nextInt() +".csv";
+
+        StringBuilder content = new StringBuilder("X,name,value\n");
+        for (int row = 0; row < 3000; row++) {
+            content.append("Row").append(row).append(",").append(row % 5 == 0 ? "\"a, \"\"b\"\"\"" : row % 3 == 0 ? "" : "name"+row)
+                    .append(",").append(row % 7 == 0 ? "-"+row+".25" : row).append("\n");
+        }
+        Files.write(Paths.get(fileName), content.toString().getBytes(StandardCharsets.UTF_8));
+
+        CSVDataSet textDataSet = new CSVDataSet( fileName );
+        textDataSet.loadData();
+
+        CSVDataSet firstDataSet = new CSVDataSet( fileName );
+        firstDataSet.loadDataWithSnapshot();
+        Assertions.assertTrue(Files.exists(Paths.get(firstDataSet.getSnapshotFileName())));
+        Assertions.assertEquals(textDataSet.getColumnValues("name"), firstDataSet.getColumnValues("name"));
+
+        // the CSV file is not newer, the data is loaded from the snapshot
+        CSVDataSet snapshotDataSet = new CSVDataSet( fileName );
+        snapshotDataSet.loadDataWithSnapshot();
+
+        Assertions.assertTrue(snapshotDataSet.getColumnByHeaderLabel("name").getValues() instanceof CSVOffHeapTextValues);
+        Assertions.assertTrue(snapshotDataSet.getColumnByHeaderLabel("value").getValues() instanceof CSVNumericValues);
+        Assertions.assertEquals(3000, snapshotDataSet.getRowCount());
+
+        // the values can be changed, the snapshot is not
+        for (CSVDataSet dataSet : new CSVDataSet[]{textDataSet, snapshotDataSet}) {
+            dataSet.removeRow(0);
+            dataSet.addRow( Arrays.asList("Row3000", "new name", "7.5"), 10 );
+            dataSet.addRow( Arrays.asList("Row3001", "other name", "8") );
+        }
+
+        Assertions.assertEquals(textDataSet.getRowValues("Row2999"), snapshotDataSet.getRowValues("Row2999"));
+        for (String column : new String[]{"name", "value"}) {
+            Assertions.assertEquals(textDataSet.getColumnValues(column), snapshotDataSet.getColumnValues(column));
+        }
+        Assertions.assertEquals(textDataSet.sumColumn("value"), snapshotDataSet.sumColumn("value"));
+        Assertions.assertEquals(textDataSet.medianColumn("value"), snapshotDataSet.medianColumn("value"));
+
+        // a snapshot with other settings is not used
+        CSVDataSet otherSettingsDataSet = new CSVDataSet( fileName, true, false );
+        otherSettingsDataSet.loadDataWithSnapshot();
+        Assertions.assertEquals(Arrays.asList("X", "name", "value"), otherSettingsDataSet.getColumnHeadersValues());
+
+        // the CSV file is newer, the snapshot is stored again
+        Files.write(Paths.get(fileName), "X,name,value\nRow0,changed,1\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(Paths.get(fileName), FileTime.fromMillis(System.currentTimeMillis() + 60000));
+
+        CSVDataSet changedDataSet = new CSVDataSet( fileName );
+        changedDataSet.loadDataWithSnapshot();
+        Assertions.assertEquals(Arrays.asList("changed"), changedDataSet.getColumnValues("name"));
+
+        // the CSV file is written again with a time that is not newer than the snapshot, the snapshot is not used
+        FileTime snapshotTime = Files.getLastModifiedTime(Paths.get(changedDataSet.getSnapshotFileName()));
+        Files.write(Paths.get(fileName), "X,name,value\nRow0,again,1\nRow1,other,2\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(Paths.get(fileName), snapshotTime);
+
+        CSVDataSet rewrittenDataSet = new CSVDataSet( fileName );
+        rewrittenDataSet.loadDataWithSnapshot();
+        Assertions.assertEquals(Arrays.asList("again", "other"), rewrittenDataSet.getColumnValues("name"));
+        rewrittenDataSet.close();
+
+        // the snapshot replaced is still mapped by the old data set
+        Assertions.assertEquals(textDataSet.getColumnValues("name"), snapshotDataSet.getColumnValues("name"));
+
+        snapshotDataSet.close();
+        changedDataSet.close();
+
+        Files.delete(Paths.get(changedDataSet.getSnapshotFileName()));
+        textDataSet.deleteFile();
+    }
+
+    /**
+     * Test load values with quotes, escaped quotes and line breaks inside quotes
+     */
+    @Test
+    void loadQuotedValuesTest() throws IOException {
+
+        String fileName = "temp"+new Random().nextInt() +".csv";
+
+        String content = "Column1,Column2,Column3\r\n"
+                +"\"1,5\",\"say \"\"hello\"\"\",3\r\n"
+                +"\"first line\nsecond line\",,\"\"\n"
+                +"\n"
+                +"7,8,9";
+
+        Files.write(Paths.get(fileName), content.getBytes(StandardCharsets.UTF_8));
+
+        CSVDataSet dataSet = new CSVDataSet( fileName, true, false );
+        dataSet.loadData();
+
+        Assertions.assertEquals( 3, dataSet.getRowCount() );
+        Assertions.assertTrue(Arrays.asList( new String[]  {"1,5", "say \"hello\"", "3"} ).equals(dataSet.getRowValues(0)));
+        Assertions.assertTrue(Arrays.asList( new String[]  {"first line\nsecond line", "", ""} ).equals(dataSet.getRowValues(1)));
+        Assertions.assertTrue(Arrays.asList( new String[]  {"7", "8", "9"} ).equals(dataSet.getRowValues(2)));
+
+        dataSet.deleteFile();
+    }
+
+    /**
+     * Test load numeric and boolean columns stored in primitive arrays, the values and the results
+     * of operations have to be the same of the values stored as text.
+     */
+    @Test
+    void loadTypedValuesTest() throws IOException {
+
+        String fileName = "temp"+new Random().nextInt() +".csv";
+
+        String content = "id,price,active,name,code\n"
+                +"1,1.50,true,a,01\n"
+                +"-20,2,false,b,2\n"
+                +"300,-0.125,true,c,+3\n"
+                +"4,0.5,true,d,4\n";
+
+        Files.write(Paths.get(fileName), content.getBytes(StandardCharsets.UTF_8));
+
+        CSVDataSet textDataSet = new CSVDataSet( fileName, true, false );
+        textDataSet.loadData();
+
+        CSVDataSet typedDataSet = new CSVDataSet( fileName, true, false, CSVStorageMode.TYPED );
+        typedDataSet.loadData();
+
+        Assertions.assertTrue(typedDataSet.getColumnByHeaderLabel("id").getValues() instanceof CSVNumericValues);
+        Assertions.assertTrue(typedDataSet.getColumnByHeaderLabel("price").getValues() instanceof CSVNumericValues);
+        Assertions.assertTrue(typedDataSet.getColumnByHeaderLabel("active").getValues() instanceof CSVBooleanValues);
+        Assertions.assertFalse(typedDataSet.getColumnByHeaderLabel("name").getValues() instanceof CSVColumnValues);
+        Assertions.assertFalse(typedDataSet.getColumnByHeaderLabel("code").getValues() instanceof CSVColumnValues);
+
+        for (String column : new String[]{"id", "price", "active", "name", "code"}) {
+            Assertions.assertEquals(textDataSet.getColumnValues(column), typedDataSet.getColumnValues(column));
+        }
+
+        for (String column : new String[]{"id", "price"}) {
+            Assertions.assertEquals(textDataSet.sumColumn(column), typedDataSet.sumColumn(column));
+            Assertions.assertEquals(textDataSet.meanColumn(column), typedDataSet.meanColumn(column));
+            Assertions.assertEquals(textDataSet.medianColumn(column), typedDataSet.medianColumn(column));
+            Assertions.assertEquals(textDataSet.varianceColumn(column), typedDataSet.varianceColumn(column));
+            Assertions.assertArrayEquals(textDataSet.getColumnValuesAsDoubleArray(column), typedDataSet.getColumnValuesAsDoubleArray(column));
+        }
+
+        Assertions.assertEquals(new BigDecimal("3.875"), typedDataSet.sumColumn("price"));
+        // the sum has the scale of the values summed, not the scale of the column
+        Assertions.assertEquals(new BigDecimal("2"), typedDataSet.sumColumnByMatching("price", "active", "false"));
+        Assertions.assertEquals(textDataSet.sumColumnByMatching("price", "active", "true"), typedDataSet.sumColumnByMatching("price", "active", "true"));
+        String[][] matchingValues = { {"id", "-20"}, {"id", "300"}, {"id", "3"}, {"price", "1.50"}, {"price", "1.5"}, {"price", "-0.125"},
+                {"price", "2.0"}, {"price", "x"}, {"active", "true"}, {"active", "false"}, {"active", "TRUE"} };
+        for (String[] matching : matchingValues) {
+            Assertions.assertEquals(textDataSet.getColumnValuesByMatching("name", matching[0], matching[1]), typedDataSet.getColumnValuesByMatching("name", matching[0], matching[1]));
+        }
+        Assertions.assertEquals(Arrays.asList(true, false, true, true), typedDataSet.getColumnValuesAsBoolean("active"));
+        Assertions.assertEquals(new BigDecimal(3), typedDataSet.countColumnValues("active", "true"));
+        Assertions.assertEquals(new BigDecimal(0), typedDataSet.countColumnValues("price", "1.5"));
+        Assertions.assertEquals(new BigDecimal(1), typedDataSet.countColumnValues("price", "1.50"));
+
+        // values that can not be stored typed turn the column back to text
+        typedDataSet.addRow(Arrays.asList("5", "1E3", "yes", "e", "5"));
+        typedDataSet.removeRow(1);
+
+        Assertions.assertTrue(typedDataSet.getColumnByHeaderLabel("id").getValues() instanceof CSVNumericValues);
+        Assertions.assertEquals(Arrays.asList("1", "300", "4", "5"), typedDataSet.getColumnValues("id"));
+        Assertions.assertEquals(Arrays.asList("1.50", "-0.125", "0.5", "1E3"), typedDataSet.getColumnValues("price"));
+        Assertions.assertEquals(Arrays.asList("true", "true", "true", "yes"), typedDataSet.getColumnValues("active"));
+
+        // columns added or replaced are stored typed too
+        typedDataSet.replaceColumn("price", Arrays.asList("price", "2.5", "3", "4", "5"));
+        typedDataSet.addColumn(Arrays.asList("rank", "1", "2", "3", "4"));
+
+        Assertions.assertTrue(typedDataSet.getColumnByHeaderLabel("price").getValues() instanceof CSVNumericValues);
+        Assertions.assertTrue(typedDataSet.getColumnByHeaderLabel("rank").getValues() instanceof CSVNumericValues);
+        Assertions.assertEquals(Arrays.asList("2.5", "3", "4", "5"), typedDataSet.getColumnValues("price"));
+
+        textDataSet.deleteFile();
+    }
+
+    /**
+     * Test columns with few distinct values are stored in a dictionary when loaded typed
+     */
+    @Test
+    void loadDictionaryValuesTest() throws IOException {
+
+        String fileName = "temp"+new Random().nextInt() +".csv";
+
+        StringBuilder content = new StringBuilder("status,country,id\n");
+        String[] status = {"open", "closed", "", "pending"};
+        for (int row = 0; row < 1000; row++) {
+            content.append(status[row % 7 % 4]).append(",").append(row % 3 == 0 ? "BR" : "US").append(",id").append(row).append("\n");
+        }
+        Files.write(Paths.get(fileName), content.toString().getBytes(StandardCharsets.UTF_8));
+
+        CSVDataSet textDataSet = new CSVDataSet( fileName, true, false );
+        textDataSet.loadData();
+
+        CSVDataSet typedDataSet = new CSVDataSet( fileName, true, false, CSVStorageMode.TYPED );
+        typedDataSet.loadData();
+
+        Assertions.assertTrue(typedDataSet.getColumnByHeaderLabel("status").getValues() instanceof CSVDictionaryValues);
+        Assertions.assertTrue(typedDataSet.getColumnByHeaderLabel("country").getValues() instanceof CSVDictionaryValues);
+        Assertions.assertFalse(typedDataSet.getColumnByHeaderLabel("id").getValues() instanceof CSVColumnValues);
+
+        // values are removed and added in the middle, a new value is added to the dictionary
+        for (CSVDataSet dataSet : new CSVDataSet[]{textDataSet, typedDataSet}) {
+            dataSet.removeRow(0);
+            dataSet.addRow( Arrays.asList("blocked", "AR", "id1000"), 10 );
+            dataSet.addRow( Arrays.asList("open", "BR", "id1001") );
+        }
+
+        for (String column : new String[]{"status", "country"}) {
+            Assertions.assertEquals(textDataSet.getColumnValues(column), typedDataSet.getColumnValues(column));
+            Assertions.assertEquals(textDataSet.getColumnUniqueValues(column), typedDataSet.getColumnUniqueValues(column));
+        }
+        for (String value : new String[]{"open", "closed", "", "pending", "blocked", "other"}) {
+            Assertions.assertEquals(textDataSet.countColumnValues("status", value), typedDataSet.countColumnValues("status", value));
+            Assertions.assertEquals(textDataSet.getColumnValuesByMatching("id", "status", value), typedDataSet.getColumnValuesByMatching("id", "status", value));
+        }
+        Assertions.assertEquals(new BigDecimal(1), typedDataSet.countColumnValues("country", "AR"));
+
+        textDataSet.deleteFile();
+    }
+
+    /**
+     * Test the values loaded out of the heap are the same loaded as text, and the memory is released when closed
+     */
+    @Test
+    void loadOffHeapValuesTest() throws IOException {
+
+        String fileName = "temp"+new Random().nextInt() +".csv";
+
+        StringBuilder content = new StringBuilder("name,value\n");
+        for (int row = 0; row < 3000; row++) {
+            content.append(row % 5 == 0 ? "\"São Paulo, "+row+"\"" : "name"+row).append(",").append(row % 7 == 0 ? "-"+row+".25" : row).append("\n");
+        }
+        Files.write(Paths.get(fileName), content.toString().getBytes(StandardCharsets.UTF_8));
+
+        CSVDataSet textDataSet = new CSVDataSet( fileName, true, false );
+        textDataSet.loadData();
+
+        CSVDataSet offHeapDataSet = new CSVDataSet( fileName, true, false, CSVStorageMode.OFF_HEAP );
+        offHeapDataSet.loadData();
+
+        Assertions.assertTrue(offHeapDataSet.getColumnByHeaderLabel("name").getValues() instanceof CSVOffHeapTextValues);
+        Assertions.assertTrue(offHeapDataSet.getColumnByHeaderLabel("value").getValues() instanceof CSVNumericValues);
+
+        // a value that is not numeric moves the numeric column to text out of the heap
+        for (CSVDataSet dataSet : new CSVDataSet[]{textDataSet, offHeapDataSet}) {
+            dataSet.removeRow(0);
+            dataSet.addRow( Arrays.asList("Zürich", "7.5"), 10 );
+            dataSet.addRow( Arrays.asList("name3000", "n/a") );
+            dataSet.removeRow(dataSet.getRowCount() - 1);
+        }
+        Assertions.assertTrue(offHeapDataSet.getColumnByHeaderLabel("value").getValues() instanceof CSVOffHeapTextValues);
+
+        Assertions.assertEquals(textDataSet.getColumnValues("name"), offHeapDataSet.getColumnValues("name"));
+        Assertions.assertEquals(textDataSet.getColumnValues("value"), offHeapDataSet.getColumnValues("value"));
+        Assertions.assertEquals(textDataSet.sumColumn("value"), offHeapDataSet.sumColumn("value"));
+        Assertions.assertEquals(textDataSet.meanColumn("value"), offHeapDataSet.meanColumn("value"));
+        Assertions.assertEquals(textDataSet.medianColumn("value"), offHeapDataSet.medianColumn("value"));
+        Assertions.assertEquals(textDataSet.varianceColumn("value"), offHeapDataSet.varianceColumn("value"));
+
+        // columns added are stored out of the heap too
+        List<String> copy = new ArrayList<>();
+        copy.add("copy");
+        copy.addAll(textDataSet.getColumnValues("name"));
+        offHeapDataSet.addColumn(copy);
+        Assertions.assertTrue(offHeapDataSet.getColumnByHeaderLabel("copy").getValues() instanceof CSVOffHeapTextValues);
+
+        offHeapDataSet.close();
+        Assertions.assertEquals(0, offHeapDataSet.getColumnsCount());
+        Assertions.assertEquals(0, offHeapDataSet.getRowCount());
+
+        textDataSet.deleteFile();
+    }
+
+    /**
+     * Test load values with quotes from a file mapped in memory, using small windows to force a record to be
+     * split between two windows
+     */
+    @Test
+    void loadQuotedValuesMappedTest() throws IOException {
+
+        String fileName = "temp"+new Random().nextInt() +".csv";
+
+        String content = "Column1,Column2,Column3\r\n"
+                +"\"1,5\",\"say \"\"ol\u00e1\"\"\",3\r\n"
+                +"\"first line\nsecond line\",,\"\"\n"
+                +"\n"
+                +"7,8,9";
+
+        Files.write(Paths.get(fileName), content.getBytes(StandardCharsets.UTF_8));
+
+        for (int windowSize : new int[]{ 4, 7, 16, CSVMappedTokenizer.DEFAULT_WINDOW_SIZE }) {
+
+            try (CSVTokenizer mapped = new CSVMappedTokenizer(Paths.get(fileName), ',', 0, -1, windowSize);
+                 CSVTokenizer reader = new CSVReaderTokenizer(new StringReader(content), ',')) {
+
+                while (reader.nextRecord()) {
+                    Assertions.assertTrue(mapped.nextRecord());
+                    Assertions.assertEquals(reader.getFields(), mapped.getFields());
+                }
+                Assertions.assertFalse(mapped.nextRecord());
+            }
+        }
+
+        // the byte order mark is skipped by both tokenizers
+        Files.write(Paths.get(fileName), ("\uFEFF"+content).getBytes(StandardCharsets.UTF_8));
+
+        try (CSVTokenizer mapped = new CSVMappedTokenizer(Paths.get(fileName), ',');
+             CSVTokenizer reader = new CSVReaderTokenizer(new StringReader("\uFEFF"+content), ',')) {
+
+            Assertions.assertTrue(reader.nextRecord());
+            Assertions.assertTrue(mapped.nextRecord());
+            Assertions.assertEquals("Column1", reader.getField(0));
+            Assertions.assertEquals(reader.getFields(), mapped.getFields());
+        }
+
+        CSVDataSet dataSet = new CSVDataSet( fileName, true, false );
+        dataSet.loadDataMapped();
+
+        Assertions.assertEquals( 3, dataSet.getRowCount() );
+        Assertions.assertTrue(Arrays.asList( new String[]  {"1,5", "say \"ol\u00e1\"", "3"} ).equals(dataSet.getRowValues(0)));
+        Assertions.assertTrue(Arrays.asList( new String[]  {"first line\nsecond line", "", ""} ).equals(dataSet.getRowValues(1)));
+
+        dataSet.deleteFile();
+    }
+
+    /**
+     * Test read chunks of a file in parallel, when the split points fall inside quoted values with line breaks
+     */
+    @Test
+    void loadQuotedValuesParallelTest() throws Exception {
+
+        String fileName = "temp"+new Random().nextInt() +".csv";
+
+        StringBuilder content = new StringBuilder("X,Column1,Column2\n");
+        for (int row = 0; row < 200; row++) {
+            content.append("Row"+row+",\"line\n"+row+", \"\"quoted\"\"\","+row+"\n");
+        }
+
+        Files.write(Paths.get(fileName), content.toString().getBytes(StandardCharsets.UTF_8));
+
+        CSVParallelLoader loader = new CSVParallelLoader(Paths.get(fileName), ',', true, true, new ForkJoinPool(4), 16);
+
+        List<CSVParallelLoader.Chunk> chunks = loader.load();
+
+        Assertions.assertTrue(chunks.size() > 1);
+        Assertions.assertEquals(Arrays.asList( new String[]  {"X", "Column1", "Column2"} ), loader.getHeader());
+
+        int row = 0;
+        for (CSVParallelLoader.Chunk chunk : chunks) {
+            for (int index = 0; index < chunk.rowCount; index++) {
+                Assertions.assertEquals("Row"+row, chunk.rowsHeaders.get(index));
+                Assertions.assertEquals(Arrays.asList( new String[]  {"line\n"+row+", \"quoted\"", ""+row} ), chunk.getRow(index));
+                row++;
+            }
+        }
+        Assertions.assertEquals(200, row);
+
+        CSVDataSet dataSet = new CSVDataSet( fileName );
+        dataSet.loadDataParallel();
+
+        Assertions.assertEquals( 200, dataSet.getRowCount() );
+        Assertions.assertTrue(Arrays.asList( new String[]  {"line\n150, \"quoted\"", "150"} ).equals(dataSet.getRowValues("Row150")));
+        Assertions.assertTrue(new BigDecimal(19900).compareTo(dataSet.sumColumn("Column2")) == 0);
+
+        dataSet.deleteFile();
+    }
+
+    /**
+     * Test read chunks of a file in parallel when quotes in the middle of unquoted fields, that are normal
+     * characters, are followed by quoted values with line breaks
+     */
+    @Test
+    void loadStrayQuotesParallelTest() throws Exception {
+
+        String fileName = "temp"+new Random().nextInt() +".csv";
+
+        StringBuilder content = new StringBuilder("X,Column1,Column2\n");
+        for (int row = 0; row < 300; row++) {
+            if(row % 3 == 0)
+                content.append("Row"+row+",tv 5\" screen,"+row+"\n");
+            else
+                content.append("Row"+row+",\"line\n"+row+"\","+row+"\n");
+        }
+
+        Files.write(Paths.get(fileName), content.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<List<String>> expected = new ArrayList<>();
+        try (CSVTokenizer reader = new CSVReaderTokenizer(new StringReader(content.toString()), ',')) {
+            reader.nextRecord();
+            while (reader.nextRecord()) {
+                expected.add(reader.getFields());
+            }
+        }
+
+        for (long minChunkSize : new long[]{ 7, 16, 100 }) {
+
+            CSVParallelLoader loader = new CSVParallelLoader(Paths.get(fileName), ',', true, false, new ForkJoinPool(4), minChunkSize);
+
+            List<List<String>> rows = new ArrayList<>();
+            for (CSVParallelLoader.Chunk chunk : loader.load()) {
+                for (int index = 0; index < chunk.rowCount; index++) {
+                    rows.add(chunk.getRow(index));
+                }
+            }
+            Assertions.assertEquals(expected, rows);
+        }
+
+        CSVDataSet dataSet = new CSVDataSet( fileName );
+        dataSet.loadDataParallel();
+
+        Assertions.assertEquals( 300, dataSet.getRowCount() );
+        Assertions.assertTrue(Arrays.asList( new String[]  {"tv 5\" screen", "150"} ).equals(dataSet.getRowValues("Row150")));
+        Assertions.assertTrue(Arrays.asList( new String[]  {"line\n151", "151"} ).equals(dataSet.getRowValues("Row151")));
+
+        dataSet.deleteFile();
+    }
+
+    /**
+     * Test read rows one by one from the CSV without load it
+     */
+    @Test
+    void streamRowsTest() throws IOException {
+
+        List<String> header = Arrays.asList( new String[]{ "X",  "Column0", "Column1", "Column2", "Column3"});
+        List<String> row0 = Arrays.asList( new String[]  {"Row0",   "1",       "2",       "3",        "4"} );
+        List<String> row1 = Arrays.asList( new String[]  {"Row1",   "5",       "6",       "7",        "8"} );
+        List<String> row2 = Arrays.asList( new String[]  {"Row2",   "9",       "10",     "11",       "12"} );
+
+        String fileName = "temp"+new Random().nextInt() +".csv";
+
+        CSVDataSet dataSet = new CSVDataSet( fileName );
+
+        dataSet.addRow(header);
+        dataSet.addRow(row0);
+        dataSet.addRow(row1);
+        dataSet.addRow(row2);
+        dataSet.storeData();
+
+        CSVDataSet fileDataSet = new CSVDataSet( fileName );
+
+        List<CSVRow> rows = new ArrayList<>();
+        fileDataSet.forEachRow( row -> rows.add(row) );
+
+        Assertions.assertEquals( 3, rows.size() );
+        Assertions.assertEquals( "Row1", rows.get(1).getHeader() );
+        Assertions.assertEquals( 1, rows.get(1).getPosition() );
+        Assertions.assertTrue(Arrays.asList( new String[]  {"5", "6", "7", "8"} ).equals(rows.get(1).getValues()));
+        Assertions.assertEquals( "11", rows.get(2).getValue("Column2") );
+
+        try ( Stream<CSVRow> stream = fileDataSet.stream() ) {
+            BigDecimal sum = stream.map( row -> row.getValueAsBigDecimal("Column3") ).reduce(BigDecimal.ZERO, BigDecimal::add);
+            Assertions.assertTrue(new BigDecimal(24).compareTo(sum) == 0);
+        }
+
+        dataSet.deleteFile();
+    }
+
+    /**
+     * Test load just some columns of the CSV file
+     */
+    @Test
+    void loadSelectedColumnsTest() throws IOException {
+
+        List<String> header = Arrays.asList( new String[]{ "X",  "Column0", "Column1", "Column2", "Column3"});
+        List<String> row0 = Arrays.asList( new String[]  {"Row0",   "1",       "2",       "3",        "4"} );
+        List<String> row1 = Arrays.asList( new String[]  {"Row1",   "5",       "6",       "7",        "8"} );
+        List<String> row2 = Arrays.asList( new String[]  {"Row2",   "9",       "10",     "11",       "12"} );
+
+        String fileName = "temp"+new Random().nextInt() +".csv";
+
+        CSVDataSet dataSet = new CSVDataSet( fileName );
+
+        dataSet.addRow(header);
+        dataSet.addRow(row0);
+        dataSet.addRow(row1);
+        dataSet.addRow(row2);
+        dataSet.storeData();
+
+        CSVDataSet byLabel = new CSVDataSet( fileName );
+        byLabel.loadData( Arrays.asList( new String[]{ "Column3", "Column1"} ) );
+
+        Assertions.assertEquals( 2, byLabel.getColumnsCount() );
+        Assertions.assertTrue(Arrays.asList( new String[]  {"Column1", "Column3"} ).equals(byLabel.getColumnHeadersValues()));
+        Assertions.assertTrue(Arrays.asList( new String[]  {"6", "8"} ).equals(byLabel.getRowValues("Row1")));
+        Assertions.assertTrue(new BigDecimal(24).compareTo(byLabel.sumColumn("Column3")) == 0);
+
+        CSVDataSet byPosition = new CSVDataSet( fileName );
+        byPosition.loadData( new int[]{ 0, 2 } );
+
+        Assertions.assertTrue(Arrays.asList( new String[]  {"Column0", "Column2"} ).equals(byPosition.getColumnHeadersValues()));
+        Assertions.assertTrue(Arrays.asList( new String[]  {"3", "7", "11"} ).equals(byPosition.getColumnValues("Column2")));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new CSVDataSet( fileName ).loadData( Arrays.asList( new String[]{ "Column9"} ) );
+        });
+
+        dataSet.deleteFile();
+    }
+
+    /**
+     * Test load just the rows of the CSV file that satisfy a filter
+     */
+    @Test
+    void loadFilteredRowsTest() throws IOException {
+
+        String fileName = "temp"+new Random().nextInt() +".csv";
+
+        CSVDataSet dataSet = new CSVDataSet( fileName, true, false );
+
+        dataSet.addRow( Arrays.asList(new String[]{"revenue", "region", "Quarter"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"10", "EU", "Q1"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"20", "US", "Q2"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"30", "EU", "Q3"}) );
+        dataSet.addRow( Arrays.asList(new String[]{"40", "EU", "Q4"}) );
+        dataSet.storeData();
+
+        CSVDataSet europe = new CSVDataSet( fileName, true, false );
+        europe.loadData( CSVRowFilter.equalTo("region", "EU") );
+
+        Assertions.assertEquals( 3, europe.getRowCount() );
+        Assertions.assertTrue(new BigDecimal(80).compareTo(europe.sumColumn("revenue")) == 0);
+
+        // filter by a column that is not loaded
+        CSVDataSet lastQuarters = new CSVDataSet( fileName, true, false );
+        lastQuarters.loadData( Arrays.asList( new String[]{ "revenue"} ), CSVRowFilter.in(2, Arrays.asList("Q3", "Q4", "Q5")) );
+
+        Assertions.assertEquals( 1, lastQuarters.getColumnsCount() );
+        Assertions.assertTrue(Arrays.asList( new String[]  {"30", "40"} ).equals(lastQuarters.getColumnValues("revenue")));
+
+        // filter with many values, compared by hash code
+        List<String> revenues = new ArrayList<>();
+        for (int value = 0; value <= 30; value++) {
+            revenues.add(""+value);
+        }
+        CSVDataSet smallRevenues = new CSVDataSet( fileName, true, false );
+        smallRevenues.loadDataMapped( CSVRowFilter.in("revenue", revenues) );
+
+        Assertions.assertTrue(Arrays.asList( new String[]  {"EU", "US", "EU"} ).equals(smallRevenues.getColumnValues("region")));
+
+        // combined conditions
+        CSVDataSet europeLastQuarters = new CSVDataSet( fileName, true, false );
+        europeLastQuarters.loadData( CSVRowFilter.equalTo("region", "EU").and( CSVRowFilter.not( CSVRowFilter.equalTo("Quarter", "Q1").or( CSVRowFilter.equalTo("Quarter", "Q3") ) ) ) );
+
+        Assertions.assertTrue(Arrays.asList( new String[]  {"40"} ).equals(europeLastQuarters.getColumnValues("revenue")));
+
+        dataSet.deleteFile();
+    }
+
     /**
      * Test load a file with 1.000 lines
      */
@@ -239,8 +1020,8 @@ public class CSVDataSetStoreLoadTest {
 
         System.out.println("load in: "+Duration.between(start, Instant.now()).toMillis());
 
-        // load a file with 100.000 lines less then 80000ms or 1m:20s
-        Assertions.assertTrue(Duration.between(start, Instant.now()).toMillis() < 80000 );
+        // load a file with 100.000 lines less then 10000ms or 10s
+        Assertions.assertTrue(Duration.between(start, Instant.now()).toMillis() < 10000 );
 
         // the standard deviation of all elements of column 0, is equals to 0, because all them have the value "1"
         Assertions.assertTrue(new BigDecimal(0).compareTo(dataSet.stdDevColumn(0)) == 0);
@@ -248,4 +1029,68 @@ public class CSVDataSetStoreLoadTest {
     }
 
 
+    /**
+     * Test load a file with 100.000 lines mapped in memory
+     */
+    @Test
+    void loadHugeFileMappedTest() throws IOException {
+
+        Instant start = Instant.now();
+
+        String userDirectory = FileSystems.getDefault().getPath("").toAbsolutePath().toString();
+        CSVDataSet dataSet = new CSVDataSet( userDirectory+"/src/test/resources/hugefile.csv", true, false );
+        dataSet.loadDataMapped();
+
+        System.out.println("load in: "+Duration.between(start, Instant.now()).toMillis());
+
+        // load a file with 100.000 lines less then 10000ms or 10s
+        Assertions.assertTrue(Duration.between(start, Instant.now()).toMillis() < 10000 );
+
+        Assertions.assertEquals( 100000, dataSet.getRowCount() );
+        Assertions.assertEquals( 12, dataSet.getColumnsCount() );
+        Assertions.assertTrue(new BigDecimal(100000).compareTo(dataSet.sumColumn(11)) == 0);
+    }
+
+
+    /**
+     * Test load a file with 100.000 lines in parallel
+     */
+    @Test
+    void loadHugeFileParallelTest() throws IOException {
+
+        String userDirectory = FileSystems.getDefault().getPath("").toAbsolutePath().toString();
+
+        CSVDataSet sequentialDataSet = new CSVDataSet( userDirectory+"/src/test/resources/hugefile.csv", true, false );
+        sequentialDataSet.loadData();
+
+        Instant start = Instant.now();
+
+        CSVDataSet dataSet = new CSVDataSet( userDirectory+"/src/test/resources/hugefile.csv", true, false );
+        dataSet.loadDataParallel();
+
+        System.out.println("load in: "+Duration.between(start, Instant.now()).toMillis());
+
+        Assertions.assertEquals( sequentialDataSet.getRowCount(), dataSet.getRowCount() );
+        Assertions.assertEquals( sequentialDataSet.getColumnsCount(), dataSet.getColumnsCount() );
+        Assertions.assertEquals( sequentialDataSet.getColumnHeadersValues(), dataSet.getColumnHeadersValues() );
+        Assertions.assertEquals( sequentialDataSet.getColumnValues(0), dataSet.getColumnValues(0) );
+        Assertions.assertEquals( sequentialDataSet.getRowValues(99999), dataSet.getRowValues(99999) );
+    }
+
+
+    /**
+     * Test read a file with 100.000 lines as a stream, without load it
+     */
+    @Test
+    void streamHugeFileTest() throws IOException {
+
+        String userDirectory = FileSystems.getDefault().getPath("").toAbsolutePath().toString();
+        CSVDataSet dataSet = new CSVDataSet( userDirectory+"/src/test/resources/hugefile.csv", true, false );
+
+        try ( Stream<CSVRow> rows = dataSet.stream() ) {
+            Assertions.assertEquals( 100000, rows.filter( row -> row.getValue(0).equals("1") ).count() );
+        }
+    }
+
+
 }